@@ -20,6 +20,7 @@ import com.shaft.gui.element.ElementActions;
 import com.shaft.gui.element.JSWaiter;
 import com.shaft.gui.image.ScreenshotManager;
 import com.shaft.tools.io.ReportManager;
+import com.shaft.tools.io.TimingManager;
 
 public class BrowserActions {
     private static final Boolean HEADLESS_EXECUTION = Boolean.valueOf(System.getProperty("headlessExecution").trim());
@@ -47,6 +48,7 @@ public class BrowserActions {
 	    ScreenshotManager.captureScreenShot(driver, actionName, true);
 	}
 	ReportManager.log(message);
+	TimingManager.completeAction(actionName);
     }
 
     private static void failAction(String actionName) {
@@ -66,6 +68,7 @@ public class BrowserActions {
 	    ScreenshotManager.captureScreenShot(driver, actionName, false);
 	}
 	ReportManager.log(message);
+	TimingManager.completeAction(actionName);
 	Assert.fail(message);
     }
 
@@ -76,7 +79,7 @@ public class BrowserActions {
      * @return the URL that's currently open in the current page
      */
     public static String getCurrentURL(WebDriver driver) {
-	JSWaiter.waitForLazyLoading();
+	JSWaiter.waitForLazyLoading(driver);
 	String currentURL = "";
 	try {
 	    currentURL = driver.getCurrentUrl();
@@ -95,7 +98,7 @@ public class BrowserActions {
      * @return the title of the current window
      */
     public static String getCurrentWindowTitle(WebDriver driver) {
-	JSWaiter.waitForLazyLoading();
+	JSWaiter.waitForLazyLoading(driver);
 	String currentWindowTitle = "";
 	try {
 	    currentWindowTitle = driver.getTitle();
@@ -114,7 +117,7 @@ public class BrowserActions {
      * @return the source of the current page
      */
     public static String getPageSource(WebDriver driver) {
-	JSWaiter.waitForLazyLoading();
+	JSWaiter.waitForLazyLoading(driver);
 	String pageSource = "";
 	try {
 	    pageSource = driver.getPageSource();
@@ -133,7 +136,7 @@ public class BrowserActions {
      * @return the window handle for the current window
      */
     public static String getWindowHandle(WebDriver driver) {
-	JSWaiter.waitForLazyLoading();
+	JSWaiter.waitForLazyLoading(driver);
 	String windowHandle = "";
 	try {
 	    windowHandle = driver.getWindowHandle();
@@ -152,7 +155,7 @@ public class BrowserActions {
      * @return the position of the current window
      */
     public static String getWindowPosition(WebDriver driver) {
-	JSWaiter.waitForLazyLoading();
+	JSWaiter.waitForLazyLoading(driver);
 	String windowPosition = "";
 	try {
 	    windowPosition = driver.manage().window().getPosition().toString();
@@ -171,7 +174,7 @@ public class BrowserActions {
      * @return the size of the current window
      */
     public static String getWindowSize(WebDriver driver) {
-	JSWaiter.waitForLazyLoading();
+	JSWaiter.waitForLazyLoading(driver);
 	String windowSize = "";
 	try {
 	    windowSize = driver.manage().window().getSize().toString();
@@ -224,7 +227,7 @@ public class BrowserActions {
 	     */
 	}
 	try {
-	    JSWaiter.waitForLazyLoading();
+	    JSWaiter.waitForLazyLoading(driver);
 
 	    String initialURL = "";
 	    String initialSource = driver.getPageSource();
@@ -232,7 +235,7 @@ public class BrowserActions {
 	    if (!initialURL.equals(targetUrl)) {
 		// navigate to new url
 		navigateToNewURL(driver, targetUrl, targetUrlAfterRedirection);
-		JSWaiter.waitForLazyLoading();
+		JSWaiter.waitForLazyLoading(driver);
 		if ((ElementActions.getElementsCount(driver, By.tagName("html")) == 1)
 			&& (!driver.getPageSource().equalsIgnoreCase(initialSource))) {
 		    confirmThatWebsiteIsNotDown(driver, targetUrl);
@@ -243,7 +246,7 @@ public class BrowserActions {
 	    } else {
 		// already on the same page
 		driver.navigate().refresh();
-		JSWaiter.waitForLazyLoading();
+		JSWaiter.waitForLazyLoading(driver);
 		if (ElementActions.getElementsCount(driver, By.tagName("html")) == 1) {
 		    confirmThatWebsiteIsNotDown(driver, targetUrl);
 		    passAction(driver, "navigateToURL", targetUrl);
@@ -273,12 +276,12 @@ public class BrowserActions {
      * @param driver the current instance of Selenium webdriver
      */
     public static void navigateBack(WebDriver driver) {
-	JSWaiter.waitForLazyLoading();
+	JSWaiter.waitForLazyLoading(driver);
 	String initialURL = "";
 	try {
 	    initialURL = driver.getCurrentUrl();
 	    driver.navigate().back();
-	    JSWaiter.waitForLazyLoading();
+	    JSWaiter.waitForLazyLoading(driver);
 	    (new WebDriverWait(driver, 30)).until(ExpectedConditions.not(ExpectedConditions.urlToBe(initialURL)));
 	    if (!initialURL.equals(driver.getCurrentUrl())) {
 		passAction(driver, "navigateBack");
@@ -292,12 +295,12 @@ public class BrowserActions {
     }
 
     public static void navigateForward(WebDriver driver) {
-	JSWaiter.waitForLazyLoading();
+	JSWaiter.waitForLazyLoading(driver);
 	String initialURL = "";
 	try {
 	    initialURL = driver.getCurrentUrl();
 	    driver.navigate().forward();
-	    JSWaiter.waitForLazyLoading();
+	    JSWaiter.waitForLazyLoading(driver);
 	    (new WebDriverWait(driver, 30)).until(ExpectedConditions.not(ExpectedConditions.urlToBe(initialURL)));
 	    if (!initialURL.equals(driver.getCurrentUrl())) {
 		passAction(driver, "navigateForward");
@@ -316,7 +319,7 @@ public class BrowserActions {
      * @param driver the current instance of Selenium webdriver
      */
     public static void refreshCurrentPage(WebDriver driver) {
-	JSWaiter.waitForLazyLoading();
+	JSWaiter.waitForLazyLoading(driver);
 	driver.navigate().refresh();
 	passAction(driver, "refreshCurrentPage");
 	// removed all exception handling as there was no comments on when and why this
@@ -345,7 +348,7 @@ public class BrowserActions {
      * @param driver the current instance of Selenium webdriver
      */
     public static void closeCurrentWindow(WebDriver driver) {
-	JSWaiter.waitForLazyLoading();
+	JSWaiter.waitForLazyLoading(driver);
 	try {
 	    driver.close();
 	    driver.quit();
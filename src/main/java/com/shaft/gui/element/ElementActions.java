@@ -9,9 +9,11 @@ import java.io.IOException;
 import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
-import java.util.concurrent.TimeUnit;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.openqa.selenium.By;
 import org.openqa.selenium.ElementNotInteractableException;
@@ -24,7 +26,6 @@ import org.openqa.selenium.WebDriver;
 import org.openqa.selenium.WebDriverException;
 import org.openqa.selenium.WebElement;
 import org.openqa.selenium.interactions.Actions;
-import org.openqa.selenium.interactions.Locatable;
 import org.openqa.selenium.remote.UnreachableBrowserException;
 import org.openqa.selenium.support.ui.ExpectedConditions;
 import org.openqa.selenium.support.ui.Select;
@@ -34,16 +35,25 @@ import org.testng.Assert;
 import com.shaft.gui.browser.BrowserFactory;
 import com.shaft.gui.image.ScreenshotManager;
 import com.shaft.tools.io.ReportManager;
+import com.shaft.tools.io.TimingManager;
 
 public class ElementActions {
+    private enum ClearStrategy {
+	NATIVE, SELECT_ALL_AND_DELETE, JAVASCRIPT
+    }
+
     private static int defaultElementIdentificationTimeout = Integer
 	    .parseInt(System.getProperty("defaultElementIdentificationTimeout").trim());
     private static int attemptsBeforeThrowingElementNotFoundException = Integer
 	    .parseInt(System.getProperty("attemptsBeforeThrowingElementNotFoundException").trim());
     private static boolean forceCheckForElementVisibility = Boolean
 	    .parseBoolean(System.getProperty("forceCheckForElementVisibility").trim());
-    // this will only be used for switching back to default content
-    static WebDriver lastUsedDriver = null;
+    // the clear strategy that worked for each locator during this session
+    private static Map<String, ClearStrategy> successfulClearStrategies = new ConcurrentHashMap<>();
+    // this will only be used for switching back to default content, and is
+    // confined to the current test thread
+    private static ThreadLocal<WebDriver> lastUsedDriver = new ThreadLocal<>();
+    private static String hoverScript = null;
 
     private ElementActions() {
 	throw new IllegalStateException("Utility class");
@@ -65,26 +75,38 @@ public class ElementActions {
 	passAction(driver, null, actionName, testData);
     }
 
-    private static void passAction(WebDriver driver, By elementLocator, String actionName, String testData) {
+    static void passAction(WebDriver driver, By elementLocator, String actionName, String testData) {
 	String message = "Element Action [" + actionName + "] successfully performed.";
 	if (testData != null) {
 	    message = message + " With the following test data [" + testData + "].";
 	}
 	takeScreenshot(driver, elementLocator, actionName, testData, true);
 	ReportManager.log(message);
+	TimingManager.completeAction(actionName);
+    }
+
+    private static void passAction(ElementHandle element, String actionName) {
+	passAction(element, actionName, null);
+    }
+
+    private static void passAction(ElementHandle element, String actionName, String testData) {
+	ReportManager.logDiscrete("Element Action [" + actionName + "] issued [" + element.getIssuedCommandsCount()
+		+ "] WebDriver commands to locate and interact with the target element.");
+	passAction(element.getDriver(), element.getLocator(), actionName, testData);
     }
 
     private static void failAction(WebDriver driver, String actionName) {
 	failAction(driver, actionName, null);
     }
 
-    private static void failAction(WebDriver driver, String actionName, String testData) {
+    static void failAction(WebDriver driver, String actionName, String testData) {
 	String message = "[" + actionName + "] failed.";
 	if (testData != null) {
 	    message = message + " With the following test data [" + testData + "].";
 	}
 	takeScreenshot(driver, null, actionName, testData, false);
 	ReportManager.log(message);
+	TimingManager.completeAction(actionName);
 	Assert.fail(message);
     }
 
@@ -109,38 +131,45 @@ public class ElementActions {
 	} else {
 	    ScreenshotManager.captureScreenShot(driver, actionName, false);
 	}
-	lastUsedDriver = driver;
+	lastUsedDriver.set(driver);
     }
 
     /////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
     //////////////////////////////////// [private] Preparation and Support Actions
     /////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
 
-    private static boolean identifyUniqueElement(WebDriver driver, By elementLocator) {
+    private static ElementHandle identifyUniqueElement(WebDriver driver, By elementLocator) {
 	return identifyUniqueElement(driver, elementLocator, attemptsBeforeThrowingElementNotFoundException, true);
     }
 
-    private static boolean identifyUniqueElement(WebDriver driver, By elementLocator, int numberOfAttempts,
+    /**
+     * Locates the target element once and returns a handle to it, so that the
+     * calling action can reuse the resolved element instead of locating it again
+     * before every step.
+     * 
+     * @return a handle to the unique element, or null if there wasn't exactly one
+     *         element matching the elementLocator
+     */
+    private static ElementHandle identifyUniqueElement(WebDriver driver, By elementLocator, int numberOfAttempts,
 	    boolean checkForVisibility) {
-	int matchingElementsCount = getMatchingElementsCount(driver, elementLocator, numberOfAttempts);
+	// the element is scrolled into viewPort by the same probe that locates it
+	boolean scrollIntoView = checkForVisibility && elementLocator != null
+		&& !elementLocator.toString().contains("input[@type='file']")
+		&& !elementLocator.equals(By.tagName("html"));
+	ElementHandle element = locateMatchingElements(driver, elementLocator, numberOfAttempts, true, scrollIntoView);
 
-	switch (matchingElementsCount) {
+	switch (element.getMatchingElementsCount()) {
 	case 0:
 	    failAction(driver, "identifyUniqueElement",
 		    "zero elements found matching this locator \"" + elementLocator + "\".");
 	    break;
 	case 1:
 	    // unique element found
-	    if (checkForVisibility && !elementLocator.toString().contains("input[@type='file']")
-		    && !elementLocator.equals(By.tagName("html"))) {
-		// scroll element into viewPort
-		((Locatable) driver.findElement(elementLocator)).getCoordinates().inViewPort();
-
-		// check for visibility
-		if (forceCheckForElementVisibility) {
+	    if (scrollIntoView) {
+		// check for visibility, only waiting if the probe didn't already confirm it
+		if (forceCheckForElementVisibility && !element.getProbe().isDisplayed()) {
 		    try {
-			(new WebDriverWait(driver, defaultElementIdentificationTimeout))
-				.until(ExpectedConditions.visibilityOfElementLocated(elementLocator));
+			element.waitUntilDisplayed(defaultElementIdentificationTimeout);
 		    } catch (TimeoutException e) {
 			ReportManager.log(e);
 			failAction(driver, "identifyUniqueElement",
@@ -153,13 +182,13 @@ public class ElementActions {
 		ScreenshotManager.storeElementScreenshotForAISupportedElementIdentification(driver, elementLocator);
 	    }
 
-	    return true;
+	    return element;
 	default:
 	    failAction(driver, "identifyUniqueElement",
 		    "multiple elements found matching this locator \"" + elementLocator + "\".");
 	    break;
 	}
-	return false;
+	return null;
     }
 
     private static int getMatchingElementsCount(WebDriver driver, By elementLocator, int numberOfAttempts) {
@@ -168,169 +197,221 @@ public class ElementActions {
 
     private static int getMatchingElementsCount(WebDriver driver, By elementLocator, int numberOfAttempts,
 	    boolean waitForLazyLoading) {
+	return locateMatchingElements(driver, elementLocator, numberOfAttempts, waitForLazyLoading, false)
+		.getMatchingElementsCount();
+    }
+
+    private static ElementHandle locateMatchingElements(WebDriver driver, By elementLocator, int numberOfAttempts,
+	    boolean waitForLazyLoading, boolean scrollIntoView) {
+	String pageState = null;
 	if (waitForLazyLoading) {
-	    JSWaiter.waitForLazyLoading();
+	    JSWaiter.waitForLazyLoading(driver);
+	    pageState = JSWaiter.getLastPageState();
 	}
 
-	if (elementLocator != null) {
-	    int matchingElementsCount = 0;
-	    int i = 0;
-	    do {
-		try {
-		    (new WebDriverWait(driver, defaultElementIdentificationTimeout))
-			    .until(ExpectedConditions.presenceOfElementLocated(elementLocator));
-
-		    matchingElementsCount = driver.findElements(elementLocator).size();
-		} catch (TimeoutException e) {
-		    // in case of assert element doesn't exist, or if an element really doesn't
-		    // exist this exception will be thrown from the fluent wait command
-
-		    // this is expected and in this case the loop should just continue to iterate
+	if (elementLocator == null) {
+	    return new ElementHandle(driver, elementLocator);
+	}
+	// the page didn't change since this locator was last probed, so the probe is
+	// reused without issuing any commands
+	ElementLocatorCache cache = ElementLocatorCache.forDriver(driver);
+	ElementProbe cachedProbe = cache.get(pageState, elementLocator, scrollIntoView);
+	if (cachedProbe != null && cachedProbe.getMatchingElementsCount() > 0) {
+	    return new ElementHandle(driver, elementLocator, cachedProbe);
+	}
+	ElementHandle element = new ElementHandle(driver, elementLocator);
+	element.locate(PollingStrategy.forElementIdentification(numberOfAttempts), scrollIntoView);
+	cache.put(pageState, elementLocator, scrollIntoView, element.getProbe());
+	return element;
+    }
 
-		    // I've included the finElements line inside this try clause because it makes no
-		    // added value to try again to find the element within the same attempt
-		}
-		i++;
-	    } while ((matchingElementsCount == 0) && (i < numberOfAttempts));
-	    return matchingElementsCount;
-	} else {
-	    return 0;
+    private static int getMatchingElementsCountExpectingAbsence(WebDriver driver, By elementLocator,
+	    int numberOfAttempts) {
+	// the DOM is settled first, so an absent element is confirmed by a single probe
+	JSWaiter.waitForLazyLoading(driver);
+	String pageState = JSWaiter.getLastPageState();
+	ElementLocatorCache cache = ElementLocatorCache.forDriver(driver);
+	ElementProbe cachedProbe = cache.get(pageState, elementLocator, false);
+	if (cachedProbe != null) {
+	    return cachedProbe.getMatchingElementsCount();
 	}
+	ElementHandle element = new ElementHandle(driver, elementLocator);
+	element.locateExpectingAbsence(PollingStrategy.forElementIdentification(numberOfAttempts));
+	cache.put(pageState, elementLocator, false, element.getProbe());
+	return element.getMatchingElementsCount();
     }
 
-    private static String determineSuccessfulTextLocationStrategy(WebDriver driver, By elementLocator) {
-	String elementText = driver.findElement(elementLocator).getText();
+    static String determineSuccessfulTextLocationStrategy(ElementProbe probe) {
 	String successfulTextLocationStrategy = "text";
-	if (elementText.trim().equals("")) {
-	    elementText = driver.findElement(elementLocator).getAttribute("textContent");
+	if (probe.getText().trim().equals("")) {
 	    successfulTextLocationStrategy = "textContent";
-	}
-	if (elementText.trim().equals("")) {
-	    successfulTextLocationStrategy = "value";
+	    if (probe.getTextContent().trim().equals("")) {
+		successfulTextLocationStrategy = "value";
+	    }
 	}
 	return successfulTextLocationStrategy;
     }
 
-    private static String readTextBasedOnSuccessfulLocationStrategy(WebDriver driver, By elementLocator,
+    static String readTextBasedOnSuccessfulLocationStrategy(ElementHandle element,
 	    String successfulTextLocationStrategy) {
-	String actualText = "";
-	switch (successfulTextLocationStrategy) {
-	case "text":
-	    actualText = driver.findElement(elementLocator).getText();
-	    break;
-	case "textContent":
-	    actualText = driver.findElement(elementLocator).getAttribute("textContent");
-	    break;
-	case "value":
-	    actualText = driver.findElement(elementLocator).getAttribute("value");
-	    break;
-	default:
-	    break;
+	if ("text".equals(successfulTextLocationStrategy)) {
+	    // the visible text is read natively, see getText
+	    return element.perform(WebElement::getText);
 	}
-	return actualText;
+	// a single probe reads the textContent and value at once
+	return element.probe().getText(successfulTextLocationStrategy);
     }
 
     private static void typeWrapper(WebDriver driver, By elementLocator, String targetText, Boolean isSecureTyping) {
-	if (identifyUniqueElement(driver, elementLocator)) {
-	    // attempt to type
-	    String successfulTextLocationStrategy = determineSuccessfulTextLocationStrategy(driver, elementLocator);
-	    String elementText = readTextBasedOnSuccessfulLocationStrategy(driver, elementLocator,
-		    successfulTextLocationStrategy);
-
-	    if (!elementText.trim().equals("")) {
-		// attempt to clear element then check text size
-		clearBeforeTyping(driver, elementLocator, successfulTextLocationStrategy);
-	    }
-	    if ((getMatchingElementsCount(driver, elementLocator, attemptsBeforeThrowingElementNotFoundException) == 1)
-		    && (!targetText.equals(""))) {
-		performType(driver, elementLocator, targetText);
-	    }
-	    if ((getMatchingElementsCount(driver, elementLocator, attemptsBeforeThrowingElementNotFoundException) == 1)
-		    && (!targetText.equals(""))) {
-		// to confirm that the text was written successfully
-		confirmTypingWasSuccessful(driver, elementLocator, targetText, isSecureTyping,
-			successfulTextLocationStrategy);
+	ElementHandle element = identifyUniqueElement(driver, elementLocator);
+	if (element != null) {
+	    try {
+		// attempt to type
+		// the probe taken while identifying the element already holds its text
+		String successfulTextLocationStrategy = determineSuccessfulTextLocationStrategy(element.getProbe());
+		String elementText = element.getProbe().getText(successfulTextLocationStrategy);
+
+		if (!elementText.trim().equals("")) {
+		    // attempt to clear element then check text size
+		    clearBeforeTyping(element, successfulTextLocationStrategy);
+		}
+		if (!targetText.equals("")) {
+		    performType(element, targetText);
+		    // to confirm that the text was written successfully
+		    confirmTypingWasSuccessful(element, targetText, isSecureTyping, successfulTextLocationStrategy);
+		}
+	    } catch (NoSuchElementException e) {
+		// the element was removed from the page while typing, and it couldn't be
+		// resolved again
+		ReportManager.log(e);
+		failAction(driver, "type", "element matching this locator \"" + elementLocator
+			+ "\" was removed from the page while typing.");
 	    }
 	}
     }
 
-    private static void confirmTypingWasSuccessful(WebDriver driver, By elementLocator, String targetText,
-	    Boolean isSecureTyping, String successfulTextLocationStrategy) {
-	if (targetText.equals(
-		readTextBasedOnSuccessfulLocationStrategy(driver, elementLocator, successfulTextLocationStrategy))) {
+    private static void confirmTypingWasSuccessful(ElementHandle element, String targetText, Boolean isSecureTyping,
+	    String successfulTextLocationStrategy) {
+	if (targetText.equals(readTextBasedOnSuccessfulLocationStrategy(element, successfulTextLocationStrategy))) {
 	    if (isSecureTyping) {
-		passAction(driver, elementLocator, "type", targetText.replaceAll(".", "*"));
+		passAction(element, "type", targetText.replaceAll(".", "*"));
 	    } else {
-		passAction(driver, elementLocator, "type", targetText);
+		passAction(element, "type", targetText);
 	    }
 	} else {
 	    // attempt once to type using javascript then confirm typing was successful
 	    // again
-	    attemptTypeUsingJavascript(driver, elementLocator, targetText, isSecureTyping,
-		    successfulTextLocationStrategy);
+	    attemptTypeUsingJavascript(element, targetText, isSecureTyping, successfulTextLocationStrategy);
 
 	}
     }
 
-    private static void attemptTypeUsingJavascript(WebDriver driver, By elementLocator, String targetText,
-	    Boolean isSecureTyping, String successfulTextLocationStrategy) {
-	clearBeforeTyping(driver, elementLocator, successfulTextLocationStrategy);
-	setValueUsingJavaScript(driver, elementLocator, targetText, true);
-	if (targetText.equals(
-		readTextBasedOnSuccessfulLocationStrategy(driver, elementLocator, successfulTextLocationStrategy))) {
+    private static void attemptTypeUsingJavascript(ElementHandle element, String targetText, Boolean isSecureTyping,
+	    String successfulTextLocationStrategy) {
+	clearBeforeTyping(element, successfulTextLocationStrategy);
+	setValueUsingJavaScript(element, targetText, true);
+	if (targetText.equals(readTextBasedOnSuccessfulLocationStrategy(element, successfulTextLocationStrategy))) {
 	    if (isSecureTyping) {
-		passAction(driver, elementLocator, "type", targetText.replaceAll(".", "*"));
+		passAction(element, "type", targetText.replaceAll(".", "*"));
 	    } else {
-		passAction(driver, elementLocator, "type", targetText);
+		passAction(element, "type", targetText);
 	    }
 	} else {
 	    try {
 		Boolean discreetLoggingState = ReportManager.isDiscreteLogging();
 		ReportManager.setDiscreteLogging(true);
-		String actualText = getText(driver, elementLocator);
+		String actualText = getText(element.getDriver(), element.getLocator());
 		ReportManager.setDiscreteLogging(discreetLoggingState);
-		failAction(driver, "type",
+		failAction(element.getDriver(), "type",
 			"Expected to type: \"" + targetText + "\", but ended up with: \"" + actualText + "\"");
 	    } catch (Exception e) {
-		failAction(driver, "type",
+		failAction(element.getDriver(), "type",
 			"Expected to type: \"" + targetText + "\", but ended up with something else");
 	    }
 	}
     }
 
-    private static void clearBeforeTyping(WebDriver driver, By elementLocator, String successfulTextLocationStrategy) {
-	// attempt clear using clear
-	driver.findElement(elementLocator).clear();
-	String elementText = readTextBasedOnSuccessfulLocationStrategy(driver, elementLocator,
-		successfulTextLocationStrategy);
-
-	// attempt clear using sendKeys
-	if (!elementText.trim().equals("")) {
-	    driver.findElement(elementLocator).sendKeys("");
+    /**
+     * Clears the target element using the strategy that suits its type, and only
+     * falls back to the other strategies if the text was not cleared. Every
+     * strategy costs one command plus one probe to confirm it, and the strategy
+     * that worked is remembered for this locator and attempted first next time.
+     */
+    static void clearBeforeTyping(ElementHandle element, String successfulTextLocationStrategy) {
+	for (ClearStrategy clearStrategy : getClearStrategies(element)) {
+	    try {
+		performClear(element, clearStrategy);
+	    } catch (WebDriverException e) {
+		// this strategy is not supported for this element, try the next one
+		ReportManager.logDiscrete("Failed to clear element using [" + clearStrategy + "] strategy.");
+		continue;
+	    }
+	    String elementText = readTextBasedOnSuccessfulLocationStrategy(element, successfulTextLocationStrategy);
+	    if (elementText == null || elementText.trim().equals("")) {
+		successfulClearStrategies.put(element.getLocator().toString(), clearStrategy);
+		return;
+	    }
 	}
-	elementText = readTextBasedOnSuccessfulLocationStrategy(driver, elementLocator, successfulTextLocationStrategy);
+    }
 
-	// attempt clear using javascript
-	if (!elementText.trim().equals("")) {
-	    setValueUsingJavaScript(driver, elementLocator, "", true);
+    private static List<ClearStrategy> getClearStrategies(ElementHandle element) {
+	List<ClearStrategy> clearStrategies = new ArrayList<>();
+	ClearStrategy previouslySuccessfulStrategy = successfulClearStrategies.get(element.getLocator().toString());
+	if (previouslySuccessfulStrategy != null) {
+	    clearStrategies.add(previouslySuccessfulStrategy);
 	}
 
-	elementText = readTextBasedOnSuccessfulLocationStrategy(driver, elementLocator, successfulTextLocationStrategy);
-	// attempt clear using letter by letter backspace
-	if (!elementText.trim().equals("")) {
-	    driver.findElement(elementLocator).sendKeys("");
-	    for (int i = 0; i < elementText.length(); i++) {
-		driver.findElement(elementLocator).sendKeys(Keys.BACK_SPACE);
+	// text fields and content editable elements are cleared natively first,
+	// anything else can only have its value reset
+	ElementProbe probe = element.getProbe();
+	List<ClearStrategy> strategiesBasedOnElementType;
+	if (probe.getTagName().equals("input") || probe.getTagName().equals("textarea")
+		|| probe.isContentEditable()) {
+	    strategiesBasedOnElementType = Arrays.asList(ClearStrategy.NATIVE, ClearStrategy.SELECT_ALL_AND_DELETE,
+		    ClearStrategy.JAVASCRIPT);
+	} else {
+	    strategiesBasedOnElementType = Arrays.asList(ClearStrategy.JAVASCRIPT, ClearStrategy.NATIVE);
+	}
+	for (ClearStrategy clearStrategy : strategiesBasedOnElementType) {
+	    if (clearStrategy != previouslySuccessfulStrategy) {
+		clearStrategies.add(clearStrategy);
 	    }
 	}
+	return clearStrategies;
+    }
+
+    private static void performClear(ElementHandle element, ClearStrategy clearStrategy) {
+	switch (clearStrategy) {
+	case NATIVE:
+	    element.run(WebElement::clear);
+	    break;
+	case SELECT_ALL_AND_DELETE:
+	    Keys selectAllModifier = System.getProperty("targetOperatingSystem").equals("Mac-64") ? Keys.COMMAND
+		    : Keys.CONTROL;
+	    element.run(targetElement -> targetElement.sendKeys(Keys.chord(selectAllModifier, "a"), Keys.DELETE));
+	    break;
+	case JAVASCRIPT:
+	    // the native value setter is used so that frameworks that track the value,
+	    // like React, are notified by the input event
+	    element.executeScript("var element = arguments[arguments.length - 1];"
+		    + "if (element.isContentEditable) { element.textContent = ''; } else {"
+		    + " var property = Object.getOwnPropertyDescriptor(Object.getPrototypeOf(element), 'value');"
+		    + " if (property && property.set) { property.set.call(element, ''); } else { element.value = ''; } }"
+		    + "element.dispatchEvent(new Event('input', { bubbles: true }));"
+		    + "element.dispatchEvent(new Event('change', { bubbles: true }));");
+	    break;
+	default:
+	    break;
+	}
+	ReportManager.logDiscrete("Cleared element using [" + clearStrategy + "] strategy.");
     }
 
-    private static void performType(WebDriver driver, By elementLocator, String text) {
+    static void performType(ElementHandle element, String text) {
 	// implementing loop to try and break out of the stale element exception issue
 	for (int i = 0; i < attemptsBeforeThrowingElementNotFoundException; i++) {
 	    try {
 		// attempt to perform action
-		driver.findElement(elementLocator).sendKeys(text);
+		element.run(targetElement -> targetElement.sendKeys(text));
 		break;
 	    } catch (StaleElementReferenceException | ElementNotInteractableException | UnreachableBrowserException
 		    | NoSuchElementException | TimeoutException e) {
@@ -353,23 +434,21 @@ public class ElementActions {
      * Used to force set the value of a certain element using javascript, bypassing
      * regular visibility and element uniqueness checks
      * 
-     * @param driver
-     * @param elementLocator
-     * @param value
+     * @param element        a handle to the target element
+     * @param value          the value that should be set
+     * @param isInternalCall true if this is a step within another element action
      */
-    private static void setValueUsingJavaScript(WebDriver driver, By elementLocator, String value,
-	    boolean isInternalCall) {
+    static void setValueUsingJavaScript(ElementHandle element, String value, boolean isInternalCall) {
 	try {
-	    ((JavascriptExecutor) driver).executeScript("arguments[0].value='" + value + "';",
-		    driver.findElement(elementLocator));
+	    element.executeScript("arguments[arguments.length - 1].value = arguments[0];", value);
 	    if (isInternalCall) {
 		ReportManager.logDiscrete("Set Element Value to [" + value + "] using JavaScript");
 	    } else {
-		passAction(driver, elementLocator, "setValueUsingJavaScript", value);
+		passAction(element, "setValueUsingJavaScript", value);
 	    }
 	} catch (Exception e) {
 	    ReportManager.log(e);
-	    failAction(driver, "setValueUsingJavaScript");
+	    failAction(element.getDriver(), "setValueUsingJavaScript");
 	}
     }
 
@@ -444,24 +523,26 @@ public class ElementActions {
 	passAction(driver, elementLocator, "clipboardActions", action);
     }
 
-    private static void performHover(WebDriver driver, By elementLocator) {
-	String createMouseEvent = "var evObj = document.createEvent('MouseEvents');";
-	String dispatchMouseEvent = "arguments[arguments.length -1].dispatchEvent(evObj);";
-	
-	String mouseEventFirstHalf = "evObj.initMouseEvent(\"";
-	String mouseEventSecondHalf = "\", true, false, window, 0, 0, 0, 0, 0, false, false, false, false, 0, null);";
-
-	String javaScript = createMouseEvent + mouseEventFirstHalf + "mousemove" + mouseEventSecondHalf
-		+ dispatchMouseEvent;
-	((JavascriptExecutor) driver).executeScript(javaScript, driver.findElement(elementLocator));
-
-	javaScript = createMouseEvent + mouseEventFirstHalf + "mouseenter" + mouseEventSecondHalf + dispatchMouseEvent;
-	((JavascriptExecutor) driver).executeScript(javaScript, driver.findElement(elementLocator));
-
-	javaScript = createMouseEvent + mouseEventFirstHalf + "mouseover" + mouseEventSecondHalf + dispatchMouseEvent;
-	((JavascriptExecutor) driver).executeScript(javaScript, driver.findElement(elementLocator));
+    /**
+     * Dispatches the pointer events of hovering over the target element using a
+     * single script, then moves the mouse over it once natively.
+     */
+    private static void performHover(ElementHandle element) {
+	element.executeScript(getHoverScript());
+	element.run(targetElement -> (new Actions(element.getDriver())).moveToElement(targetElement).perform());
+    }
 
-	(new Actions(driver)).moveToElement(driver.findElement(elementLocator)).perform();
+    private static String getHoverScript() {
+	if (hoverScript == null) {
+	    try {
+		hoverScript = new String(Files.readAllBytes(Paths.get("src/main/resources/scripts/hover.js")));
+	    } catch (IOException e) {
+		ReportManager.log(e);
+		// the native mouse move is still performed
+		return "";
+	    }
+	}
+	return hoverScript;
     }
 
     /////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
@@ -516,6 +597,25 @@ public class ElementActions {
 	return getMatchingElementsCount(driver, elementLocator, numberOfAttempts, waitForLazyLoading);
     }
 
+    /**
+     * Returns the number of elements that match a certain elementLocator, when
+     * these elements are expected not to exist. Unlike
+     * {@link #getElementsCount(WebDriver, By, int)}, this doesn't wait for the
+     * elements to appear, and returns as soon as the page is idle and no elements
+     * match the elementLocator.
+     * 
+     * @param driver           the current instance of Selenium webdriver
+     * @param elementLocator   the locator of the webElement under test (By xpath,
+     *                         id, selector, name ...etc)
+     * @param numberOfAttempts the number of retries to wait for the elements to
+     *                         disappear before returning a count
+     * @return integer value that represents the number of elements that match the
+     *         desired elementLocator
+     */
+    public static int getElementsCountExpectingAbsence(WebDriver driver, By elementLocator, int numberOfAttempts) {
+	return getMatchingElementsCountExpectingAbsence(driver, elementLocator, numberOfAttempts);
+    }
+
     /**
      * Switches focus to a certain iFrame, is mainly used in coordination with
      * {@link #switchToDefaultContent(WebDriver)} to navigate inside any iFrame
@@ -526,8 +626,10 @@ public class ElementActions {
      *                       xpath, id, selector, name ...etc)
      */
     public static void switchToIframe(WebDriver driver, By elementLocator) {
-	if (getMatchingElementsCount(driver, elementLocator, attemptsBeforeThrowingElementNotFoundException) == 1) {
-	    driver.switchTo().frame((WebElement) driver.findElement(elementLocator));
+	ElementHandle element = locateMatchingElements(driver, elementLocator,
+		attemptsBeforeThrowingElementNotFoundException, true, false);
+	if (element.getMatchingElementsCount() == 1) {
+	    element.run(targetElement -> driver.switchTo().frame(targetElement));
 	    // note to self: remove elementLocator in case of bug in screenshot manager
 	    Boolean discreetLoggingState = ReportManager.isDiscreteLogging();
 	    ReportManager.setDiscreteLogging(true);
@@ -558,12 +660,13 @@ public class ElementActions {
     }
 
     public static void switchToDefaultContent() {
-	if (BrowserFactory.getActiveDriverSessions() > 0 && (lastUsedDriver != null)) {
+	WebDriver driver = lastUsedDriver.get();
+	if (BrowserFactory.getActiveDriverSessions() > 0 && (driver != null)) {
 	    try {
-		lastUsedDriver.switchTo().defaultContent();
+		driver.switchTo().defaultContent();
 		Boolean discreetLoggingState = ReportManager.isDiscreteLogging();
 		ReportManager.setDiscreteLogging(true);
-		passAction(lastUsedDriver, "switchToDefaultContent");
+		passAction(driver, "switchToDefaultContent");
 		ReportManager.setDiscreteLogging(discreetLoggingState);
 	    } catch (Exception e) {
 		ReportManager.log(e);
@@ -583,11 +686,12 @@ public class ElementActions {
      */
     public static void click(WebDriver driver, By elementLocator) {
 	// Waits for the element to be clickable, and then clicks it.
-	if (identifyUniqueElement(driver, elementLocator)) {
+	ElementHandle element = identifyUniqueElement(driver, elementLocator);
+	if (element != null) {
 	    // adding hover before clicking an element to enable styles to show in the
 	    // execution screenshots and to solve issues clicking on certain elements.
 	    try {
-		performHover(driver, elementLocator);
+		performHover(element);
 	    } catch (Exception e) {
 		if (!(e.getMessage().contains("Unable to locate element")
 			|| e.getMessage().contains("no such element"))) {
@@ -600,19 +704,19 @@ public class ElementActions {
 	    // takes screenshot before clicking the element out of view
 
 	    try {
-		// wait for element to be clickable
-		(new WebDriverWait(driver, defaultElementIdentificationTimeout))
-			.until(ExpectedConditions.elementToBeClickable(elementLocator));
+		// wait for element to be clickable, unless the probe already confirmed it
+		if (!(element.getProbe().isDisplayed() && element.getProbe().isEnabled())) {
+		    element.waitUntilClickable(defaultElementIdentificationTimeout);
+		}
 	    } catch (TimeoutException e) {
 		ReportManager.log(e);
 	    }
 
 	    try {
-		driver.findElement(elementLocator).click();
+		element.run(WebElement::click);
 	    } catch (Exception e) {
 		try {
-		    ((JavascriptExecutor) driver).executeScript("arguments[arguments.length - 1].click();",
-			    driver.findElement(elementLocator));
+		    element.executeScript("arguments[arguments.length - 1].click();");
 		} catch (Exception e2) {
 		    ReportManager.log(e);
 		    ReportManager.log(e2);
@@ -626,7 +730,7 @@ public class ElementActions {
 
 	    // removed to enhance performance, and replaced with a process to assert after
 	    // every navigation
-	    passAction(driver, elementLocator, "click");
+	    passAction(element, "click");
 	} else {
 	    failAction(driver, "click");
 	}
@@ -640,11 +744,12 @@ public class ElementActions {
      *                       selector, name ...etc)
      */
     public static void clickAndHold(WebDriver driver, By elementLocator) {
-	if (identifyUniqueElement(driver, elementLocator)) {
-	    (new WebDriverWait(driver, 30)).until(ExpectedConditions.elementToBeClickable(elementLocator));
+	ElementHandle element = identifyUniqueElement(driver, elementLocator);
+	if (element != null) {
+	    element.waitUntilClickable(30);
 	    // wait for element to be clickable
-	    passAction(driver, elementLocator, "clickAndHold");
-	    (new Actions(driver)).clickAndHold(driver.findElement(elementLocator)).build().perform();
+	    passAction(element, "clickAndHold");
+	    element.run(targetElement -> (new Actions(driver)).clickAndHold(targetElement).build().perform());
 
 	    // takes screenshot before holding the element
 	} else
@@ -693,25 +798,23 @@ public class ElementActions {
      * @param absoluteFilePath the full path to the file that needs to be uploaded
      */
     public static void typeFileLocationForUpload(WebDriver driver, By elementLocator, String absoluteFilePath) {
-	absoluteFilePath = absoluteFilePath.replace("/", FileSystems.getDefault().getSeparator());
-	if (identifyUniqueElement(driver, elementLocator)) {
-	    passAction(driver, elementLocator, "typeFileLocationForUpload", absoluteFilePath);
+	String filePath = absoluteFilePath.replace("/", FileSystems.getDefault().getSeparator());
+	ElementHandle element = identifyUniqueElement(driver, elementLocator);
+	if (element != null) {
+	    passAction(element, "typeFileLocationForUpload", filePath);
 	    try {
-		driver.findElement(elementLocator).sendKeys(absoluteFilePath);
+		element.run(targetElement -> targetElement.sendKeys(filePath));
 	    } catch (ElementNotInteractableException e) {
-		((JavascriptExecutor) driver).executeScript(
-			"arguments[0].setAttribute('style', 'display:block !important;');",
-			driver.findElement(elementLocator));
+		element.executeScript("arguments[0].setAttribute('style', 'display:block !important;');");
 		try {
-		    driver.findElement(elementLocator).sendKeys(absoluteFilePath);
+		    element.run(targetElement -> targetElement.sendKeys(filePath));
 		} catch (WebDriverException e2) {
 		    ReportManager.log(e2);
 		    // happened for the first time on MacOSX due to incorrect file path separator
-		    failAction(driver, "typeFileLocationForUpload", absoluteFilePath);
+		    failAction(driver, "typeFileLocationForUpload", filePath);
 		}
 		try {
-		    ((JavascriptExecutor) driver).executeScript("arguments[0].setAttribute('style', 'display:none');",
-			    driver.findElement(elementLocator));
+		    element.executeScript("arguments[0].setAttribute('style', 'display:none');");
 		} catch (NoSuchElementException | StaleElementReferenceException e2) {
 		    // this exception is sometimes thrown on firefox after the upload has been
 		    // successful, since we don't have to return the style to what it was, then it's
@@ -719,7 +822,7 @@ public class ElementActions {
 		}
 	    }
 	} else {
-	    failAction(driver, "typeFileLocationForUpload", absoluteFilePath);
+	    failAction(driver, "typeFileLocationForUpload", filePath);
 	}
     }
 
@@ -734,9 +837,10 @@ public class ElementActions {
      *                       target webElement
      */
     public static void typeAppend(WebDriver driver, By elementLocator, String text) {
-	if (identifyUniqueElement(driver, elementLocator) && (text != null)) {
-	    driver.findElement(elementLocator).sendKeys(text);
-	    passAction(driver, elementLocator, "type", text);
+	ElementHandle element = identifyUniqueElement(driver, elementLocator);
+	if ((element != null) && (text != null)) {
+	    element.run(targetElement -> targetElement.sendKeys(text));
+	    passAction(element, "type", text);
 	} else {
 	    failAction(driver, "type", text);
 	}
@@ -752,15 +856,16 @@ public class ElementActions {
      *                       target dropDown menu
      */
     public static void select(WebDriver driver, By elementLocator, String text) {
-	if (identifyUniqueElement(driver, elementLocator)) {
+	ElementHandle element = identifyUniqueElement(driver, elementLocator);
+	if (element != null) {
 	    try {
-		(new Select(driver.findElement(elementLocator))).selectByVisibleText(text);
+		element.run(targetElement -> (new Select(targetElement)).selectByVisibleText(text));
 	    } catch (NoSuchElementException e) {
 		ReportManager.log(e);
 		ReportManager.log("Value not found in the dropdown menu.");
 		failAction(driver, "select", text);
 	    }
-	    passAction(driver, elementLocator, "select", text);
+	    passAction(element, "select", text);
 	} else {
 	    failAction(driver, "select", text);
 	}
@@ -776,16 +881,17 @@ public class ElementActions {
      * @param key            the key that should be pressed
      */
     public static void keyPress(WebDriver driver, By elementLocator, String key) {
-	if (identifyUniqueElement(driver, elementLocator)) {
+	ElementHandle element = identifyUniqueElement(driver, elementLocator);
+	if (element != null) {
 	    switch (key.toLowerCase().trim()) {
 	    case "enter":
-		driver.findElement(elementLocator).sendKeys(Keys.ENTER);
+		element.run(targetElement -> targetElement.sendKeys(Keys.ENTER));
 		break;
 	    case "return":
-		driver.findElement(elementLocator).sendKeys(Keys.RETURN);
+		element.run(targetElement -> targetElement.sendKeys(Keys.RETURN));
 		break;
 	    case "tab":
-		driver.findElement(elementLocator).sendKeys(Keys.TAB);
+		element.run(targetElement -> targetElement.sendKeys(Keys.TAB));
 		break;
 	    default:
 		ReportManager.log("Unsupported Key.");
@@ -807,8 +913,9 @@ public class ElementActions {
      * @param key            the key that should be pressed
      */
     public static void keyPress(WebDriver driver, By elementLocator, Keys key) {
-	if (identifyUniqueElement(driver, elementLocator)) {
-	    driver.findElement(elementLocator).sendKeys(key);
+	ElementHandle element = identifyUniqueElement(driver, elementLocator);
+	if (element != null) {
+	    element.run(targetElement -> targetElement.sendKeys(key));
 	} else {
 	    failAction(driver, "keyPress", key.name());
 	}
@@ -825,14 +932,15 @@ public class ElementActions {
      *                       selector, name ...etc)
      */
     public static void hover(WebDriver driver, By elementLocator) {
-	if (identifyUniqueElement(driver, elementLocator)) {
+	ElementHandle element = identifyUniqueElement(driver, elementLocator);
+	if (element != null) {
 	    try {
-		performHover(driver, elementLocator);
+		performHover(element);
 	    } catch (Exception e) {
 		ReportManager.log(e);
 		failAction(driver, "hover", "Unhandled Exception: " + e.getMessage());
 	    }
-	    passAction(driver, elementLocator, "hover");
+	    passAction(element, "hover");
 	} else {
 	    failAction(driver, "hover");
 	}
@@ -851,14 +959,36 @@ public class ElementActions {
      *                                xpath, id, selector, name ...etc)
      */
     public static void hoverAndClick(WebDriver driver, List<By> hoverElementLocators, By clickableElementLocator) {
-	Actions chainedHoverAndClickAction = new Actions(driver);
-	if (identifyUniqueElement(driver, hoverElementLocators.get(0))) {
-	    hoverElementLocators.forEach(hoverElementLocator -> chainedHoverAndClickAction
-		    .moveToElement(driver.findElement(hoverElementLocator)));
+	ElementHandle firstHoverElement = identifyUniqueElement(driver, hoverElementLocators.get(0));
+	if (firstHoverElement != null) {
+	    // the remaining hover elements and the clickable element are all located by a
+	    // single probe
+	    List<By> otherElementLocators = new ArrayList<>(
+		    hoverElementLocators.subList(1, hoverElementLocators.size()));
+	    otherElementLocators.add(clickableElementLocator);
+	    List<ElementProbe> probes = ElementProbe.probeAll(driver, otherElementLocators);
+
+	    List<WebElement> hoverElements = new ArrayList<>();
+	    hoverElements.add(firstHoverElement.get());
+	    for (int i = 0; i < probes.size(); i++) {
+		if (probes.get(i).getMatchingElementsCount() == 0) {
+		    ReportManager
+			    .log("No elements found matching this locator \"" + otherElementLocators.get(i) + "\".");
+		    failAction(driver, "hoverAndClick");
+		    return;
+		}
+		hoverElements.add(probes.get(i).getElement());
+	    }
+	    WebElement clickableElement = hoverElements.remove(hoverElements.size() - 1);
+
+	    // one script dispatches the hover events over all the elements in sequence,
+	    // then a single native action chain hovers over them and clicks
 	    try {
-		chainedHoverAndClickAction.moveToElement(driver.findElement(clickableElementLocator))
-			.click(driver.findElement(clickableElementLocator)).perform();
-	    } catch (NoSuchElementException e) {
+		((JavascriptExecutor) driver).executeScript(getHoverScript(), hoverElements);
+		Actions chainedHoverAndClickAction = new Actions(driver);
+		hoverElements.forEach(chainedHoverAndClickAction::moveToElement);
+		chainedHoverAndClickAction.moveToElement(clickableElement).click(clickableElement).perform();
+	    } catch (WebDriverException e) {
 		ReportManager.log(e);
 		failAction(driver, "hoverAndClick");
 	    }
@@ -896,22 +1026,23 @@ public class ElementActions {
      *                                  ...etc)
      */
     public static void dragAndDrop(WebDriver driver, By sourceElementLocator, By destinationElementLocator) {
-	if (identifyUniqueElement(driver, sourceElementLocator) && getMatchingElementsCount(driver,
-		destinationElementLocator, attemptsBeforeThrowingElementNotFoundException) == 1) {
+	ElementHandle sourceElement = identifyUniqueElement(driver, sourceElementLocator);
+	ElementHandle destinationElement = null;
+	if (sourceElement != null) {
+	    destinationElement = locateMatchingElements(driver, destinationElementLocator,
+		    attemptsBeforeThrowingElementNotFoundException, true, false);
+	}
+	if (destinationElement != null && destinationElement.getMatchingElementsCount() == 1) {
 
 	    // replaced canFindUniqueElementForInternalUse, with countFoundElements for
 	    // destinationElement to bypass the check for element visibility
 
-	    // define source and destination elements
-	    WebElement sourceElement = driver.findElement(sourceElementLocator);
-	    WebElement destinationElement = driver.findElement(destinationElementLocator);
-
 	    // get source element start location
-	    String startLocation = sourceElement.getLocation().toString();
+	    String startLocation = sourceElement.perform(WebElement::getLocation).toString();
 
 	    // attempt to perform drag and drop
 	    try {
-		driver.manage().timeouts().setScriptTimeout(10, TimeUnit.SECONDS);
+		JSWaiter.setScriptTimeout(driver, 10);
 		JavascriptExecutor js = (JavascriptExecutor) driver;
 
 		String jQueryLoader = new String(
@@ -923,31 +1054,30 @@ public class ElementActions {
 
 		dragAndDropHelper = dragAndDropHelper + "$(arguments[0]).simulateDragDrop({dropTarget:arguments[1]});";
 
-		((JavascriptExecutor) driver).executeScript(dragAndDropHelper, sourceElement, destinationElement);
+		destinationElement.executeScript(dragAndDropHelper, sourceElement.get());
 	    } catch (Exception e) {
 		ReportManager.log(e);
 		failAction(driver, "dragAndDrop");
 	    }
 
 	    // get source element end location
-	    String endLocation = driver.findElement(sourceElementLocator).getLocation().toString();
+	    String endLocation = sourceElement.perform(WebElement::getLocation).toString();
 
 	    if (!endLocation.equals(startLocation)) {
-		passAction(driver, sourceElementLocator, "dragAndDrop",
+		passAction(sourceElement, "dragAndDrop",
 			"Start point: " + startLocation + ", End point: " + endLocation);
 	    } else {
 		try {
-		    (new Actions(driver)).dragAndDrop(driver.findElement(sourceElementLocator),
-			    driver.findElement(destinationElementLocator)).build().perform();
-
+		    WebElement destination = destinationElement.get();
+		    sourceElement.run(source -> (new Actions(driver)).dragAndDrop(source, destination).build().perform());
 		} catch (Exception e) {
 		    ReportManager.log(e);
 		    failAction(driver, "dragAndDrop");
 		}
 		// get source element end location
-		endLocation = driver.findElement(sourceElementLocator).getLocation().toString();
+		endLocation = sourceElement.perform(WebElement::getLocation).toString();
 		if (!endLocation.equals(startLocation)) {
-		    passAction(driver, sourceElementLocator, "dragAndDrop",
+		    passAction(sourceElement, "dragAndDrop",
 			    "Start point: " + startLocation + ", End point: " + endLocation);
 		} else {
 		    failAction(driver, "dragAndDrop", "Start point = End point: " + endLocation);
@@ -971,23 +1101,23 @@ public class ElementActions {
      *                             be moved
      */
     public static void dragAndDropByOffset(WebDriver driver, By sourceElementLocator, int xOffset, int yOffset) {
-	if (identifyUniqueElement(driver, sourceElementLocator)) {
-	    WebElement sourceElement = driver.findElement(sourceElementLocator);
-	    String startLocation = sourceElement.getLocation().toString();
+	ElementHandle sourceElement = identifyUniqueElement(driver, sourceElementLocator);
+	if (sourceElement != null) {
+	    String startLocation = sourceElement.perform(WebElement::getLocation).toString();
 
 	    // attempt to perform drag and drop
 	    try {
-		(new Actions(driver)).dragAndDropBy(driver.findElement(sourceElementLocator), xOffset, yOffset).build()
-			.perform();
+		sourceElement.run(source -> (new Actions(driver)).dragAndDropBy(source, xOffset, yOffset).build()
+			.perform());
 	    } catch (Exception e) {
 		ReportManager.log(e);
 		failAction(driver, "dragAndDropByOffset");
 	    }
 
-	    String endLocation = driver.findElement(sourceElementLocator).getLocation().toString();
+	    String endLocation = sourceElement.perform(WebElement::getLocation).toString();
 
 	    if (!endLocation.equals(startLocation)) {
-		passAction(driver, sourceElementLocator, "dragAndDropByOffset",
+		passAction(sourceElement, "dragAndDropByOffset",
 			"Start point: " + startLocation + ", End point: " + endLocation);
 	    } else {
 		failAction(driver, "dragAndDropByOffset", "Start point = End point: " + endLocation);
@@ -1006,15 +1136,18 @@ public class ElementActions {
      * @return the text value of the target webElement
      */
     public static String getText(WebDriver driver, By elementLocator) {
-	if (identifyUniqueElement(driver, elementLocator)) {
-	    String elementText = driver.findElement(elementLocator).getText();
-	    if (elementText.trim().equals("")) {
-		elementText = driver.findElement(elementLocator).getAttribute("textContent");
-	    }
+	ElementHandle element = identifyUniqueElement(driver, elementLocator);
+	if (element != null) {
+	    // the visible text is read natively, as the WebDriver atom handles
+	    // whitespace, text-transform and hidden children differently from
+	    // innerText
+	    String elementText = element.perform(WebElement::getText);
 	    if (elementText.trim().equals("")) {
-		elementText = driver.findElement(elementLocator).getAttribute("value");
+		// read from the probe that was taken while identifying the element
+		ElementProbe probe = element.getProbe();
+		elementText = probe.getTextContent().trim().equals("") ? probe.getValue() : probe.getTextContent();
 	    }
-	    passAction(driver, elementLocator, "getText", elementText);
+	    passAction(element, "getText", elementText);
 	    return elementText;
 	} else {
 	    failAction(driver, "getText");
@@ -1031,9 +1164,10 @@ public class ElementActions {
      * @return the tag name of the webElement under test
      */
     public static String getTagName(WebDriver driver, By elementLocator) {
-	if (identifyUniqueElement(driver, elementLocator)) {
-	    String elementTagName = driver.findElement(elementLocator).getTagName();
-	    passAction(driver, elementLocator, "getTagName", elementTagName);
+	ElementHandle element = identifyUniqueElement(driver, elementLocator);
+	if (element != null) {
+	    String elementTagName = element.perform(WebElement::getTagName);
+	    passAction(element, "getTagName", elementTagName);
 	    return elementTagName;
 	} else {
 	    failAction(driver, "getTagName");
@@ -1051,9 +1185,10 @@ public class ElementActions {
      * @return the size of the webElement under test
      */
     public static String getSize(WebDriver driver, By elementLocator) {
-	if (identifyUniqueElement(driver, elementLocator)) {
-	    String elementSize = driver.findElement(elementLocator).getSize().toString();
-	    passAction(driver, elementLocator, "getSize", elementSize);
+	ElementHandle element = identifyUniqueElement(driver, elementLocator);
+	if (element != null) {
+	    String elementSize = element.perform(WebElement::getSize).toString();
+	    passAction(element, "getSize", elementSize);
 	    return elementSize;
 	} else {
 	    failAction(driver, "getSize");
@@ -1099,9 +1234,10 @@ public class ElementActions {
      * @return the value of the target attribute of the webElement under test
      */
     public static String getAttribute(WebDriver driver, By elementLocator, String attributeName) {
-	if (identifyUniqueElement(driver, elementLocator)) {
-	    String elementAttribute = driver.findElement(elementLocator).getAttribute(attributeName);
-	    passAction(driver, elementLocator, "getAttribute", elementAttribute);
+	ElementHandle element = identifyUniqueElement(driver, elementLocator);
+	if (element != null) {
+	    String elementAttribute = element.perform(targetElement -> targetElement.getAttribute(attributeName));
+	    passAction(element, "getAttribute", elementAttribute);
 	    return elementAttribute;
 	} else {
 	    failAction(driver, "getAttribute");
@@ -1126,9 +1262,10 @@ public class ElementActions {
      * @return the value of the target CSS property of the webElement under test
      */
     public static String getCSSProperty(WebDriver driver, By elementLocator, String propertyName) {
-	if (identifyUniqueElement(driver, elementLocator)) {
-	    String elementCssProperty = driver.findElement(elementLocator).getCssValue(propertyName);
-	    passAction(driver, elementLocator, "getCSSProperty", elementCssProperty);
+	ElementHandle element = identifyUniqueElement(driver, elementLocator);
+	if (element != null) {
+	    String elementCssProperty = element.perform(targetElement -> targetElement.getCssValue(propertyName));
+	    passAction(element, "getCSSProperty", elementCssProperty);
 	    return elementCssProperty;
 	} else {
 	    failAction(driver, "getCSSProperty");
@@ -1151,7 +1288,7 @@ public class ElementActions {
      */
     public static void waitForTextToChange(WebDriver driver, By elementLocator, String initialValue,
 	    int numberOfTries) {
-	if (identifyUniqueElement(driver, elementLocator)) {
+	if (identifyUniqueElement(driver, elementLocator) != null) {
 	    try {
 		(new WebDriverWait(driver, (long) defaultElementIdentificationTimeout * numberOfTries))
 			.until(ExpectedConditions.not(ExpectedConditions.textToBe(elementLocator, initialValue)));
@@ -1194,7 +1331,12 @@ public class ElementActions {
      */
     public static void waitForElementToBePresent(WebDriver driver, By elementLocator, int numberOfTries,
 	    boolean stateOfPresence) {
-	int foundElementsCount = getMatchingElementsCount(driver, elementLocator, numberOfTries);
+	int foundElementsCount;
+	if (stateOfPresence) {
+	    foundElementsCount = getMatchingElementsCount(driver, elementLocator, numberOfTries);
+	} else {
+	    foundElementsCount = getMatchingElementsCountExpectingAbsence(driver, elementLocator, numberOfTries);
+	}
 
 	if (foundElementsCount <= 1) {
 	    try {
@@ -1232,11 +1374,14 @@ public class ElementActions {
      *         element is not displayed
      */
     public static boolean isElementDisplayed(WebDriver driver, By elementLocator) {
-	if (identifyUniqueElement(driver, elementLocator, attemptsBeforeThrowingElementNotFoundException, false)) {
-	    (new WebDriverWait(driver, defaultElementIdentificationTimeout))
-		    .until(ExpectedConditions.visibilityOfElementLocated(elementLocator));
+	ElementHandle element = identifyUniqueElement(driver, elementLocator,
+		attemptsBeforeThrowingElementNotFoundException, false);
+	if (element != null) {
+	    if (!element.getProbe().isDisplayed()) {
+		element.waitUntilDisplayed(defaultElementIdentificationTimeout);
+	    }
 	    // wait for element to be visible
-	    passAction(driver, elementLocator, "isElementDisplayed");
+	    passAction(element, "isElementDisplayed");
 	    return true;
 	} else {
 	    failAction(driver, "isElementDisplayed");
@@ -1254,11 +1399,13 @@ public class ElementActions {
      *         element is not clickable
      */
     public static boolean isElementClickable(WebDriver driver, By elementLocator) {
-	if (identifyUniqueElement(driver, elementLocator)) {
-	    (new WebDriverWait(driver, defaultElementIdentificationTimeout))
-		    .until(ExpectedConditions.elementToBeClickable(elementLocator));
+	ElementHandle element = identifyUniqueElement(driver, elementLocator);
+	if (element != null) {
+	    if (!(element.getProbe().isDisplayed() && element.getProbe().isEnabled())) {
+		element.waitUntilClickable(defaultElementIdentificationTimeout);
+	    }
 	    // wait for element to be clickable
-	    passAction(driver, elementLocator, "isElementClickable");
+	    passAction(element, "isElementClickable");
 	    return true;
 	} else {
 	    failAction(driver, "isElementClickable");
@@ -1277,7 +1424,7 @@ public class ElementActions {
      *                       "select all", "unselect"
      */
     public static void clipboardActions(WebDriver driver, By elementLocator, String action) {
-	if (identifyUniqueElement(driver, elementLocator)) {
+	if (identifyUniqueElement(driver, elementLocator) != null) {
 	    if (!System.getProperty("targetOperatingSystem").equals("Mac-64")) {
 		performClipboardActionsForMac(driver, elementLocator, action);
 	    } else {
@@ -1299,8 +1446,10 @@ public class ElementActions {
      *                       element
      */
     public static void setValueUsingJavaScript(WebDriver driver, By elementLocator, String value) {
-	if (identifyUniqueElement(driver, elementLocator, attemptsBeforeThrowingElementNotFoundException, false)) {
-	    setValueUsingJavaScript(driver, elementLocator, value, false);
+	ElementHandle element = identifyUniqueElement(driver, elementLocator,
+		attemptsBeforeThrowingElementNotFoundException, false);
+	if (element != null) {
+	    setValueUsingJavaScript(element, value, false);
 	} else {
 	    failAction(driver, "setValueUsingJavaScript");
 	}
@@ -1314,11 +1463,12 @@ public class ElementActions {
      *                       selector, name ...etc)
      */
     public static void submitFormUsingJavaScript(WebDriver driver, By elementLocator) {
-	if (identifyUniqueElement(driver, elementLocator, attemptsBeforeThrowingElementNotFoundException, false)) {
+	ElementHandle element = identifyUniqueElement(driver, elementLocator,
+		attemptsBeforeThrowingElementNotFoundException, false);
+	if (element != null) {
 	    try {
-		((JavascriptExecutor) driver).executeScript("arguments[0].submit();",
-			driver.findElement(elementLocator));
-		passAction(driver, elementLocator, "submitFormUsingJavaScript");
+		element.executeScript("arguments[0].submit();");
+		passAction(element, "submitFormUsingJavaScript");
 	    } catch (Exception e) {
 		ReportManager.log(e);
 		failAction(driver, "submitFormUsingJavaScript");
@@ -1327,4 +1477,21 @@ public class ElementActions {
 	    failAction(driver, "submitFormUsingJavaScript");
 	}
     }
+
+    /**
+     * Starts a batch of element actions that are performed as a single step, for
+     * example to fill a form. All the target elements are located by a single
+     * script after a single wait for lazy loading, and the whole batch is reported
+     * as one action with one screenshot. If one of the actions fails, the failure
+     * report points to that action.
+     * 
+     * Example: ElementActions.batch(driver).type(userName, "user").typeSecure(password,
+     * "password").select(country, "Egypt").click(submit).execute();
+     * 
+     * @param driver the current instance of Selenium webdriver
+     * @return a new empty batch of element actions
+     */
+    public static ElementActionsBatch batch(WebDriver driver) {
+	return new ElementActionsBatch(driver);
+    }
 }
@@ -0,0 +1,299 @@
+package com.shaft.gui.element;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.openqa.selenium.By;
+import org.openqa.selenium.NoSuchElementException;
+import org.openqa.selenium.TimeoutException;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.support.ui.Select;
+
+import com.shaft.tools.io.ReportManager;
+
+/**
+ * A sequence of element actions that is performed as a single step. Use
+ * {@link ElementActions#batch(WebDriver)} to start a new batch, add the actions
+ * in the order in which they should be performed, and then call
+ * {@link #execute()}.
+ *
+ * Compared to calling the matching methods of {@link ElementActions} one by
+ * one, the batch waits for lazy loading once, locates all of its target
+ * elements using a single script, and reports the whole sequence as one action
+ * with one screenshot. Elements that only appear after one of the earlier
+ * actions was performed are located when their turn comes.
+ */
+public class ElementActionsBatch {
+    private enum ActionType {
+	TYPE, TYPE_SECURE, SELECT, CLICK
+    }
+
+    private static int defaultElementIdentificationTimeout = Integer
+	    .parseInt(System.getProperty("defaultElementIdentificationTimeout").trim());
+    private static int attemptsBeforeThrowingElementNotFoundException = Integer
+	    .parseInt(System.getProperty("attemptsBeforeThrowingElementNotFoundException").trim());
+    private static boolean forceCheckForElementVisibility = Boolean
+	    .parseBoolean(System.getProperty("forceCheckForElementVisibility").trim());
+
+    private final WebDriver driver;
+    private final List<BatchAction> actions = new ArrayList<>();
+
+    private static class BatchAction {
+	private final ActionType type;
+	private final By elementLocator;
+	private final String text;
+
+	private BatchAction(ActionType type, By elementLocator, String text) {
+	    this.type = type;
+	    this.elementLocator = elementLocator;
+	    this.text = text;
+	}
+
+	private String getName() {
+	    switch (type) {
+	    case TYPE:
+	    case TYPE_SECURE:
+		return "type";
+	    case SELECT:
+		return "select";
+	    case CLICK:
+	    default:
+		return "click";
+	    }
+	}
+
+	private String getTestData() {
+	    switch (type) {
+	    case TYPE:
+		return "\"" + text + "\" into " + elementLocator;
+	    case TYPE_SECURE:
+		return "\"" + text.replaceAll(".", "*") + "\" into " + elementLocator;
+	    case SELECT:
+		return "\"" + text + "\" from " + elementLocator;
+	    case CLICK:
+	    default:
+		return String.valueOf(elementLocator);
+	    }
+	}
+    }
+
+    ElementActionsBatch(WebDriver driver) {
+	this.driver = driver;
+    }
+
+    /**
+     * Adds a step that checks if there is any text in an element, clears it, then
+     * types the required string into the target element.
+     *
+     * @param elementLocator the locator of the webElement under test (By xpath, id,
+     *                       selector, name ...etc)
+     * @param text           the target text that needs to be typed into the target
+     *                       webElement
+     * @return this batch, to add more actions to it
+     */
+    public ElementActionsBatch type(By elementLocator, String text) {
+	actions.add(new BatchAction(ActionType.TYPE, elementLocator, text));
+	return this;
+    }
+
+    /**
+     * Adds a step that types the required string into the target element, and
+     * obfuscates the written text in the output report. This action should be used
+     * for writing passwords and secure text.
+     *
+     * @param elementLocator the locator of the webElement under test (By xpath, id,
+     *                       selector, name ...etc)
+     * @param text           the target text that needs to be typed into the target
+     *                       webElement
+     * @return this batch, to add more actions to it
+     */
+    public ElementActionsBatch typeSecure(By elementLocator, String text) {
+	actions.add(new BatchAction(ActionType.TYPE_SECURE, elementLocator, text));
+	return this;
+    }
+
+    /**
+     * Adds a step that selects an element from a dropdown list using its displayed
+     * text.
+     *
+     * @param elementLocator the locator of the webElement under test (By xpath, id,
+     *                       selector, name ...etc)
+     * @param text           the text of the choice that you need to select from the
+     *                       target dropDown menu
+     * @return this batch, to add more actions to it
+     */
+    public ElementActionsBatch select(By elementLocator, String text) {
+	actions.add(new BatchAction(ActionType.SELECT, elementLocator, text));
+	return this;
+    }
+
+    /**
+     * Adds a step that clicks on the target element, using selenium webdriver or
+     * using javascript.
+     *
+     * @param elementLocator the locator of the webElement under test (By xpath, id,
+     *                       selector, name ...etc)
+     * @return this batch, to add more actions to it
+     */
+    public ElementActionsBatch click(By elementLocator) {
+	actions.add(new BatchAction(ActionType.CLICK, elementLocator, null));
+	return this;
+    }
+
+    /**
+     * Performs all the actions in this batch in order, and reports them as a
+     * single action. Fails at the first action that could not be performed, and
+     * reports which action that was.
+     */
+    public void execute() {
+	if (actions.isEmpty()) {
+	    ReportManager.logDiscrete("Element Action [batch] has no actions to perform.");
+	    return;
+	}
+
+	JSWaiter.waitForLazyLoading(driver);
+	List<By> elementLocators = new ArrayList<>();
+	for (BatchAction action : actions) {
+	    elementLocators.add(action.elementLocator);
+	}
+	List<ElementProbe> probes = ElementProbe.probeAll(driver, elementLocators);
+
+	int issuedCommandsCount = 0;
+	StringBuilder testData = new StringBuilder();
+	for (int i = 0; i < actions.size(); i++) {
+	    BatchAction action = actions.get(i);
+	    ElementHandle element = new ElementHandle(driver, action.elementLocator, probes.get(i));
+	    String failureReason;
+	    try {
+		failureReason = perform(action, element);
+	    } catch (WebDriverException e) {
+		ReportManager.log(e);
+		failureReason = e.getClass().getSimpleName() + " was thrown.";
+	    }
+	    issuedCommandsCount += element.getIssuedCommandsCount();
+
+	    String actionDescription = "[" + (i + 1) + "/" + actions.size() + "] " + action.getName() + " "
+		    + action.getTestData();
+	    if (failureReason != null) {
+		ElementActions.failAction(driver, "batch",
+			"Failed at action " + actionDescription + ", " + failureReason);
+		return;
+	    }
+	    ReportManager.logDiscrete("Element Action [batch] performed action " + actionDescription + ".");
+	    if (testData.length() > 0) {
+		testData.append(", ");
+	    }
+	    testData.append(action.getName() + " " + action.getTestData());
+	}
+	ReportManager.logDiscrete("Element Action [batch] issued [" + issuedCommandsCount + "] WebDriver commands to"
+		+ " locate and interact with [" + actions.size() + "] target elements.");
+	ElementActions.passAction(driver, null, "batch", testData.toString());
+    }
+
+    /**
+     * @return the reason why the action failed, or null if it was performed
+     *         successfully
+     */
+    private String perform(BatchAction action, ElementHandle element) {
+	String failureReason = identifyUniqueElement(element);
+	if (failureReason != null) {
+	    return failureReason;
+	}
+	switch (action.type) {
+	case TYPE:
+	case TYPE_SECURE:
+	    return type(element, action.text);
+	case SELECT:
+	    return select(element, action.text);
+	case CLICK:
+	default:
+	    return click(element);
+	}
+    }
+
+    private String identifyUniqueElement(ElementHandle element) {
+	if (element.getMatchingElementsCount() == 0) {
+	    // the element may only appear after one of the earlier actions
+	    element.locate(PollingStrategy.forElementIdentification(attemptsBeforeThrowingElementNotFoundException),
+		    true);
+	}
+	switch (element.getMatchingElementsCount()) {
+	case 0:
+	    return "zero elements found matching this locator \"" + element.getLocator() + "\".";
+	case 1:
+	    if (forceCheckForElementVisibility && !element.getProbe().isDisplayed()) {
+		try {
+		    element.waitUntilDisplayed(defaultElementIdentificationTimeout);
+		} catch (TimeoutException e) {
+		    ReportManager.log(e);
+		    return "unique element matching this locator \"" + element.getLocator() + "\" is not visible.";
+		}
+	    }
+	    return null;
+	default:
+	    return "multiple elements found matching this locator \"" + element.getLocator() + "\".";
+	}
+    }
+
+    private String type(ElementHandle element, String text) {
+	String successfulTextLocationStrategy = ElementActions
+		.determineSuccessfulTextLocationStrategy(element.getProbe());
+	String elementText = element.getProbe().getText(successfulTextLocationStrategy);
+	if (elementText != null && !elementText.trim().equals("")) {
+	    ElementActions.clearBeforeTyping(element, successfulTextLocationStrategy);
+	}
+	if (text.equals("")) {
+	    return null;
+	}
+	ElementActions.performType(element, text);
+	if (text.equals(
+		ElementActions.readTextBasedOnSuccessfulLocationStrategy(element, successfulTextLocationStrategy))) {
+	    return null;
+	}
+	// attempt once to type using javascript then confirm typing was successful
+	// again
+	ElementActions.clearBeforeTyping(element, successfulTextLocationStrategy);
+	ElementActions.setValueUsingJavaScript(element, text, true);
+	if (text.equals(
+		ElementActions.readTextBasedOnSuccessfulLocationStrategy(element, successfulTextLocationStrategy))) {
+	    return null;
+	}
+	return "the typed text could not be confirmed.";
+    }
+
+    private String select(ElementHandle element, String text) {
+	try {
+	    element.run(targetElement -> (new Select(targetElement)).selectByVisibleText(text));
+	    return null;
+	} catch (NoSuchElementException e) {
+	    ReportManager.log(e);
+	    return "value not found in the dropdown menu.";
+	}
+    }
+
+    private String click(ElementHandle element) {
+	try {
+	    // wait for element to be clickable, unless the probe already confirmed it
+	    if (!(element.getProbe().isDisplayed() && element.getProbe().isEnabled())) {
+		element.waitUntilClickable(defaultElementIdentificationTimeout);
+	    }
+	} catch (TimeoutException e) {
+	    ReportManager.log(e);
+	}
+
+	try {
+	    element.run(WebElement::click);
+	} catch (Exception e) {
+	    try {
+		element.executeScript("arguments[arguments.length - 1].click();");
+	    } catch (Exception e2) {
+		ReportManager.log(e);
+		ReportManager.log(e2);
+		return "the element could not be clicked.";
+	    }
+	}
+	return null;
+    }
+}
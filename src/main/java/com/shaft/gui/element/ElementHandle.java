@@ -0,0 +1,276 @@
+package com.shaft.gui.element;
+
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+import org.openqa.selenium.By;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.NoSuchElementException;
+import org.openqa.selenium.StaleElementReferenceException;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.support.ui.WebDriverWait;
+
+import com.shaft.tools.io.TimingManager;
+import com.shaft.tools.io.TimingManager.Phase;
+
+/**
+ * A resolved reference to the webElement(s) matching a certain locator. The
+ * element is located once and then reused by every step of an element action,
+ * and it is only located again if the browser reports that the cached
+ * reference went stale.
+ *
+ * The element is located by a single in-browser probe that also captures its
+ * state, see {@link ElementProbe}, so that the calling action can decide on its
+ * next steps without issuing further commands.
+ *
+ * The handle also counts the WebDriver commands that were issued through it so
+ * that each element action can report its own cost.
+ */
+class ElementHandle {
+    private static final int ATTEMPTS_BEFORE_GIVING_UP_ON_STALE_ELEMENT = 3;
+    // scripts may change the state of an element without mutating the DOM, for
+    // example by setting its value, so any cached lookups are invalidated first
+    private static final String INVALIDATE_PAGE_STATE = "if (window.__shaftReadinessAgent) {"
+	    + " window.__shaftReadinessAgent.epoch++; }";
+
+    private final WebDriver driver;
+    private final By elementLocator;
+    private WebElement element = null;
+    private ElementProbe lastProbe = null;
+    private int matchingElementsCount = 0;
+    private int issuedCommandsCount = 0;
+
+    ElementHandle(WebDriver driver, By elementLocator) {
+	this.driver = driver;
+	this.elementLocator = elementLocator;
+    }
+
+    /**
+     * Creates a handle to the element(s) found by a probe that was already taken,
+     * for example while probing several locators at once.
+     *
+     * @param driver         the current instance of Selenium webdriver
+     * @param elementLocator the locator that was probed
+     * @param probe          the probe result for that locator
+     */
+    ElementHandle(WebDriver driver, By elementLocator, ElementProbe probe) {
+	this(driver, elementLocator);
+	lastProbe = probe;
+	matchingElementsCount = probe.getMatchingElementsCount();
+	element = probe.getElement();
+	countCommands(probe.getIssuedCommandsCount());
+    }
+
+    /**
+     * Waits for at least one element matching the locator to be present, and
+     * caches the first matching element together with the probe that found it.
+     *
+     * @param pollingStrategy decides how often, and for how long, the locator is
+     *                        probed
+     * @param scrollIntoView  true if a unique match should be scrolled into the
+     *                        viewport as part of the same probe
+     * @return the number of elements matching the locator, zero if no elements
+     *         were found before the deadline
+     */
+    int locate(PollingStrategy pollingStrategy, boolean scrollIntoView) {
+	lastProbe = pollingStrategy.poll(() -> probeLocator(scrollIntoView),
+		probe -> probe.getMatchingElementsCount() > 0);
+	matchingElementsCount = lastProbe.getMatchingElementsCount();
+	element = lastProbe.getElement();
+	return matchingElementsCount;
+    }
+
+    /**
+     * Waits for no elements matching the locator to be present. This returns as
+     * soon as the locator stops matching, so an element that is already absent
+     * once the page has settled doesn't wait out the presence timeout.
+     *
+     * @param pollingStrategy decides how often, and for how long, the locator is
+     *                        probed
+     * @return the number of elements matching the locator, zero if the element
+     *         is absent
+     */
+    int locateExpectingAbsence(PollingStrategy pollingStrategy) {
+	lastProbe = pollingStrategy.poll(() -> probeLocator(false), probe -> probe.getMatchingElementsCount() == 0);
+	matchingElementsCount = lastProbe.getMatchingElementsCount();
+	element = lastProbe.getElement();
+	return matchingElementsCount;
+    }
+
+    private ElementProbe probeLocator(boolean scrollIntoView) {
+	ElementProbe probe = ElementProbe.probe(driver, elementLocator, scrollIntoView);
+	countCommands(probe.getIssuedCommandsCount());
+	return probe;
+    }
+
+    /**
+     * @return the cached webElement, locating it first in case it was never
+     *         resolved or if it went stale
+     */
+    WebElement get() {
+	if (element == null) {
+	    refresh();
+	}
+	return element;
+    }
+
+    /**
+     * Locates the element again and replaces the cached reference.
+     *
+     * @return the newly resolved webElement
+     */
+    WebElement refresh() {
+	lastProbe = ElementProbe.probe(driver, elementLocator, false);
+	countCommands(lastProbe.getIssuedCommandsCount());
+	matchingElementsCount = lastProbe.getMatchingElementsCount();
+	if (matchingElementsCount == 0 || lastProbe.getElement() == null) {
+	    throw new NoSuchElementException("Unable to locate element: " + elementLocator);
+	}
+	element = lastProbe.getElement();
+	return element;
+    }
+
+    /**
+     * Probes the cached webElement again, to read its current state in a single
+     * command.
+     *
+     * @return the new probe result
+     */
+    ElementProbe probe() {
+	lastProbe = retryIfStale(targetElement -> {
+	    countCommands(1);
+	    return ElementProbe.probe(driver, targetElement);
+	});
+	return lastProbe;
+    }
+
+    /**
+     * @return the result of the last probe that was performed through this handle,
+     *         or null if the element was never probed
+     */
+    ElementProbe getProbe() {
+	return lastProbe;
+    }
+
+    /**
+     * Performs a single WebDriver command against the cached webElement, and
+     * retries it against a freshly resolved webElement in case the cached one went
+     * stale.
+     *
+     * @param command the command that should be performed
+     * @return the value returned by the command
+     */
+    <T> T perform(Function<WebElement, T> command) {
+	long startTime = TimingManager.start();
+	try {
+	    return retryIfStale(targetElement -> {
+		countCommands(1);
+		return command.apply(targetElement);
+	    });
+	} finally {
+	    TimingManager.record(Phase.ACT, startTime);
+	}
+    }
+
+    /**
+     * Performs a single WebDriver command that doesn't return a value against the
+     * cached webElement.
+     *
+     * @param command the command that should be performed
+     */
+    void run(Consumer<WebElement> command) {
+	perform(targetElement -> {
+	    command.accept(targetElement);
+	    return null;
+	});
+    }
+
+    /**
+     * Executes a javascript snippet where the cached webElement is passed as the
+     * last argument. This also starts a new page state, see
+     * {@link ElementLocatorCache}.
+     *
+     * @param javaScript the script that should be executed
+     * @param arguments  any other arguments that the script needs
+     * @return the value returned by the script
+     */
+    Object executeScript(String javaScript, Object... arguments) {
+	return perform(targetElement -> {
+	    Object[] scriptArguments = new Object[arguments.length + 1];
+	    System.arraycopy(arguments, 0, scriptArguments, 0, arguments.length);
+	    scriptArguments[arguments.length] = targetElement;
+	    return ((JavascriptExecutor) driver).executeScript(INVALIDATE_PAGE_STATE + javaScript, scriptArguments);
+	});
+    }
+
+    /**
+     * Waits for the cached webElement to be displayed.
+     *
+     * @param timeout the timeout in seconds
+     */
+    void waitUntilDisplayed(int timeout) {
+	waitUntil(WebElement::isDisplayed, 1, timeout);
+    }
+
+    /**
+     * Waits for the cached webElement to be displayed and enabled.
+     *
+     * @param timeout the timeout in seconds
+     */
+    void waitUntilClickable(int timeout) {
+	waitUntil(targetElement -> targetElement.isDisplayed() && targetElement.isEnabled(), 2, timeout);
+    }
+
+    private void waitUntil(Predicate<WebElement> condition, int commandsPerPoll, int timeout) {
+	long startTime = TimingManager.start();
+	try {
+	    retryIfStale(targetElement -> (new WebDriverWait(driver, timeout)).until(nestedDriver -> {
+		countCommands(commandsPerPoll);
+		return condition.test(targetElement);
+	    }));
+	} finally {
+	    TimingManager.record(Phase.WAIT, startTime);
+	}
+    }
+
+    private <T> T retryIfStale(Function<WebElement, T> command) {
+	StaleElementReferenceException lastException = null;
+	for (int i = 0; i < ATTEMPTS_BEFORE_GIVING_UP_ON_STALE_ELEMENT; i++) {
+	    try {
+		return command.apply(get());
+	    } catch (StaleElementReferenceException e) {
+		lastException = e;
+		element = null;
+	    }
+	}
+	throw lastException;
+    }
+
+    /**
+     * Used to account for commands that reference this element but are issued
+     * outside of the handle, like Actions chains.
+     *
+     * @param numberOfCommands the number of commands that were issued
+     */
+    void countCommands(int numberOfCommands) {
+	issuedCommandsCount += numberOfCommands;
+    }
+
+    By getLocator() {
+	return elementLocator;
+    }
+
+    WebDriver getDriver() {
+	return driver;
+    }
+
+    int getMatchingElementsCount() {
+	return matchingElementsCount;
+    }
+
+    int getIssuedCommandsCount() {
+	return issuedCommandsCount;
+    }
+}
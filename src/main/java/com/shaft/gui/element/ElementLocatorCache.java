@@ -0,0 +1,100 @@
+package com.shaft.gui.element;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import org.openqa.selenium.By;
+import org.openqa.selenium.WebDriver;
+
+/**
+ * Remembers the probes of the locators that were used on the page that is
+ * currently open in a certain browser, for as long as that page doesn't change.
+ *
+ * Every probe is stored together with the page state that was reported by the
+ * readiness agent right before it was taken; the document id and its DOM
+ * mutation epoch, see {@link JSWaiter#getLastPageState()}. Any DOM mutation,
+ * user input, or navigation changes the page state, and the first lookup in a
+ * new page state discards all the probes that were stored before it.
+ */
+class ElementLocatorCache {
+    private static Map<WebDriver, ElementLocatorCache> caches = Collections.synchronizedMap(new WeakHashMap<>());
+
+    private String pageState = null;
+    private final Map<String, CachedProbe> probes = new HashMap<>();
+
+    private static class CachedProbe {
+	private final ElementProbe probe;
+	private final boolean scrolledIntoView;
+
+	private CachedProbe(ElementProbe probe, boolean scrolledIntoView) {
+	    this.probe = probe;
+	    this.scrolledIntoView = scrolledIntoView;
+	}
+    }
+
+    private ElementLocatorCache() {
+    }
+
+    /**
+     * @param driver the current instance of Selenium webdriver
+     * @return the cache of the browser controlled by this driver
+     */
+    static ElementLocatorCache forDriver(WebDriver driver) {
+	return caches.computeIfAbsent(driver, key -> new ElementLocatorCache());
+    }
+
+    /**
+     * Looks up the probe of a certain locator that was taken in the same page
+     * state.
+     *
+     * @param pageState      the current page state, or null if it is unknown
+     * @param elementLocator the locator of the webElement under test
+     * @param scrollIntoView true if the element should have been scrolled into the
+     *                       viewport by the probe
+     * @return a copy of the cached probe that doesn't count any issued commands,
+     *         or null if there is no valid cached probe
+     */
+    synchronized ElementProbe get(String pageState, By elementLocator, boolean scrollIntoView) {
+	if (!isValidFor(pageState)) {
+	    return null;
+	}
+	CachedProbe cachedProbe = probes.get(elementLocator.toString());
+	if (cachedProbe == null || (scrollIntoView && !cachedProbe.scrolledIntoView)) {
+	    return null;
+	}
+	return cachedProbe.probe.fromCache();
+    }
+
+    /**
+     * Stores the probe of a certain locator that was taken in the given page
+     * state.
+     *
+     * @param pageState      the page state that the probe was taken in, nothing
+     *                       is stored if it is unknown
+     * @param elementLocator the locator of the webElement under test
+     * @param scrollIntoView true if the probe scrolled the element into the
+     *                       viewport
+     * @param probe          the probe result
+     */
+    synchronized void put(String pageState, By elementLocator, boolean scrollIntoView, ElementProbe probe) {
+	if (pageState == null || probe == null) {
+	    return;
+	}
+	if (!isValidFor(pageState)) {
+	    this.pageState = pageState;
+	}
+	probes.put(elementLocator.toString(), new CachedProbe(probe, scrollIntoView));
+    }
+
+    private boolean isValidFor(String pageState) {
+	if (pageState == null || !pageState.equals(this.pageState)) {
+	    // the page changed, so none of the stored probes can be trusted anymore
+	    probes.clear();
+	    this.pageState = null;
+	    return false;
+	}
+	return true;
+    }
+}
@@ -0,0 +1,371 @@
+package com.shaft.gui.element;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.openqa.selenium.By;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+
+import com.shaft.tools.io.TimingManager;
+import com.shaft.tools.io.TimingManager.Phase;
+
+/**
+ * A snapshot of the state of the element(s) matching a certain locator, taken
+ * by a single in-browser script. One round trip returns the number of matching
+ * elements and, if the match is unique, the element itself, whether it is
+ * displayed and enabled, its bounding rectangle after it was scrolled into view,
+ * and its text, textContent and value.
+ *
+ * The text is read from innerText, which doesn't follow the WebDriver rules for
+ * whitespace, text-transform and hidden children, so it is only used to tell
+ * whether the element has any visible text; the text itself is read through
+ * {@link WebElement#getText()}.
+ *
+ * Locators that cannot be translated into a javascript query (like linkText)
+ * are resolved natively first, and the resulting elements are then passed to
+ * the same script. Several locators can also be probed together in a single
+ * round trip.
+ */
+class ElementProbe implements Cloneable {
+    private static final String PROBE_FUNCTION = "function(strategy, selector, scrollIntoView, resolvedElements) {"
+	    + "var elements = [];"
+	    + "if (strategy === 'elements') { elements = resolvedElements; }"
+	    + "else if (strategy === 'xpath') {"
+	    + " var result = document.evaluate(selector, document, null, XPathResult.ORDERED_NODE_SNAPSHOT_TYPE, null);"
+	    + " for (var i = 0; i < result.snapshotLength; i++) { elements.push(result.snapshotItem(i)); } }"
+	    + "else if (strategy === 'class name') { elements = document.getElementsByClassName(selector); }"
+	    + "else if (strategy === 'tag name') { elements = document.getElementsByTagName(selector); }"
+	    + "else { elements = document.querySelectorAll(selector); }"
+	    + "var probe = { count: elements.length };"
+	    + "if (elements.length === 0) { return probe; }"
+	    + "var element = elements[0];"
+	    + "probe.element = element;"
+	    + "if (elements.length !== 1) { return probe; }"
+	    + "var rect = element.getBoundingClientRect();"
+	    + "if (scrollIntoView && (rect.top < 0 || rect.left < 0 || rect.bottom > window.innerHeight || rect.right > window.innerWidth)) {"
+	    + " element.scrollIntoView({ block: 'center', inline: 'nearest' }); rect = element.getBoundingClientRect(); }"
+	    + "var style = window.getComputedStyle(element);"
+	    + "var displayed = element.getClientRects().length > 0 && rect.width > 0 && rect.height > 0"
+	    + " && style.visibility !== 'hidden' && style.visibility !== 'collapse' && style.opacity !== '0';"
+	    + "var text = '';"
+	    + "if (displayed) { text = (element.innerText === undefined ? element.textContent : element.innerText) || '';"
+	    + " text = text.replace(/\\u00a0/g, ' ').replace(/[ \\t\\f\\v]+/g, ' ').replace(/ *\\n */g, '\\n').trim(); }"
+	    + "probe.displayed = displayed;"
+	    + "probe.enabled = !(element.disabled === true || (element.matches !== undefined && element.matches(':disabled')));"
+	    + "probe.x = rect.left; probe.y = rect.top; probe.width = rect.width; probe.height = rect.height;"
+	    + "probe.text = text;"
+	    + "probe.textContent = element.textContent;"
+	    + "probe.value = (element.value === undefined || element.value === null) ? null : String(element.value);"
+	    + "probe.tagName = element.tagName.toLowerCase();"
+	    + "probe.type = element.getAttribute('type');"
+	    + "probe.contentEditable = element.isContentEditable === true;"
+	    + "return probe; }";
+    private static final String PROBE_SCRIPT = "return (" + PROBE_FUNCTION
+	    + ")(arguments[0], arguments[1], arguments[2], arguments[3]);";
+    // probes several locators in the same round trip, each query is an array of
+    // the probe function arguments
+    private static final String PROBE_ALL_SCRIPT = "var probeLocator = " + PROBE_FUNCTION + ";"
+	    + "var queries = arguments[0], results = [];"
+	    + "for (var i = 0; i < queries.length; i++) {"
+	    + " results.push(probeLocator(queries[i][0], queries[i][1], false, queries[i][2])); }"
+	    + "return results;";
+
+    private int matchingElementsCount = 0;
+    private WebElement element = null;
+    private boolean displayed = false;
+    private boolean enabled = false;
+    private int x = 0;
+    private int y = 0;
+    private int width = 0;
+    private int height = 0;
+    private String text = "";
+    private String textContent = "";
+    private String value = null;
+    private String tagName = "";
+    private String type = null;
+    private boolean contentEditable = false;
+    private int issuedCommandsCount = 0;
+
+    private ElementProbe() {
+    }
+
+    /**
+     * Probes the element(s) matching the target locator in the current browsing
+     * context.
+     *
+     * @param driver         the current instance of Selenium webdriver
+     * @param elementLocator the locator of the webElement under test
+     * @param scrollIntoView true if a unique match should be scrolled into the
+     *                       viewport before its state is read
+     * @return the probe result
+     */
+    static ElementProbe probe(WebDriver driver, By elementLocator, boolean scrollIntoView) {
+	long startTime = TimingManager.start();
+	try {
+	    return probeLocator(driver, elementLocator, scrollIntoView);
+	} finally {
+	    TimingManager.record(Phase.LOCATE, startTime);
+	}
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ElementProbe probeLocator(WebDriver driver, By elementLocator, boolean scrollIntoView) {
+	Object[] query = toQuery(driver, elementLocator);
+	if (query == null) {
+	    return emptyProbe(1);
+	}
+	int previouslyIssuedCommands = "elements".equals(query[0]) ? 1 : 0;
+	return execute(driver, previouslyIssuedCommands, (String) query[0], (String) query[1], scrollIntoView,
+		(List<WebElement>) query[2]);
+    }
+
+    /**
+     * Probes the element(s) matching several locators using a single script, so
+     * that a sequence of element actions can locate all of its targets in one
+     * round trip. Elements are not scrolled into view by this probe.
+     *
+     * Locators that cannot be translated into a javascript query cost one extra
+     * command each, and locators that match no elements return an empty probe.
+     *
+     * @param driver          the current instance of Selenium webdriver
+     * @param elementLocators the locators of the webElements under test
+     * @return the probe results, in the same order as the locators
+     */
+    static List<ElementProbe> probeAll(WebDriver driver, List<By> elementLocators) {
+	long startTime = TimingManager.start();
+	try {
+	    return probeLocators(driver, elementLocators);
+	} finally {
+	    TimingManager.record(Phase.LOCATE, startTime);
+	}
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<ElementProbe> probeLocators(WebDriver driver, List<By> elementLocators) {
+	List<Object[]> queries = new ArrayList<>();
+	List<Integer> queryIndices = new ArrayList<>();
+	ElementProbe[] probes = new ElementProbe[elementLocators.size()];
+	int nativeCommandsCount = 0;
+	for (int i = 0; i < elementLocators.size(); i++) {
+	    Object[] query = toQuery(driver, elementLocators.get(i));
+	    if (query == null || "elements".equals(query[0])) {
+		nativeCommandsCount++;
+	    }
+	    if (query == null) {
+		probes[i] = emptyProbe(0);
+	    } else {
+		queries.add(query);
+		queryIndices.add(i);
+	    }
+	}
+	if (!queries.isEmpty()) {
+	    List<Object> scriptQueries = new ArrayList<>();
+	    for (Object[] query : queries) {
+		scriptQueries.add(Arrays.asList(query));
+	    }
+	    List<Map<String, Object>> results = (List<Map<String, Object>>) ((JavascriptExecutor) driver)
+		    .executeScript(PROBE_ALL_SCRIPT, scriptQueries);
+	    for (int i = 0; i < results.size(); i++) {
+		probes[queryIndices.get(i)] = fromResult(results.get(i), 0);
+	    }
+	    nativeCommandsCount++;
+	}
+	// the whole cost is accounted for by the first probe
+	if (probes.length > 0) {
+	    probes[0].issuedCommandsCount += nativeCommandsCount;
+	}
+	return Arrays.asList(probes);
+    }
+
+    /**
+     * Translates the locator into the arguments of the probe function; the
+     * strategy, the selector, and the natively resolved elements (if any).
+     *
+     * @return the probe function arguments, or null if the locator was resolved
+     *         natively and matched no elements
+     */
+    private static Object[] toQuery(WebDriver driver, By elementLocator) {
+	String selector = elementLocator.toString().substring(elementLocator.toString().indexOf(": ") + 2);
+	if (elementLocator instanceof By.ByXPath) {
+	    return new Object[] { "xpath", selector, null };
+	} else if (elementLocator instanceof By.ByCssSelector) {
+	    return new Object[] { "css selector", selector, null };
+	} else if (elementLocator instanceof By.ById) {
+	    return new Object[] { "css selector", "[id=\"" + escapeAttributeValue(selector) + "\"]", null };
+	} else if (elementLocator instanceof By.ByName) {
+	    return new Object[] { "css selector", "[name=\"" + escapeAttributeValue(selector) + "\"]", null };
+	} else if (elementLocator instanceof By.ByClassName) {
+	    return new Object[] { "class name", selector, null };
+	} else if (elementLocator instanceof By.ByTagName) {
+	    return new Object[] { "tag name", selector, null };
+	} else {
+	    // resolve the locator natively, then probe the resulting elements
+	    List<WebElement> elements = driver.findElements(elementLocator);
+	    if (elements.isEmpty()) {
+		return null;
+	    }
+	    return new Object[] { "elements", "", elements };
+	}
+    }
+
+    private static ElementProbe emptyProbe(int issuedCommandsCount) {
+	ElementProbe probe = new ElementProbe();
+	probe.issuedCommandsCount = issuedCommandsCount;
+	return probe;
+    }
+
+    /**
+     * Probes an element that was already resolved, to read its current state
+     * after an interaction.
+     *
+     * @param driver  the current instance of Selenium webdriver
+     * @param element the resolved webElement
+     * @return the probe result
+     */
+    static ElementProbe probe(WebDriver driver, WebElement element) {
+	long startTime = TimingManager.start();
+	try {
+	    return execute(driver, 0, "elements", "", false, Collections.singletonList(element));
+	} finally {
+	    TimingManager.record(Phase.LOCATE, startTime);
+	}
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ElementProbe execute(WebDriver driver, int previouslyIssuedCommands, String strategy,
+	    String selector, boolean scrollIntoView, List<WebElement> elements) {
+	Map<String, Object> result = (Map<String, Object>) ((JavascriptExecutor) driver).executeScript(PROBE_SCRIPT,
+		strategy, selector, scrollIntoView, elements);
+	return fromResult(result, previouslyIssuedCommands + 1);
+    }
+
+    private static ElementProbe fromResult(Map<String, Object> result, int issuedCommandsCount) {
+	ElementProbe probe = new ElementProbe();
+	probe.issuedCommandsCount = issuedCommandsCount;
+	probe.matchingElementsCount = ((Number) result.get("count")).intValue();
+	if (probe.matchingElementsCount > 0) {
+	    probe.element = (WebElement) result.get("element");
+	}
+	if (probe.matchingElementsCount == 1) {
+	    probe.displayed = Boolean.TRUE.equals(result.get("displayed"));
+	    probe.enabled = Boolean.TRUE.equals(result.get("enabled"));
+	    probe.x = toInt(result.get("x"));
+	    probe.y = toInt(result.get("y"));
+	    probe.width = toInt(result.get("width"));
+	    probe.height = toInt(result.get("height"));
+	    probe.text = String.valueOf(result.get("text"));
+	    probe.textContent = result.get("textContent") == null ? "" : String.valueOf(result.get("textContent"));
+	    probe.value = (String) result.get("value");
+	    probe.tagName = String.valueOf(result.get("tagName"));
+	    probe.type = (String) result.get("type");
+	    probe.contentEditable = Boolean.TRUE.equals(result.get("contentEditable"));
+	}
+	return probe;
+    }
+
+    /**
+     * @return a copy of this probe that doesn't count any issued commands, to be
+     *         reused while the page is unchanged
+     */
+    ElementProbe fromCache() {
+	try {
+	    ElementProbe probe = (ElementProbe) clone();
+	    probe.issuedCommandsCount = 0;
+	    return probe;
+	} catch (CloneNotSupportedException e) {
+	    throw new IllegalStateException(e);
+	}
+    }
+
+    private static String escapeAttributeValue(String value) {
+	return value.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+
+    private static int toInt(Object number) {
+	return number == null ? 0 : (int) Math.round(((Number) number).doubleValue());
+    }
+
+    /**
+     * Reads the element text using the same strategy names that are used while
+     * typing; "text", "textContent", or "value".
+     *
+     * @param textLocationStrategy the name of the strategy
+     * @return the text read using that strategy
+     */
+    String getText(String textLocationStrategy) {
+	switch (textLocationStrategy) {
+	case "textContent":
+	    return textContent;
+	case "value":
+	    return value;
+	case "text":
+	default:
+	    return text;
+	}
+    }
+
+    int getMatchingElementsCount() {
+	return matchingElementsCount;
+    }
+
+    WebElement getElement() {
+	return element;
+    }
+
+    boolean isDisplayed() {
+	return displayed;
+    }
+
+    boolean isEnabled() {
+	return enabled;
+    }
+
+    int getX() {
+	return x;
+    }
+
+    int getY() {
+	return y;
+    }
+
+    int getWidth() {
+	return width;
+    }
+
+    int getHeight() {
+	return height;
+    }
+
+    String getText() {
+	return text;
+    }
+
+    String getTextContent() {
+	return textContent;
+    }
+
+    String getValue() {
+	return value;
+    }
+
+    String getTagName() {
+	return tagName;
+    }
+
+    String getType() {
+	return type;
+    }
+
+    boolean isContentEditable() {
+	return contentEditable;
+    }
+
+    int getIssuedCommandsCount() {
+	return issuedCommandsCount;
+    }
+}
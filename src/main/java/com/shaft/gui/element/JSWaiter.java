@@ -1,18 +1,41 @@
 package com.shaft.gui.element;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.TimeUnit;
+
 import org.openqa.selenium.JavascriptExecutor;
 import org.openqa.selenium.WebDriver;
 import org.openqa.selenium.WebDriverException;
-import org.openqa.selenium.support.ui.ExpectedCondition;
-import org.openqa.selenium.support.ui.WebDriverWait;
 
 import com.shaft.tools.io.ReportManager;
+import com.shaft.tools.io.TimingManager;
+import com.shaft.tools.io.TimingManager.Phase;
 
 public class JSWaiter {
 
-    private static WebDriver jsWaitDriver;
-    private static WebDriverWait jsWait;
-    private static JavascriptExecutor jsExec;
+    private static final int PAGE_READINESS_TIMEOUT = 15;
+    // the time that the browser is given to return the result of the agent after
+    // its own timeout, and the W3C default script timeout that is assumed for
+    // drivers whose script timeout wasn't set through setScriptTimeout
+    private static final int SCRIPT_TIMEOUT_MARGIN = 5;
+    private static final int DEFAULT_SCRIPT_TIMEOUT = 30;
+    private static int lazyLoadingQuietPeriod = Integer
+	    .parseInt(System.getProperty("lazyLoadingQuietPeriod").trim());
+    private static String pageReadinessAgent = null;
+
+    // the driver of the browser that was last opened by the current test thread
+    private static ThreadLocal<WebDriver> jsWaitDriver = new ThreadLocal<>();
+    // the document and DOM mutation epoch that the last wait of the current test
+    // thread resolved on, or null if the page never became idle
+    private static ThreadLocal<String> lastPageState = new ThreadLocal<>();
+    // the script timeout of every browser, in seconds, as there is no way to read
+    // it back from the driver
+    private static Map<WebDriver, Integer> scriptTimeouts = Collections.synchronizedMap(new WeakHashMap<>());
 
     private JSWaiter() {
 	throw new IllegalStateException("Utility class");
@@ -20,31 +43,41 @@ public class JSWaiter {
 
     // Get the driver
     public static void setDriver(WebDriver driver) {
-	jsWaitDriver = driver;
-	jsWait = new WebDriverWait(jsWaitDriver, 10);
-	jsExec = (JavascriptExecutor) jsWaitDriver;
+	jsWaitDriver.set(driver);
     }
 
     /**
      * Waits for jQuery, Angular, and/or Javascript if present on the current page.
+     * A readiness agent is injected once per document to track pending
+     * XHR/fetch requests, DOM mutations, jQuery, AngularJS and Angular, and the
+     * wait resolves in a single call as soon as the page becomes idle.
      * 
      * @return true in case waiting didn't face any isssues, and false in case of a
      *         severe exception
      */
     public static boolean waitForLazyLoading() {
+	return waitForLazyLoading(jsWaitDriver.get());
+    }
+
+    /**
+     * Waits for jQuery, Angular, and/or Javascript if present on the page that is
+     * currently open in the target browser.
+     * 
+     * @param driver the current instance of Selenium webdriver
+     * @return true in case waiting didn't face any isssues, and false in case of a
+     *         severe exception
+     */
+    public static boolean waitForLazyLoading(WebDriver driver) {
+	lastPageState.remove();
+	long startTime = TimingManager.start();
 	try {
-	    waitForJQueryLoadIfDefined();
-	    waitForAngularIfDefined();
-	    waitForJSLoadIfDefined();
+	    waitForPageReadiness(driver);
 	    return true;
 	} catch (WebDriverException e) {
 	    ReportManager.log(e);
 	    return true;
 	} catch (Exception e) {
-	    if (e.getMessage().contains("jQuery is not defined")) {
-		// do nothing
-		return true;
-	    } else if (e.getMessage().contains("Error communicating with the remote browser. It may have died.")) {
+	    if (e.getMessage().contains("Error communicating with the remote browser. It may have died.")) {
 		ReportManager.log(e);
 		return false;
 	    } else {
@@ -52,114 +85,64 @@ public class JSWaiter {
 		ReportManager.log("Unhandled Exception: " + e.getMessage());
 		return false;
 	    }
+	} finally {
+	    TimingManager.record(Phase.WAIT, startTime);
 	}
     }
 
-    // Wait for JQuery Load
-    private static void waitForJQueryLoadIfDefined() {
-	Boolean jQueryDefined = (Boolean) jsExec.executeScript("return typeof jQuery != 'undefined'");
-	if (jQueryDefined) {
-	    // Wait for jQuery to load
-	    ExpectedCondition<Boolean> jQueryLoad = driver -> ((Long) ((JavascriptExecutor) jsWaitDriver)
-		    .executeScript("return jQuery.active") == 0);
-
-	    // Get JQuery is Ready
-	    boolean jqueryReady = (Boolean) jsExec.executeScript("return jQuery.active==0");
-
-	    if (!jqueryReady) {
-		// Wait JQuery until it is Ready!
-		int tryCounter = 0;
-		while ((!jqueryReady) && (tryCounter < 5)) {
-		    // Wait for jQuery to load
-		    jsWait.until(jQueryLoad);
-		    sleep(20);
-		    tryCounter++;
-		    jqueryReady = (Boolean) jsExec.executeScript("return jQuery.active == 0");
-		}
-	    }
-	}
+    /**
+     * Identifies the state of the page that the last call to
+     * {@link #waitForLazyLoading(WebDriver)} in the current test thread resolved
+     * on. Two equal states mean that the DOM didn't change in between, so the
+     * results of any lookups that were performed in that state are still valid.
+     * 
+     * @return the document id and DOM mutation epoch, or null if the page didn't
+     *         become idle
+     */
+    static String getLastPageState() {
+	return lastPageState.get();
     }
 
-    // Wait for Angular Load
-    private static void waitForAngularLoad() {
-	WebDriverWait wait = new WebDriverWait(jsWaitDriver, 15);
-	JavascriptExecutor jsExec = (JavascriptExecutor) jsWaitDriver;
-
-	String angularReadyScript = "return angular.element(document).injector().get('$http').pendingRequests.length === 0";
-
-	// Wait for ANGULAR to load
-	ExpectedCondition<Boolean> angularLoad = driver -> Boolean
-		.valueOf(((JavascriptExecutor) driver).executeScript(angularReadyScript).toString());
-
-	// Get Angular is Ready
-	boolean angularReady = Boolean.parseBoolean(jsExec.executeScript(angularReadyScript).toString());
-
-	if (!angularReady) {
-	    // Wait ANGULAR until it is Ready!
-	    int tryCounter = 0;
-	    while ((!angularReady) && (tryCounter < 5)) {
-		// Wait for Angular to load
-		wait.until(angularLoad);
-		// More Wait for stability (Optional)
-		sleep(20);
-		tryCounter++;
-		angularReady = Boolean.valueOf(jsExec.executeScript(angularReadyScript).toString());
-	    }
-	}
+    /**
+     * Sets the timeout of the asynchronous scripts that are executed in the
+     * target browser, and remembers it so that the readiness agent can extend it
+     * temporarily.
+     * 
+     * @param driver  the current instance of Selenium webdriver
+     * @param timeout the script timeout in seconds
+     */
+    static void setScriptTimeout(WebDriver driver, int timeout) {
+	driver.manage().timeouts().setScriptTimeout(timeout, TimeUnit.SECONDS);
+	scriptTimeouts.put(driver, timeout);
     }
 
-    // Wait Until JS Ready
-    private static void waitForJSLoadIfDefined() {
-	WebDriverWait wait = new WebDriverWait(jsWaitDriver, 15);
-	JavascriptExecutor jsExec = (JavascriptExecutor) jsWaitDriver;
-
-	// Wait for Javascript to load
-	ExpectedCondition<Boolean> jsLoad = driver -> ((JavascriptExecutor) jsWaitDriver)
-		.executeScript("return document.readyState").toString().trim().equalsIgnoreCase("complete");
-
-	// Get JS is Ready
-	boolean jsReady = (Boolean) jsExec.executeScript("return document.readyState").toString().trim()
-		.equalsIgnoreCase("complete");
-
-	// Wait Javascript until it is Ready!
-	if (!jsReady) {
-	    // Wait JS until it is Ready!
-	    int tryCounter = 0;
-	    while ((!jsReady) && (tryCounter < 5)) {
-		// Wait for Javascript to load
-		wait.until(jsLoad);
-		// More Wait for stability (Optional)
-		sleep(20);
-		tryCounter++;
-		jsReady = (Boolean) jsExec.executeScript("return document.readyState").toString().trim()
-			.equalsIgnoreCase("complete");
-	    }
+    @SuppressWarnings("unchecked")
+    private static void waitForPageReadiness(WebDriver driver) throws IOException {
+	if (pageReadinessAgent == null) {
+	    pageReadinessAgent = new String(
+		    Files.readAllBytes(Paths.get("src/main/resources/scripts/page_readiness_agent.js")));
 	}
-    }
-
-    private static void waitForAngularIfDefined() {
+	// the agent must time out on its own before the script timeout does
+	int scriptTimeout = scriptTimeouts.getOrDefault(driver, DEFAULT_SCRIPT_TIMEOUT);
+	boolean isScriptTimeoutExtended = scriptTimeout < PAGE_READINESS_TIMEOUT + SCRIPT_TIMEOUT_MARGIN;
+	if (isScriptTimeoutExtended) {
+	    driver.manage().timeouts().setScriptTimeout(PAGE_READINESS_TIMEOUT + SCRIPT_TIMEOUT_MARGIN,
+		    TimeUnit.SECONDS);
+	}
+	Object result;
 	try {
-	    Boolean angularDefined = !((Boolean) jsExec.executeScript("return window.angular === undefined"));
-	    if (angularDefined) {
-		Boolean angularInjectorDefined = !((Boolean) jsExec
-			.executeScript("return angular.element(document).injector() === undefined"));
-
-		if (angularInjectorDefined) {
-		    waitForAngularLoad();
-		}
+	    result = ((JavascriptExecutor) driver).executeAsyncScript(pageReadinessAgent, lazyLoadingQuietPeriod,
+		    PAGE_READINESS_TIMEOUT * 1000);
+	} finally {
+	    if (isScriptTimeoutExtended) {
+		driver.manage().timeouts().setScriptTimeout(scriptTimeout, TimeUnit.SECONDS);
 	    }
-	} catch (WebDriverException e) {
-	    // do nothing
 	}
-    }
-
-    private static void sleep(Integer milliSeconds) {
-	long secondsLong = (long) milliSeconds;
-	try {
-	    Thread.sleep(secondsLong);
-	} catch (Exception e) {
-	    ReportManager.log(e);
-	    // InterruptedException
+	if (result instanceof Map) {
+	    Map<String, Object> readiness = (Map<String, Object>) result;
+	    if (Boolean.TRUE.equals(readiness.get("ready"))) {
+		lastPageState.set(readiness.get("documentId") + ":" + readiness.get("epoch"));
+	    }
 	}
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,95 @@
+package com.shaft.gui.element;
+
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+import com.shaft.tools.io.ReportManager;
+
+/**
+ * Decides how often, and for how long, a certain condition is polled while
+ * identifying elements. All the attempts share a single deadline, and the
+ * interval between two consecutive polls is either fixed or grows exponentially
+ * up to a maximum of one second.
+ */
+class PollingStrategy {
+    enum Backoff {
+	FIXED, EXPONENTIAL
+    }
+
+    private static final long MAXIMUM_POLLING_INTERVAL = 1000;
+    private static int defaultElementIdentificationTimeout = Integer
+	    .parseInt(System.getProperty("defaultElementIdentificationTimeout").trim());
+    private static long elementIdentificationPollingInterval = Long
+	    .parseLong(System.getProperty("elementIdentificationPollingInterval").trim());
+    private static Backoff elementIdentificationPollingStrategy = Backoff
+	    .valueOf(System.getProperty("elementIdentificationPollingStrategy").trim().toUpperCase());
+
+    private final long deadlineBudget;
+    private final long pollingInterval;
+    private final Backoff backoff;
+
+    /**
+     * @param deadlineBudget  the total time in milliseconds that all the polls can
+     *                        take
+     * @param pollingInterval the time in milliseconds between the first two polls
+     * @param backoff         how the interval grows after every poll
+     */
+    PollingStrategy(long deadlineBudget, long pollingInterval, Backoff backoff) {
+	this.deadlineBudget = deadlineBudget;
+	this.pollingInterval = Math.max(1, pollingInterval);
+	this.backoff = backoff;
+    }
+
+    /**
+     * Creates the strategy configured through the execution properties, where the
+     * deadline is the element identification timeout multiplied by the number of
+     * attempts.
+     *
+     * @param numberOfAttempts the number of attempts that the deadline should
+     *                         cover
+     * @return the configured polling strategy
+     */
+    static PollingStrategy forElementIdentification(int numberOfAttempts) {
+	return new PollingStrategy(defaultElementIdentificationTimeout * Math.max(1, numberOfAttempts) * 1000L,
+		elementIdentificationPollingInterval, elementIdentificationPollingStrategy);
+    }
+
+    /**
+     * Polls the condition until it returns a result that is accepted, or until the
+     * deadline is exceeded. The condition is always polled at least once.
+     *
+     * @param condition the condition that should be polled
+     * @param accepted  decides if the polled result is final
+     * @return the last result that was polled, accepted or not
+     */
+    <T> T poll(Supplier<T> condition, Predicate<T> accepted) {
+	long deadline = System.currentTimeMillis() + deadlineBudget;
+	long interval = pollingInterval;
+	T result = condition.get();
+	while (!accepted.test(result)) {
+	    long remainingTime = deadline - System.currentTimeMillis();
+	    if (remainingTime <= 0) {
+		break;
+	    }
+	    if (!sleep(Math.min(interval, remainingTime))) {
+		break;
+	    }
+	    if (backoff == Backoff.EXPONENTIAL) {
+		interval = Math.min(interval * 2, MAXIMUM_POLLING_INTERVAL);
+	    }
+	    result = condition.get();
+	}
+	return result;
+    }
+
+    private static boolean sleep(long milliSeconds) {
+	try {
+	    Thread.sleep(milliSeconds);
+	    return true;
+	} catch (InterruptedException e) {
+	    ReportManager.log(e);
+	    Thread.currentThread().interrupt();
+	    return false;
+	}
+    }
+}
@@ -0,0 +1,277 @@
+package com.shaft.gui.image;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Compares image files that are too large to be decoded in full, such as full
+ * page screenshots, and keeps all the image comparisons that run at once within
+ * a fixed memory ceiling.
+ *
+ * The ceiling is a budget that is shared by every comparison; a pair that is
+ * decoded in full reserves its decoded size before it is read, and waits until
+ * enough of the budget is free. Pairs that don't fit into the budget are read
+ * in horizontal bands from the top down, and compared band by band; the band
+ * height is chosen so that the two bands of a pair, and the mask of their
+ * differences, only take the share of one processor of the budget. A diff
+ * image is only produced on request, for the pairs that failed, by reading both
+ * files once more.
+ */
+class BandedImageComparison {
+    private static final long MEMORY_LIMIT = Long
+	    .parseLong(System.getProperty("imageComparison_memoryLimit").trim()) * 1024 * 1024;
+    // the budget is counted in kilobytes, so that limits above 2 GB still fit
+    // into the permits of the semaphore
+    private static final Semaphore MEMORY_BUDGET = new Semaphore(toKilobytes(MEMORY_LIMIT), true);
+    private static final int PARALLELISM = Runtime.getRuntime().availableProcessors();
+    // the color of the differing pixels in the diff image, the color of the
+    // ignored pixels, and the opacity of the test image behind them
+    private static final int DIFF_COLOR = 0xFFFF0000;
+    private static final int IGNORED_COLOR = 0x800000FF;
+    private static final int FADED_OPACITY = 0x4D;
+    // 4 bytes per pixel for each image or band at most, and 1 byte per pixel for
+    // the mask
+    private static final int BYTES_PER_PIXEL = 4;
+    private static final int BAND_BYTES_PER_PIXEL = BYTES_PER_PIXEL * 2 + 1;
+
+    private BandedImageComparison() {
+	throw new IllegalStateException("Utility class");
+    }
+
+    /**
+     * A part of the memory budget that is held by one comparison, until it is
+     * closed.
+     */
+    static class MemoryReservation implements AutoCloseable {
+	private final int kilobytes;
+
+	private MemoryReservation(int kilobytes) {
+	    this.kilobytes = kilobytes;
+	}
+
+	@Override
+	public void close() {
+	    MEMORY_BUDGET.release(kilobytes);
+	}
+    }
+
+    /**
+     * @param testBounds     the size of the test image
+     * @param refrenceBounds the size of the reference image
+     * @return the memory that comparing both images in full takes at most; both
+     *         decoded images, and the mask of their differences
+     */
+    static long getDecodedSize(Rectangle testBounds, Rectangle refrenceBounds) {
+	return getDecodedSize(testBounds) + getDecodedSize(refrenceBounds)
+		+ (long) testBounds.width * testBounds.height;
+    }
+
+    /**
+     * @param testBounds     the size of the test image
+     * @param refrenceBounds the size of the reference image
+     * @return true if comparing both images in full would exceed the memory
+     *         ceiling
+     */
+    static boolean isTooLarge(Rectangle testBounds, Rectangle refrenceBounds) {
+	return getDecodedSize(testBounds, refrenceBounds) > MEMORY_LIMIT;
+    }
+
+    /**
+     * Reserves a part of the memory budget, waiting until it is free.
+     *
+     * @param bytes the memory that should be reserved, anything above the memory
+     *              ceiling reserves the whole budget
+     * @return the reservation, which must be closed once the memory is released
+     * @throws IOException if the thread was interrupted while waiting
+     */
+    static MemoryReservation reserveMemory(long bytes) throws IOException {
+	int kilobytes = Math.min(toKilobytes(MEMORY_LIMIT), toKilobytes(bytes));
+	try {
+	    MEMORY_BUDGET.acquire(kilobytes);
+	} catch (InterruptedException e) {
+	    Thread.currentThread().interrupt();
+	    throw new IOException("Interrupted while waiting for memory to compare the image files.", e);
+	}
+	return new MemoryReservation(kilobytes);
+    }
+
+    /**
+     * Compares two image files of the same size band by band.
+     *
+     * @param testFile       the file of the image under test
+     * @param refrenceFile   the file of the reference image
+     * @param threshold      the minimum percentage of matching pixels that is
+     *                       still acceptable, the comparison stops after the
+     *                       first band that makes it unreachable
+     * @param ignoredRegions the regions that should not be compared
+     * @return the result of the comparison, or null if the images are not of the
+     *         same size
+     * @throws IOException if one of the images could not be read
+     */
+    static RasterDiffKernel.Result compare(File testFile, File refrenceFile, double threshold,
+	    List<Rectangle> ignoredRegions) throws IOException {
+	return compare(testFile, refrenceFile, threshold, ignoredRegions, MEMORY_LIMIT / PARALLELISM);
+    }
+
+    /**
+     * Compares two image files of the same size band by band, with bands that
+     * take at most the given memory.
+     */
+    static RasterDiffKernel.Result compare(File testFile, File refrenceFile, double threshold,
+	    List<Rectangle> ignoredRegions, long bandMemory) throws IOException {
+	try (BandedImageReader testReader = BandedImageReader.open(testFile);
+		BandedImageReader refrenceReader = BandedImageReader.open(refrenceFile)) {
+	    int width = testReader.getWidth();
+	    int height = testReader.getHeight();
+	    if (width != refrenceReader.getWidth() || height != refrenceReader.getHeight()) {
+		return null;
+	    }
+	    long pixelCount = (long) width * height;
+	    int bandHeight = getBandHeight(width, height, bandMemory);
+
+	    try (MemoryReservation reservation = reserveMemory(getBandSize(width, bandHeight))) {
+		BufferedImage testBand = testReader.createBand(bandHeight);
+		BufferedImage refrenceBand = refrenceReader.createBand(bandHeight);
+
+		// exact comparisons without ignored regions don't need a mask
+		byte[] mask = VisualDiff.isExact() && ignoredRegions.isEmpty() ? null : new byte[width * bandHeight];
+
+		long differingPixels = 0;
+		long ignoredPixels = 0;
+		Rectangle differingRegion = null;
+		for (int y = 0; y < height; y += bandHeight) {
+		    int rows = testReader.readBand(testBand);
+		    refrenceReader.readBand(refrenceBand);
+		    Rectangle bandRegion;
+		    if (mask == null) {
+			RasterDiffKernel.Result bandResult = RasterDiffKernel.compare(testBand, refrenceBand,
+				Collections.singletonList(new Rectangle(0, 0, width, rows)), 0);
+			bandRegion = bandResult.getDifferingRegion();
+			if (bandRegion != null) {
+			    bandRegion.translate(0, y);
+			}
+			differingPixels += bandResult.getDifferingPixels();
+		    } else {
+			VisualDiff.BandDiff bandDiff = VisualDiff.compareBand(testBand, refrenceBand, rows, y,
+				ignoredRegions, mask);
+			bandRegion = bandDiff.getDifferingRegion();
+			differingPixels += bandDiff.getDifferingPixels();
+			ignoredPixels += bandDiff.getIgnoredPixels();
+		    }
+		    if (bandRegion != null) {
+			differingRegion = differingRegion == null ? bandRegion : differingRegion.union(bandRegion);
+		    }
+		    double percentage = VisualDiff.getPercentage(pixelCount, differingPixels, ignoredPixels);
+		    if (percentage < threshold || y + rows >= height) {
+			return new RasterDiffKernel.Result(percentage, differingPixels, differingRegion,
+				y + rows >= height);
+		    }
+		}
+		return RasterDiffKernel.match();
+	    }
+	}
+    }
+
+    /**
+     * Writes a PNG diff image of two image files of the same size, that shows the
+     * test image faded, with its differing pixels in red and its ignored pixels
+     * in blue. The diff image only covers the region where the images differ,
+     * and is downscaled if that region would exceed half of the memory ceiling;
+     * a downscaled pixel is red if any of the pixels it covers differs.
+     *
+     * @param testFile       the file of the image under test
+     * @param refrenceFile   the file of the reference image
+     * @param region         the region where the images differ
+     * @param ignoredRegions the regions that were not compared
+     * @param diffFile       the PNG file that the diff image is written to
+     * @throws IOException if one of the images could not be read, or the diff
+     *                     image could not be written
+     */
+    static void writeDiffImage(File testFile, File refrenceFile, Rectangle region, List<Rectangle> ignoredRegions,
+	    File diffFile) throws IOException {
+	writeDiffImage(testFile, refrenceFile, region, ignoredRegions, diffFile, MEMORY_LIMIT);
+    }
+
+    /**
+     * Writes a PNG diff image of two image files of the same size within the
+     * given memory, half of which is taken by the diff image, and half by the
+     * bands.
+     */
+    static void writeDiffImage(File testFile, File refrenceFile, Rectangle region, List<Rectangle> ignoredRegions,
+	    File diffFile, long memory) throws IOException {
+	try (BandedImageReader testReader = BandedImageReader.open(testFile);
+		BandedImageReader refrenceReader = BandedImageReader.open(refrenceFile)) {
+	    int width = testReader.getWidth();
+	    int height = testReader.getHeight();
+	    Rectangle diffRegion = region.intersection(new Rectangle(0, 0, width, height));
+	    int scale = Math.max(1, (int) Math.ceil(Math.sqrt(getDecodedSize(diffRegion) / (memory / 2d))));
+	    int diffWidth = (diffRegion.width + scale - 1) / scale;
+	    int diffHeight = (diffRegion.height + scale - 1) / scale;
+	    int bandHeight = getBandHeight(width, height, memory / 2);
+
+	    try (MemoryReservation reservation = reserveMemory(
+		    (long) diffWidth * diffHeight * BYTES_PER_PIXEL + getBandSize(width, bandHeight))) {
+		BufferedImage diffImage = new BufferedImage(diffWidth, diffHeight, BufferedImage.TYPE_INT_ARGB);
+		BufferedImage testBand = testReader.createBand(bandHeight);
+		BufferedImage refrenceBand = refrenceReader.createBand(bandHeight);
+		byte[] mask = new byte[width * bandHeight];
+		int[] testRow = new int[diffRegion.width];
+		for (int y = 0; y < diffRegion.y + diffRegion.height; y += bandHeight) {
+		    int rows = testReader.readBand(testBand);
+		    refrenceReader.readBand(refrenceBand);
+		    if (y + rows <= diffRegion.y) {
+			continue;
+		    }
+		    VisualDiff.compareBand(testBand, refrenceBand, rows, y, ignoredRegions, mask);
+		    for (int row = Math.max(0, diffRegion.y - y); row < rows
+			    && y + row < diffRegion.y + diffRegion.height; row++) {
+			testBand.getRGB(diffRegion.x, row, diffRegion.width, 1, testRow, 0, diffRegion.width);
+			int diffY = (y + row - diffRegion.y) / scale;
+			boolean isFirstRowOfCell = (y + row - diffRegion.y) % scale == 0;
+			for (int x = 0; x < diffRegion.width; x++) {
+			    // the first pixel of every cell is visited first, so it can't hide a
+			    // differing pixel of the same cell
+			    byte mark = mask[row * width + diffRegion.x + x];
+			    if (mark == VisualDiff.DIFFERING) {
+				diffImage.setRGB(x / scale, diffY, DIFF_COLOR);
+			    } else if (isFirstRowOfCell && x % scale == 0) {
+				diffImage.setRGB(x / scale, diffY, mark == VisualDiff.IGNORED ? IGNORED_COLOR
+					: (FADED_OPACITY << 24) | (testRow[x] & 0xFFFFFF));
+			    }
+			}
+		    }
+		}
+		Files.write(diffFile.toPath(), ScreenshotEncoder.encodePng(diffImage));
+	    }
+	}
+    }
+
+    private static long getDecodedSize(Rectangle bounds) {
+	return (long) bounds.width * bounds.height * BYTES_PER_PIXEL;
+    }
+
+    private static long getBandSize(int width, int bandHeight) {
+	return (long) width * bandHeight * BAND_BYTES_PER_PIXEL;
+    }
+
+    private static int toKilobytes(long bytes) {
+	return (int) Math.min(Integer.MAX_VALUE, (bytes + 1023) / 1024);
+    }
+
+    /**
+     * @return the number of rows of a band that takes at most the given memory,
+     *         a multiple of 8 so that the blocks of the structural similarity
+     *         never cross two bands
+     */
+    private static int getBandHeight(int width, int height, long bandMemory) {
+	long bytesPerRow = Math.max(1, (long) width * BAND_BYTES_PER_PIXEL);
+	int bandHeight = (int) Math.min(height, bandMemory / bytesPerRow);
+	return Math.max(8, bandHeight - bandHeight % 8);
+    }
+}
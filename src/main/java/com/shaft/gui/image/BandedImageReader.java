@@ -0,0 +1,377 @@
+package com.shaft.gui.image;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.stream.ImageInputStream;
+
+/**
+ * Reads an image file in horizontal bands from the top down, so that only one
+ * band of the image is held in memory at a time.
+ *
+ * Non-interlaced 8 bit PNG files are decoded row by row from a single pass over
+ * the file. Any other image file is read through its {@link ImageReader}, one
+ * source region at a time; depending on the format, that reader may have to
+ * decode all the rows above every band again.
+ */
+class BandedImageReader implements Closeable {
+    private static final byte[] PNG_SIGNATURE = { (byte) 137, 80, 78, 71, 13, 10, 26, 10 };
+
+    private final int width;
+    private final int height;
+    private int nextRow = 0;
+
+    // the PNG row decoder
+    private DataInputStream pngRows;
+    private Inflater inflater;
+    private int pngColorType;
+    private int bytesPerPixel;
+    private byte[] previousRow;
+    private byte[] currentRow;
+
+    // the generic source region reader
+    private ImageInputStream imageInputStream;
+    private ImageReader imageReader;
+    private ImageTypeSpecifier imageType;
+
+    private BandedImageReader(int width, int height) {
+	this.width = width;
+	this.height = height;
+    }
+
+    /**
+     * Opens an image file, reading only its header.
+     *
+     * @param imageFile the image file that should be read
+     * @return a reader that is positioned at the top of the image
+     * @throws IOException if the file is not a readable image
+     */
+    static BandedImageReader open(File imageFile) throws IOException {
+	BandedImageReader pngReader = openPng(imageFile);
+	if (pngReader != null) {
+	    return pngReader;
+	}
+
+	ImageInputStream imageInputStream = ImageIO.createImageInputStream(imageFile);
+	Iterator<ImageReader> readers = imageInputStream == null ? null : ImageIO.getImageReaders(imageInputStream);
+	if (readers == null || !readers.hasNext()) {
+	    if (imageInputStream != null) {
+		imageInputStream.close();
+	    }
+	    throw new IOException("Failed to read [" + imageFile + "] as an image.");
+	}
+	ImageReader imageReader = readers.next();
+	imageReader.setInput(imageInputStream, true, true);
+	BandedImageReader reader = new BandedImageReader(imageReader.getWidth(0), imageReader.getHeight(0));
+	reader.imageInputStream = imageInputStream;
+	reader.imageReader = imageReader;
+	reader.imageType = imageReader.getImageTypes(0).next();
+	return reader;
+    }
+
+    /**
+     * Reads only the width and the height of an image file.
+     *
+     * @param imageFile the image file
+     * @return the size of the image, at its origin
+     * @throws IOException if the file is not a readable image
+     */
+    static Rectangle readBounds(File imageFile) throws IOException {
+	try (BandedImageReader reader = open(imageFile)) {
+	    return new Rectangle(0, 0, reader.width, reader.height);
+	}
+    }
+
+    int getWidth() {
+	return width;
+    }
+
+    int getHeight() {
+	return height;
+    }
+
+    /**
+     * @param rows the number of rows that a band should hold
+     * @return an empty band that can be passed to {@link #readBand}
+     */
+    BufferedImage createBand(int rows) {
+	if (imageReader == null) {
+	    return new BufferedImage(width, Math.max(1, rows), getPngImageType());
+	}
+	return imageType.createBufferedImage(width, Math.max(1, rows));
+    }
+
+    /**
+     * Reads the next rows of the image into the top of a band, overwriting it.
+     *
+     * @param band a band created by {@link #createBand}
+     * @return the number of rows that were read, which is only smaller than the
+     *         height of the band at the bottom of the image
+     * @throws IOException if the image data is damaged
+     */
+    int readBand(BufferedImage band) throws IOException {
+	int rows = Math.min(band.getHeight(), height - nextRow);
+	if (rows <= 0) {
+	    return 0;
+	}
+	if (imageReader == null) {
+	    for (int row = 0; row < rows; row++) {
+		readPngRow(band, row);
+	    }
+	} else {
+	    ImageReadParam readParam = imageReader.getDefaultReadParam();
+	    readParam.setSourceRegion(new Rectangle(0, nextRow, width, rows));
+	    readParam.setDestination(band);
+	    imageReader.read(0, readParam);
+	}
+	nextRow += rows;
+	return rows;
+    }
+
+    @Override
+    public void close() throws IOException {
+	if (pngRows != null) {
+	    pngRows.close();
+	    inflater.end();
+	}
+	if (imageReader != null) {
+	    imageReader.dispose();
+	    imageInputStream.close();
+	}
+    }
+
+    /**
+     * @return a row decoder for a non-interlaced 8 bit PNG file, or null if the
+     *         file is anything else
+     */
+    private static BandedImageReader openPng(File imageFile) throws IOException {
+	DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(imageFile.toPath())));
+	try {
+	    byte[] signature = new byte[PNG_SIGNATURE.length];
+	    input.readFully(signature);
+	    if (!Arrays.equals(signature, PNG_SIGNATURE) || input.readInt() != 13 || input.readInt() != 0x49484452) {
+		input.close();
+		return null;
+	    }
+	    int width = input.readInt();
+	    int height = input.readInt();
+	    int bitDepth = input.readUnsignedByte();
+	    int colorType = input.readUnsignedByte();
+	    skipFully(input, 2);
+	    int interlaceMethod = input.readUnsignedByte();
+	    skipFully(input, 4);
+	    if (bitDepth != 8 || interlaceMethod != 0
+		    || (colorType != 0 && colorType != 2 && colorType != 4 && colorType != 6)) {
+		input.close();
+		return null;
+	    }
+
+	    BandedImageReader reader = new BandedImageReader(width, height);
+	    reader.pngColorType = colorType;
+	    reader.bytesPerPixel = colorType == 0 ? 1 : colorType == 2 ? 3 : colorType == 4 ? 2 : 4;
+	    reader.previousRow = new byte[width * reader.bytesPerPixel];
+	    reader.currentRow = new byte[width * reader.bytesPerPixel];
+	    reader.inflater = new Inflater();
+	    reader.pngRows = new DataInputStream(
+		    new InflaterInputStream(new IdatInputStream(input), reader.inflater, 65536));
+	    return reader;
+	} catch (EOFException e) {
+	    input.close();
+	    return null;
+	}
+    }
+
+    private static void skipFully(InputStream input, long bytes) throws IOException {
+	long remainingBytes = bytes;
+	while (remainingBytes > 0) {
+	    long skipped = input.skip(remainingBytes);
+	    if (skipped <= 0) {
+		if (input.read() < 0) {
+		    throw new EOFException("The PNG file is truncated.");
+		}
+		skipped = 1;
+	    }
+	    remainingBytes -= skipped;
+	}
+    }
+
+    private int getPngImageType() {
+	switch (pngColorType) {
+	case 0:
+	    return BufferedImage.TYPE_BYTE_GRAY;
+	case 2:
+	    return BufferedImage.TYPE_3BYTE_BGR;
+	default:
+	    return BufferedImage.TYPE_4BYTE_ABGR;
+	}
+    }
+
+    private void readPngRow(BufferedImage band, int bandRow) throws IOException {
+	int filter = pngRows.readUnsignedByte();
+	pngRows.readFully(currentRow);
+	unfilter(filter, currentRow, previousRow, bytesPerPixel);
+
+	byte[] samples = ((DataBufferByte) band.getRaster().getDataBuffer()).getData();
+	int offset = bandRow * width * (pngColorType == 0 ? 1 : pngColorType == 2 ? 3 : 4);
+	int pixels = 0;
+	for (int x = 0; x < width; x++) {
+	    switch (pngColorType) {
+	    case 0:
+		samples[offset++] = currentRow[pixels++];
+		break;
+	    case 2:
+		// RGB to BGR
+		samples[offset++] = currentRow[pixels + 2];
+		samples[offset++] = currentRow[pixels + 1];
+		samples[offset++] = currentRow[pixels];
+		pixels += 3;
+		break;
+	    case 4:
+		// gray and alpha to ABGR
+		samples[offset++] = currentRow[pixels + 1];
+		samples[offset++] = currentRow[pixels];
+		samples[offset++] = currentRow[pixels];
+		samples[offset++] = currentRow[pixels];
+		pixels += 2;
+		break;
+	    default:
+		// RGBA to ABGR
+		samples[offset++] = currentRow[pixels + 3];
+		samples[offset++] = currentRow[pixels + 2];
+		samples[offset++] = currentRow[pixels + 1];
+		samples[offset++] = currentRow[pixels];
+		pixels += 4;
+		break;
+	    }
+	}
+
+	byte[] swap = previousRow;
+	previousRow = currentRow;
+	currentRow = swap;
+    }
+
+    private static void unfilter(int filter, byte[] row, byte[] previousRow, int bytesPerPixel) throws IOException {
+	switch (filter) {
+	case 0:
+	    break;
+	case 1:
+	    for (int i = bytesPerPixel; i < row.length; i++) {
+		row[i] += row[i - bytesPerPixel];
+	    }
+	    break;
+	case 2:
+	    for (int i = 0; i < row.length; i++) {
+		row[i] += previousRow[i];
+	    }
+	    break;
+	case 3:
+	    for (int i = 0; i < row.length; i++) {
+		int left = i >= bytesPerPixel ? row[i - bytesPerPixel] & 0xFF : 0;
+		row[i] += (byte) ((left + (previousRow[i] & 0xFF)) >>> 1);
+	    }
+	    break;
+	case 4:
+	    for (int i = 0; i < row.length; i++) {
+		int left = i >= bytesPerPixel ? row[i - bytesPerPixel] & 0xFF : 0;
+		int upLeft = i >= bytesPerPixel ? previousRow[i - bytesPerPixel] & 0xFF : 0;
+		row[i] += (byte) paethPredictor(left, previousRow[i] & 0xFF, upLeft);
+	    }
+	    break;
+	default:
+	    throw new IOException("Unknown PNG filter type [" + filter + "].");
+	}
+    }
+
+    private static int paethPredictor(int left, int up, int upLeft) {
+	int estimate = left + up - upLeft;
+	int leftDistance = Math.abs(estimate - left);
+	int upDistance = Math.abs(estimate - up);
+	int upLeftDistance = Math.abs(estimate - upLeft);
+	if (leftDistance <= upDistance && leftDistance <= upLeftDistance) {
+	    return left;
+	} else if (upDistance <= upLeftDistance) {
+	    return up;
+	}
+	return upLeft;
+    }
+
+    /**
+     * Streams the concatenated data of all the IDAT chunks of a PNG file, whose
+     * IHDR chunk was already read.
+     */
+    private static class IdatInputStream extends InputStream {
+	private final DataInputStream png;
+	private int remainingChunkBytes = 0;
+	private boolean isEnded = false;
+
+	private IdatInputStream(DataInputStream png) {
+	    this.png = png;
+	}
+
+	@Override
+	public int read() throws IOException {
+	    byte[] single = new byte[1];
+	    return read(single, 0, 1) < 0 ? -1 : single[0] & 0xFF;
+	}
+
+	@Override
+	public int read(byte[] buffer, int offset, int length) throws IOException {
+	    while (remainingChunkBytes == 0) {
+		if (isEnded || !nextIdatChunk()) {
+		    isEnded = true;
+		    return -1;
+		}
+	    }
+	    int read = png.read(buffer, offset, Math.min(length, remainingChunkBytes));
+	    if (read < 0) {
+		throw new EOFException("The PNG image data is truncated.");
+	    }
+	    remainingChunkBytes -= read;
+	    if (remainingChunkBytes == 0) {
+		// the CRC of the chunk
+		skipFully(png, 4);
+	    }
+	    return read;
+	}
+
+	private boolean nextIdatChunk() throws IOException {
+	    while (true) {
+		int length = png.readInt();
+		int type = png.readInt();
+		if (type == 0x49444154) {
+		    remainingChunkBytes = length;
+		    if (length == 0) {
+			skipFully(png, 4);
+			continue;
+		    }
+		    return true;
+		} else if (type == 0x49454E44) {
+		    return false;
+		}
+		skipFully(png, length + 4L);
+	    }
+	}
+
+	@Override
+	public void close() throws IOException {
+	    png.close();
+	}
+    }
+}
@@ -0,0 +1,151 @@
+package com.shaft.gui.image;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.imageio.ImageIO;
+
+import org.openqa.selenium.By;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.OutputType;
+import org.openqa.selenium.TakesScreenshot;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+
+import com.shaft.cli.FileActions;
+
+/**
+ * Stores the screenshots of the identified elements that are used for AI
+ * supported element identification, incrementally.
+ *
+ * An in-memory index remembers, for every stored element, the page state in
+ * which it was last seen and the perceptual hash of its stored screenshot. An
+ * element that is identified again in the same page state isn't captured at
+ * all. Otherwise its screenshot is captured, and then cropped, hashed, and
+ * compared to the stored one in the background; the stored file is only
+ * replaced if the element looks different now.
+ */
+class ElementScreenshotStore {
+    private static final String FOLDERPATH = "src/test/resources/elementScreenshots/";
+    // the number of the 64 hash bits that may differ before an element is
+    // considered to look different
+    private static final int MAXIMUM_HASH_DISTANCE = 5;
+    private static final String JS_RETRIEVE_ELEMENT_RECT = "var rect = arguments[0].getBoundingClientRect(); return [rect.left, rect.top, rect.width, rect.height, window.devicePixelRatio || 1];";
+
+    private static Map<String, IndexEntry> index = new ConcurrentHashMap<>();
+
+    private static class IndexEntry {
+	private volatile String pageState;
+	private volatile Long perceptualHash;
+    }
+
+    private ElementScreenshotStore() {
+	throw new IllegalStateException("Utility class");
+    }
+
+    /**
+     * Stores the screenshot of a unique element, unless it was already stored in
+     * the same page state, or still looks the same as the stored one.
+     *
+     * @param driver         the current instance of Selenium webdriver
+     * @param elementLocator the locator of the unique webElement
+     * @param pageState      the current page state, see
+     *                       {@link ScreenshotManager#JS_RETRIEVE_PAGE_STATE}, or
+     *                       null if it is unknown
+     */
+    static void store(WebDriver driver, By elementLocator, String pageState) {
+	String elementFileName = elementLocator.toString().replaceAll("[\\W\\s]", "_");
+	IndexEntry entry = index.computeIfAbsent(elementFileName, key -> new IndexEntry());
+	if (pageState != null && pageState.equals(entry.pageState)) {
+	    return;
+	}
+
+	// only the browser commands are performed on the test thread
+	WebElement element = driver.findElement(elementLocator);
+	List<?> rect = (List<?>) ((JavascriptExecutor) driver).executeScript(JS_RETRIEVE_ELEMENT_RECT, element);
+	byte[] screenshotBytes = ((TakesScreenshot) driver).getScreenshotAs(OutputType.BYTES);
+	entry.pageState = pageState;
+	FileActions.createFolder(FOLDERPATH);
+
+	ScreenshotPipeline.submit("storeElementScreenshot", () -> {
+	    BufferedImage elementImage = crop(Screenshot.fromBytes(screenshotBytes).getImage(), rect);
+	    if (elementImage == null) {
+		return;
+	    }
+	    Path elementFile = Paths.get(FOLDERPATH + elementFileName + ".png");
+	    long perceptualHash = getPerceptualHash(elementImage);
+	    Long storedHash = getStoredHash(entry, elementFile);
+	    if (storedHash == null || Long.bitCount(storedHash ^ perceptualHash) > MAXIMUM_HASH_DISTANCE) {
+		Files.write(elementFile, ScreenshotEncoder.encodePng(elementImage));
+		entry.perceptualHash = perceptualHash;
+	    }
+	});
+    }
+
+    private static BufferedImage crop(BufferedImage viewport, List<?> rect) {
+	double devicePixelRatio = ((Number) rect.get(4)).doubleValue();
+	int x = Math.max(0, (int) Math.round(((Number) rect.get(0)).doubleValue() * devicePixelRatio));
+	int y = Math.max(0, (int) Math.round(((Number) rect.get(1)).doubleValue() * devicePixelRatio));
+	int width = Math.min(viewport.getWidth() - x,
+		(int) Math.round(((Number) rect.get(2)).doubleValue() * devicePixelRatio));
+	int height = Math.min(viewport.getHeight() - y,
+		(int) Math.round(((Number) rect.get(3)).doubleValue() * devicePixelRatio));
+	if (width <= 0 || height <= 0) {
+	    // the element isn't inside the viewport
+	    return null;
+	}
+	return viewport.getSubimage(x, y, width, height);
+    }
+
+    private static Long getStoredHash(IndexEntry entry, Path elementFile) throws IOException {
+	if (entry.perceptualHash == null && Files.exists(elementFile)) {
+	    // stored by a previous execution, so it is hashed once
+	    BufferedImage storedImage = ImageIO.read(elementFile.toFile());
+	    if (storedImage != null) {
+		entry.perceptualHash = getPerceptualHash(storedImage);
+	    }
+	}
+	return entry.perceptualHash;
+    }
+
+    /**
+     * Calculates the difference hash of an image; the image is shrunk to 9x8
+     * cells of average brightness, and every bit tells whether a cell is brighter
+     * than the cell to its right. Similar images have hashes that differ in few
+     * bits.
+     */
+    private static long getPerceptualHash(BufferedImage image) {
+	int width = image.getWidth();
+	int height = image.getHeight();
+	long[] brightness = new long[9 * 8];
+	long[] pixelCount = new long[9 * 8];
+	int[] row = new int[width];
+	for (int y = 0; y < height; y++) {
+	    image.getRGB(0, y, width, 1, row, 0, width);
+	    int cellRow = y * 8 / height;
+	    for (int x = 0; x < width; x++) {
+		int cell = cellRow * 9 + x * 9 / width;
+		int pixel = row[x];
+		brightness[cell] += ((pixel >> 16) & 0xFF) * 299 + ((pixel >> 8) & 0xFF) * 587 + (pixel & 0xFF) * 114;
+		pixelCount[cell]++;
+	    }
+	}
+
+	long hash = 0;
+	for (int cellRow = 0; cellRow < 8; cellRow++) {
+	    for (int cellColumn = 0; cellColumn < 8; cellColumn++) {
+		int cell = cellRow * 9 + cellColumn;
+		long left = brightness[cell] / Math.max(1, pixelCount[cell]);
+		long right = brightness[cell + 1] / Math.max(1, pixelCount[cell + 1]);
+		hash = (hash << 1) | (left > right ? 1 : 0);
+	    }
+	}
+	return hash;
+    }
+}
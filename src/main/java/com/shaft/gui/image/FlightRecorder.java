@@ -0,0 +1,100 @@
+package com.shaft.gui.image;
+
+import java.nio.ByteBuffer;
+import java.util.function.BiConsumer;
+
+/**
+ * Keeps the last few screenshots of the current test in memory, so that they
+ * can be attached to the report if the test fails, and thrown away if it
+ * passes.
+ *
+ * Each test thread has its own ring buffer of PNG frames. The frames are kept
+ * in direct byte buffers outside of the Java heap, and every slot reuses its
+ * buffer for the next frames as long as they fit, so recording long suites
+ * neither piles up garbage nor grows the heap.
+ */
+class FlightRecorder {
+    private static final int MAXIMUM_FRAMES = Math.max(1,
+	    Integer.parseInt(System.getProperty("screenshotParams_flightRecorderFrames").trim()));
+
+    private static ThreadLocal<FlightRecorder> recorders = ThreadLocal.withInitial(FlightRecorder::new);
+
+    private final ByteBuffer[] frames = new ByteBuffer[MAXIMUM_FRAMES];
+    private final String[] frameNames = new String[MAXIMUM_FRAMES];
+    private int nextFrame = 0;
+    private int recordedFrames = 0;
+    private String lastPageState = null;
+
+    private FlightRecorder() {
+    }
+
+    /**
+     * Records a frame for the current thread, replacing its oldest frame if the
+     * buffer is full.
+     *
+     * @param frameName the name of the action that the frame belongs to
+     * @param pageState the state of the page when the frame was captured, a
+     *                  frame of the same state as the last one is not recorded
+     *                  again, or null if it is unknown
+     * @param pngBytes  the PNG bytes of the frame
+     */
+    static void record(String frameName, String pageState, byte[] pngBytes) {
+	recorders.get().recordFrame(frameName, pageState, pngBytes);
+    }
+
+    /**
+     * @param pageState the current state of the page, or null if it is unknown
+     * @return true if the last frame of the current thread was captured in the
+     *         same page state, so there is no need to capture it again
+     */
+    static boolean isRecorded(String pageState) {
+	return pageState != null && pageState.equals(recorders.get().lastPageState);
+    }
+
+    /**
+     * Hands all the frames of the current thread over, from the oldest to the
+     * newest, and then empties its buffer.
+     *
+     * @param frameConsumer receives the name and the PNG bytes of each frame
+     */
+    static void flush(BiConsumer<String, byte[]> frameConsumer) {
+	FlightRecorder recorder = recorders.get();
+	int firstFrame = (recorder.nextFrame - recorder.recordedFrames + MAXIMUM_FRAMES) % MAXIMUM_FRAMES;
+	for (int i = 0; i < recorder.recordedFrames; i++) {
+	    int frame = (firstFrame + i) % MAXIMUM_FRAMES;
+	    ByteBuffer frameBuffer = recorder.frames[frame].duplicate();
+	    frameBuffer.flip();
+	    byte[] pngBytes = new byte[frameBuffer.remaining()];
+	    frameBuffer.get(pngBytes);
+	    frameConsumer.accept("[" + (i + 1) + "/" + recorder.recordedFrames + "] " + recorder.frameNames[frame],
+		    pngBytes);
+	}
+	discard();
+    }
+
+    /**
+     * Empties the buffer of the current thread, while keeping its memory for the
+     * next test.
+     */
+    static void discard() {
+	FlightRecorder recorder = recorders.get();
+	recorder.recordedFrames = 0;
+	recorder.nextFrame = 0;
+	recorder.lastPageState = null;
+    }
+
+    private void recordFrame(String frameName, String pageState, byte[] pngBytes) {
+	ByteBuffer frameBuffer = frames[nextFrame];
+	if (frameBuffer == null || frameBuffer.capacity() < pngBytes.length) {
+	    // some headroom, so that slightly larger frames still fit
+	    frameBuffer = ByteBuffer.allocateDirect(pngBytes.length + pngBytes.length / 4);
+	    frames[nextFrame] = frameBuffer;
+	}
+	frameBuffer.clear();
+	frameBuffer.put(pngBytes);
+	frameNames[nextFrame] = frameName;
+	nextFrame = (nextFrame + 1) % MAXIMUM_FRAMES;
+	recordedFrames = Math.min(recordedFrames + 1, MAXIMUM_FRAMES);
+	lastPageState = pageState;
+    }
+}
@@ -14,80 +14,226 @@ package com.shaft.gui.image;
 import javax.imageio.*;
 import javax.imageio.metadata.*;
 import javax.imageio.stream.*;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
 import java.awt.image.*;
 import java.io.*;
 import java.util.Iterator;
 
+/**
+ * Writes the frames of an animated GIF as deltas of each other. Every frame is
+ * mapped to a fixed palette that is shared by all the frames, a frame that
+ * looks exactly like the previous one is skipped, and only the rectangle that
+ * changed since the previous frame is written. The pixels of that rectangle that
+ * didn't change are left transparent, so that they compress well and show the
+ * previous frame through them.
+ */
 public class GifSequenceWriter {
+    // 6 levels of red, 7 of green and 6 of blue, the last palette entry is the
+    // transparent color
+    private static final int RED_LEVELS = 6;
+    private static final int GREEN_LEVELS = 7;
+    private static final int BLUE_LEVELS = 6;
+    private static final int TRANSPARENT_INDEX = 255;
+    private static final IndexColorModel PALETTE = createPalette();
+
     private ImageWriter gifWriter;
     private ImageWriteParam imageWriteParam;
-    private IIOMetadata imageMetaData;
+    private int delayTime;
+    private boolean loopContinuously;
+    private double scale;
+
+    private int canvasWidth = 0;
+    private int canvasHeight = 0;
+    private byte[] previousFrame = null;
 
     /**
      * Creates a new GifSequenceWriter
      * 
      * @param outputStream        the ImageOutputStream to be written to
-     * @param imageType           one of the imageTypes specified in BufferedImage
      * @param timeBetweenFramesMS the time between frames in milliseconds
      * @param loopContinuously    whether the gif should loop repeatedly
+     * @param scale               the scale of the frames compared to the images
+     *                            that are written, between 0 (exclusive) and 1
      * @throws IOException if no gif ImageWriters are found
      *
      */
-    protected GifSequenceWriter(ImageOutputStream outputStream, int imageType, int timeBetweenFramesMS,
-	    boolean loopContinuously) throws IOException {
+    protected GifSequenceWriter(ImageOutputStream outputStream, int timeBetweenFramesMS, boolean loopContinuously,
+	    double scale) throws IOException {
 	// my method to create a writer
 	gifWriter = getWriter();
 	imageWriteParam = gifWriter.getDefaultWriteParam();
-	ImageTypeSpecifier imageTypeSpecifier = ImageTypeSpecifier.createFromBufferedImageType(imageType);
+	this.delayTime = timeBetweenFramesMS / 10;
+	this.loopContinuously = loopContinuously;
+	this.scale = (scale > 0 && scale < 1) ? scale : 1;
+
+	gifWriter.setOutput(outputStream);
+
+	gifWriter.prepareWriteSequence(null);
+    }
+
+    /**
+     * Appends an image to the animated GIF, unless it looks exactly like the
+     * previous one. The size of the animation is decided by its first image, and
+     * any later images are drawn on a canvas of that size.
+     * 
+     * @param img the image that should be appended
+     * @throws IOException if an error occurs during writing.
+     */
+    protected void writeToSequence(BufferedImage img) throws IOException {
+	if (previousFrame == null) {
+	    canvasWidth = Math.max(1, (int) Math.round(img.getWidth() * scale));
+	    canvasHeight = Math.max(1, (int) Math.round(img.getHeight() * scale));
+	}
+	byte[] frame = quantize(drawOnCanvas(img));
+
+	if (previousFrame == null) {
+	    writeFrame(frame, 0, 0, canvasWidth, canvasHeight, true);
+	    previousFrame = frame;
+	    return;
+	}
+
+	// the bounding rectangle of the pixels that changed since the previous frame
+	int minX = canvasWidth;
+	int minY = canvasHeight;
+	int maxX = -1;
+	int maxY = -1;
+	for (int y = 0; y < canvasHeight; y++) {
+	    int rowStart = y * canvasWidth;
+	    for (int x = 0; x < canvasWidth; x++) {
+		if (frame[rowStart + x] != previousFrame[rowStart + x]) {
+		    minX = Math.min(minX, x);
+		    maxX = Math.max(maxX, x);
+		    minY = Math.min(minY, y);
+		    maxY = y;
+		}
+	    }
+	}
+	if (maxX < 0) {
+	    // nothing changed, so there is nothing to show
+	    return;
+	}
+
+	int width = maxX - minX + 1;
+	int height = maxY - minY + 1;
+	byte[] delta = new byte[width * height];
+	for (int y = 0; y < height; y++) {
+	    int rowStart = (minY + y) * canvasWidth + minX;
+	    for (int x = 0; x < width; x++) {
+		byte index = frame[rowStart + x];
+		delta[y * width + x] = index == previousFrame[rowStart + x] ? (byte) TRANSPARENT_INDEX : index;
+	    }
+	}
+	writeFrame(delta, minX, minY, width, height, false);
+	previousFrame = frame;
+    }
+
+    /**
+     * Close this GifSequenceWriter object. This does not close the underlying
+     * stream, just finishes off the GIF.
+     * 
+     * @throws IOException if an error occurs during writing.
+     */
+    protected void close() throws IOException {
+	gifWriter.endWriteSequence();
+    }
+
+    private int[] drawOnCanvas(BufferedImage img) {
+	BufferedImage canvas = new BufferedImage(canvasWidth, canvasHeight, BufferedImage.TYPE_INT_RGB);
+	Graphics2D canvasGraphics = canvas.createGraphics();
+	canvasGraphics.setBackground(Color.WHITE);
+	canvasGraphics.clearRect(0, 0, canvasWidth, canvasHeight);
+	canvasGraphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+	canvasGraphics.drawImage(img, 0, 0, (int) Math.round(img.getWidth() * scale),
+		(int) Math.round(img.getHeight() * scale), null);
+	canvasGraphics.dispose();
+	return ((DataBufferInt) canvas.getRaster().getDataBuffer()).getData();
+    }
+
+    private static byte[] quantize(int[] pixels) {
+	byte[] indices = new byte[pixels.length];
+	for (int i = 0; i < pixels.length; i++) {
+	    int red = (pixels[i] >> 16) & 0xFF;
+	    int green = (pixels[i] >> 8) & 0xFF;
+	    int blue = pixels[i] & 0xFF;
+	    indices[i] = (byte) ((red * (RED_LEVELS - 1) + 127) / 255 * GREEN_LEVELS * BLUE_LEVELS
+		    + (green * (GREEN_LEVELS - 1) + 127) / 255 * BLUE_LEVELS + (blue * (BLUE_LEVELS - 1) + 127) / 255);
+	}
+	return indices;
+    }
+
+    private static IndexColorModel createPalette() {
+	byte[] reds = new byte[256];
+	byte[] greens = new byte[256];
+	byte[] blues = new byte[256];
+	int index = 0;
+	for (int red = 0; red < RED_LEVELS; red++) {
+	    for (int green = 0; green < GREEN_LEVELS; green++) {
+		for (int blue = 0; blue < BLUE_LEVELS; blue++) {
+		    reds[index] = (byte) (red * 255 / (RED_LEVELS - 1));
+		    greens[index] = (byte) (green * 255 / (GREEN_LEVELS - 1));
+		    blues[index] = (byte) (blue * 255 / (BLUE_LEVELS - 1));
+		    index++;
+		}
+	    }
+	}
+	return new IndexColorModel(8, 256, reds, greens, blues, TRANSPARENT_INDEX);
+    }
+
+    private void writeFrame(byte[] indices, int left, int top, int width, int height, boolean isFirstFrame)
+	    throws IOException {
+	BufferedImage frame = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_INDEXED, PALETTE);
+	System.arraycopy(indices, 0, ((DataBufferByte) frame.getRaster().getDataBuffer()).getData(), 0,
+		indices.length);
+	gifWriter.writeToSequence(new IIOImage(frame, null, getFrameMetadata(frame, left, top, isFirstFrame)),
+		imageWriteParam);
+    }
 
-	imageMetaData = gifWriter.getDefaultImageMetadata(imageTypeSpecifier, imageWriteParam);
+    private IIOMetadata getFrameMetadata(BufferedImage frame, int left, int top, boolean isFirstFrame)
+	    throws IIOInvalidTreeException {
+	IIOMetadata imageMetaData = gifWriter.getDefaultImageMetadata(new ImageTypeSpecifier(frame),
+		imageWriteParam);
 
 	String metaFormatName = imageMetaData.getNativeMetadataFormatName();
 
 	IIOMetadataNode root = (IIOMetadataNode) imageMetaData.getAsTree(metaFormatName);
 
+	IIOMetadataNode imageDescriptorNode = getNode(root, "ImageDescriptor");
+	imageDescriptorNode.setAttribute("imageLeftPosition", Integer.toString(left));
+	imageDescriptorNode.setAttribute("imageTopPosition", Integer.toString(top));
+	imageDescriptorNode.setAttribute("imageWidth", Integer.toString(frame.getWidth()));
+	imageDescriptorNode.setAttribute("imageHeight", Integer.toString(frame.getHeight()));
+
 	IIOMetadataNode graphicsControlExtensionNode = getNode(root, "GraphicControlExtension");
 
-	graphicsControlExtensionNode.setAttribute("disposalMethod", "none");
+	// every frame is drawn on top of the previous ones
+	graphicsControlExtensionNode.setAttribute("disposalMethod", "doNotDispose");
 	graphicsControlExtensionNode.setAttribute("userInputFlag", "FALSE");
-	graphicsControlExtensionNode.setAttribute("transparentColorFlag", "FALSE");
-	graphicsControlExtensionNode.setAttribute("delayTime", Integer.toString(timeBetweenFramesMS / 10));
-	graphicsControlExtensionNode.setAttribute("transparentColorIndex", "0");
+	graphicsControlExtensionNode.setAttribute("transparentColorFlag", isFirstFrame ? "FALSE" : "TRUE");
+	graphicsControlExtensionNode.setAttribute("delayTime", Integer.toString(delayTime));
+	graphicsControlExtensionNode.setAttribute("transparentColorIndex", Integer.toString(TRANSPARENT_INDEX));
 
-	IIOMetadataNode commentsNode = getNode(root, "CommentExtensions");
-	commentsNode.setAttribute("CommentExtension", "Created by MAH");
+	if (isFirstFrame) {
+	    IIOMetadataNode commentsNode = getNode(root, "CommentExtensions");
+	    commentsNode.setAttribute("CommentExtension", "Created by MAH");
 
-	IIOMetadataNode appEntensionsNode = getNode(root, "ApplicationExtensions");
+	    // the loop extension is only needed once per animation
+	    IIOMetadataNode appEntensionsNode = getNode(root, "ApplicationExtensions");
 
-	IIOMetadataNode child = new IIOMetadataNode("ApplicationExtension");
+	    IIOMetadataNode child = new IIOMetadataNode("ApplicationExtension");
 
-	child.setAttribute("applicationID", "NETSCAPE");
-	child.setAttribute("authenticationCode", "2.0");
+	    child.setAttribute("applicationID", "NETSCAPE");
+	    child.setAttribute("authenticationCode", "2.0");
 
-	int loop = loopContinuously ? 0 : 1;
+	    int loop = loopContinuously ? 0 : 1;
 
-	child.setUserObject(new byte[] { 0x1, (byte) (loop & 0xFF), (byte) ((loop >> 8) & 0xFF) });
-	appEntensionsNode.appendChild(child);
+	    child.setUserObject(new byte[] { 0x1, (byte) (loop & 0xFF), (byte) ((loop >> 8) & 0xFF) });
+	    appEntensionsNode.appendChild(child);
+	}
 
 	imageMetaData.setFromTree(metaFormatName, root);
-
-	gifWriter.setOutput(outputStream);
-
-	gifWriter.prepareWriteSequence(null);
-    }
-
-    protected void writeToSequence(RenderedImage img) throws IOException {
-	gifWriter.writeToSequence(new IIOImage(img, null, imageMetaData), imageWriteParam);
-    }
-
-    /**
-     * Close this GifSequenceWriter object. This does not close the underlying
-     * stream, just finishes off the GIF.
-     * 
-     * @throws IOException if an error occurs during writing.
-     */
-    protected void close() throws IOException {
-	gifWriter.endWriteSequence();
+	return imageMetaData;
     }
 
     /**
@@ -0,0 +1,114 @@
+package com.shaft.gui.image;
+
+import java.awt.Rectangle;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Keeps the regions of a screenshot that should be ignored by image
+ * comparison inside the PNG file itself, as a text chunk, so that they travel
+ * with the screenshot when it is copied to a reference or a test folder.
+ */
+class IgnoredRegions {
+    private static final String KEYWORD = "SHAFT ignoredRegions";
+    private static final byte[] PNG_SIGNATURE = { (byte) 137, 80, 78, 71, 13, 10, 26, 10 };
+    // the signature, and the length, type, data, and CRC of the IHDR chunk
+    private static final int IHDR_END = 8 + 4 + 4 + 13 + 4;
+    private static final int TEXT_CHUNK_TYPE = 0x74455874;
+    private static final int IDAT_CHUNK_TYPE = 0x49444154;
+
+    private IgnoredRegions() {
+	throw new IllegalStateException("Utility class");
+    }
+
+    /**
+     * @param png            the bytes of a PNG file
+     * @param ignoredRegions the regions of the image that should be ignored
+     * @return the bytes of the same PNG file, with the ignored regions added
+     *         right after its header, or the same bytes if there are none
+     * @throws IOException if the bytes are not a PNG file
+     */
+    static byte[] embed(byte[] png, List<Rectangle> ignoredRegions) throws IOException {
+	if (ignoredRegions.isEmpty()) {
+	    return png;
+	}
+	if (png.length < IHDR_END || !Arrays.equals(Arrays.copyOf(png, PNG_SIGNATURE.length), PNG_SIGNATURE)) {
+	    throw new IOException("The screenshot is not a PNG image.");
+	}
+	StringBuilder text = new StringBuilder();
+	for (Rectangle ignoredRegion : ignoredRegions) {
+	    text.append(text.length() == 0 ? "" : ";").append(ignoredRegion.x).append(",").append(ignoredRegion.y)
+		    .append(",").append(ignoredRegion.width).append(",").append(ignoredRegion.height);
+	}
+
+	ByteArrayOutputStream embedded = new ByteArrayOutputStream(png.length + 64);
+	embedded.write(png, 0, IHDR_END);
+	PngEncoder.writeChunk(embedded, "tEXt", KEYWORD.getBytes(StandardCharsets.ISO_8859_1), new byte[] { 0 },
+		text.toString().getBytes(StandardCharsets.ISO_8859_1));
+	embedded.write(png, IHDR_END, png.length - IHDR_END);
+	return embedded.toByteArray();
+    }
+
+    /**
+     * Reads the ignored regions of an image file, looking only at the chunks
+     * before the image data.
+     *
+     * @param imageFile the image file
+     * @return the regions that should be ignored, which are empty if the file is
+     *         not a PNG file or has none
+     * @throws IOException if the file could not be read
+     */
+    static List<Rectangle> read(File imageFile) throws IOException {
+	List<Rectangle> ignoredRegions = new ArrayList<>();
+	try (DataInputStream input = new DataInputStream(
+		new BufferedInputStream(Files.newInputStream(imageFile.toPath())))) {
+	    byte[] signature = new byte[PNG_SIGNATURE.length];
+	    input.readFully(signature);
+	    if (!Arrays.equals(signature, PNG_SIGNATURE)) {
+		return ignoredRegions;
+	    }
+	    while (true) {
+		int length = input.readInt();
+		int type = input.readInt();
+		if (type == IDAT_CHUNK_TYPE) {
+		    return ignoredRegions;
+		}
+		byte[] data = new byte[length];
+		input.readFully(data);
+		input.readInt();
+		if (type == TEXT_CHUNK_TYPE) {
+		    parse(new String(data, StandardCharsets.ISO_8859_1), ignoredRegions);
+		}
+	    }
+	} catch (EOFException e) {
+	    return ignoredRegions;
+	}
+    }
+
+    private static void parse(String text, List<Rectangle> ignoredRegions) {
+	if (!text.startsWith(KEYWORD + "\0")) {
+	    return;
+	}
+	for (String region : text.substring(KEYWORD.length() + 1).split(";")) {
+	    String[] bounds = region.split(",");
+	    if (bounds.length == 4) {
+		try {
+		    ignoredRegions.add(new Rectangle(Integer.parseInt(bounds[0].trim()),
+			    Integer.parseInt(bounds[1].trim()), Integer.parseInt(bounds[2].trim()),
+			    Integer.parseInt(bounds[3].trim())));
+		} catch (NumberFormatException e) {
+		    // a region that can't be read is simply compared
+		}
+	    }
+	}
+    }
+}
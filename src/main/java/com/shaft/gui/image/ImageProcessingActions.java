@@ -1,12 +1,18 @@
 package com.shaft.gui.image;
 
+import java.awt.Rectangle;
 import java.awt.image.BufferedImage;
-import java.awt.image.DataBuffer;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
-import java.nio.file.FileSystems;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import javax.imageio.ImageIO;
 
@@ -22,68 +28,71 @@ public class ImageProcessingActions {
 	throw new IllegalStateException("Utility class");
     }
 
+    /**
+     * The result of comparing one test image against its reference image.
+     */
+    private static class ImageComparison {
+	private final File refrenceFile;
+	private final File testFile;
+	private double percentage = 0;
+	private Rectangle differingRegion = null;
+	private List<Rectangle> ignoredRegions = Collections.emptyList();
+	private boolean isComplete = true;
+	private boolean isSameSize = true;
+	private IOException failure = null;
+
+	private ImageComparison(File refrenceFile, File testFile) {
+	    this.refrenceFile = refrenceFile;
+	    this.testFile = testFile;
+	}
+    }
+
     public static void compareImageFolders(String refrenceFolderPath, String testFolderPath, double threshhold) {
+	compareImageFolders(refrenceFolderPath, testFolderPath, threshhold, Collections.emptyList());
+    }
 
-	try {
-	    long fileCounter = 1;
+    /**
+     * Compares every image in the test folder against the image with the same
+     * order in the reference folder, according to the imageComparison_method
+     * property, and fails if any of them matches by less than the threshold.
+     * The ignored regions of each pair are those passed here, plus those that
+     * were captured with its screenshots, see
+     * {@link ScreenshotManager#ignoreElementsInImageComparison}. A diff image of
+     * every failed pair is attached to the report.
+     * 
+     * @param refrenceFolderPath the folder of the reference images
+     * @param testFolderPath     the folder of the test images
+     * @param threshhold         the minimum percentage of matching pixels
+     * @param ignoredRegions     the regions, in image pixels, that should not be
+     *                           compared in any pair
+     */
+    public static void compareImageFolders(String refrenceFolderPath, String testFolderPath, double threshhold,
+	    List<Rectangle> ignoredRegions) {
 
+	try {
 	    File refrenceFolder = new File(refrenceFolderPath);
 	    File testFolder = new File(testFolderPath);
 
-	    // cleaning processing folders
-	    FileActions.deleteFolder(refrenceFolder.getAbsolutePath() + "/processingDirectory/");
-	    FileActions.deleteFolder(testFolder.getAbsolutePath() + "/processingDirectory/");
+	    // cleaning the failed images of the previous comparison
 	    FileActions.deleteFolder(testFolder.getAbsolutePath() + "/failedImagesDirectory/");
 
-	    // preparing objects for files
-	    File[] refrenceFiles = refrenceFolder.listFiles();
-	    File[] testFiles = testFolder.listFiles();
+	    // preparing objects for files, skipping any folders
+	    File[] refrenceFiles = refrenceFolder.listFiles(File::isFile);
+	    File[] testFiles = testFolder.listFiles(File::isFile);
 
 	    ReportManager.log("Comparing [" + testFiles.length + "] image files from the testFolder ["
 		    + testFolder.getPath() + "] against [" + refrenceFiles.length
 		    + "] image files from the refrenceFolder [" + testFolder.getPath() + "]");
 
-	    // sorting objects for files by fileName
+	    // sorting objects for files by fileName, so that they are paired in order
 	    Arrays.sort(refrenceFiles);
 	    Arrays.sort(testFiles);
 
 	    // confirming that the number of screenshots match
 	    if (refrenceFiles.length == testFiles.length) {
-		// copy and rename reference screenshots to a processing directory
-		for (File refrenceScreenshot : refrenceFiles) {
-		    FileActions.copyFile(refrenceScreenshot.getAbsolutePath(),
-			    refrenceScreenshot.getParent() + "/processingDirectory/" + fileCounter);
-		    fileCounter++;
-		}
-
-		// copy and rename test screenshots to match reference screenshots in a
-		// processing directory
-
-		fileCounter = 1;
-		for (File testScreenshot : testFiles) {
-		    FileActions.copyFile(testScreenshot.getAbsolutePath(),
-			    testScreenshot.getParent() + "/processingDirectory/" + fileCounter);
-		    fileCounter++;
-		}
-
-		// point to the two new processing directories
-		File refrenceProcessingFolder = new File(refrenceFolderPath + "/processingDirectory/");
-		File testProcessingFolder = new File(testFolderPath + "/processingDirectory/");
-
-		// preparing objects for files
-		File[] testProcessingFiles = testProcessingFolder.listFiles();
-
-		// sorting objects for files by fileName
-		Arrays.sort(testProcessingFiles);
-
 		// compare images from the test directory against the reference directory
-		compareImageFolders(refrenceFiles, testFiles, testProcessingFiles, refrenceProcessingFolder,
-			testProcessingFolder, threshhold);
-
-		// cleaning processing folders
-		FileActions.deleteFolder(refrenceFolder.getAbsolutePath() + "/processingDirectory/");
-		FileActions.deleteFolder(testFolder.getAbsolutePath() + "/processingDirectory/");
-
+		compareImageFolders(refrenceFolder, refrenceFiles, testFiles, testFolder, threshhold,
+			ignoredRegions);
 	    } else {
 		// fail because the number of screenshots don't match
 		// refrenceFiles.length == testFiles.length
@@ -101,78 +110,183 @@ public class ImageProcessingActions {
 	}
     }
 
-    private static void compareImageFolders(File[] refrenceFiles, File[] testFiles, File[] testProcessingFiles,
-	    File refrenceProcessingFolder, File testProcessingFolder, double threshhold) throws IOException {
+    private static void compareImageFolders(File refrenceFolder, File[] refrenceFiles, File[] testFiles,
+	    File testFolder, double threshhold, List<Rectangle> ignoredRegions) throws IOException {
 	int passedImagesCount = 0;
 	int failedImagesCount = 0;
 
-	// compare images from the test directory against the reference directory
-	for (File screenshot : testProcessingFiles) {
-	    float percentage = 0;
-	    // take buffer data from both image files //
-
-	    BufferedImage biA = ImageIO.read(screenshot);
-	    DataBuffer dbA = biA.getData().getDataBuffer();
-	    float sizeA = dbA.getSize();
-
-	    BufferedImage biB = ImageIO.read(new File(
-		    refrenceProcessingFolder + FileSystems.getDefault().getSeparator() + screenshot.getName()));
-	    DataBuffer dbB = biB.getData().getDataBuffer();
-	    float sizeB = dbB.getSize();
-	    float count = 0;
-
-	    // compare data-buffer objects //
-	    if (sizeA == sizeB) {
-
-		for (int i = 0; i < sizeA; i++) {
-
-		    if (dbA.getElem(i) == dbB.getElem(i)) {
-			count = count + 1;
-		    }
+	// compare all the pairs in parallel, then report them in order on this thread
+	TileHashIndex tileHashIndex = TileHashIndex.load(refrenceFolder);
+	List<ImageComparison> comparisons = compareImagePairs(refrenceFiles, testFiles, tileHashIndex, threshhold,
+		ignoredRegions);
+	try {
+	    tileHashIndex.save(refrenceFiles);
+	} catch (IOException e) {
+	    // the comparison is still valid, the index will be rebuilt next time
+	    ReportManager.log(e);
+	}
 
-		}
-		percentage = (count * 100) / sizeA;
-	    } else {
+	for (ImageComparison comparison : comparisons) {
+	    if (comparison.failure != null) {
+		throw comparison.failure;
+	    }
+	    if (!comparison.isSameSize) {
 		ReportManager.log("Both the images are not of same size");
 	    }
 
-	    // fetch the related reference screenshot file name using the current file
-	    // name/number as index
-	    String relatedReferenceFileName = refrenceFiles[Integer.parseInt(screenshot.getName()) - 1].getName();
-	    ReportManager.attachAsStep("Reference Screenshot", relatedReferenceFileName, new FileInputStream(new File(
-		    refrenceProcessingFolder + FileSystems.getDefault().getSeparator() + screenshot.getName())));
+	    String relatedReferenceFileName = comparison.refrenceFile.getName();
+	    ReportManager.attachAsStep("Reference Screenshot", relatedReferenceFileName,
+		    new FileInputStream(comparison.refrenceFile));
 
-	    String relatedTestFileName = testFiles[Integer.parseInt(screenshot.getName()) - 1].getName();
+	    String relatedTestFileName = comparison.testFile.getName();
 
-	    ReportManager.attachAsStep("Test Screenshot", relatedTestFileName, new FileInputStream(screenshot));
+	    ReportManager.attachAsStep("Test Screenshot", relatedTestFileName,
+		    new FileInputStream(comparison.testFile));
 
 	    ReportManager.log("Test Screenshot [" + relatedTestFileName + "] and related Refrence Image ["
-		    + relatedReferenceFileName + "] match by [" + percentage + "] percent.");
+		    + relatedReferenceFileName + "] match by [" + (comparison.isComplete ? "" : "at most ")
+		    + comparison.percentage + "] percent.");
+	    if (comparison.differingRegion != null) {
+		Rectangle region = comparison.differingRegion;
+		ReportManager.log("The images differ within the region of [" + region.width + "x" + region.height
+			+ "] pixels at [" + region.x + ", " + region.y + "]"
+			+ (comparison.isComplete ? "." : ", at least; the comparison stopped below the threshold."));
+	    }
 
 	    Boolean discreetLoggingState = ReportManager.isDiscreteLogging();
 	    try {
 		// add to pass/fail counter depending on assertion result, without logging
 		ReportManager.setDiscreteLogging(true);
-		Assertions.assertComparativeRelation(threshhold, percentage, ">=", true);
+		Assertions.assertComparativeRelation(threshhold, comparison.percentage, ">=", true);
 		ReportManager.setDiscreteLogging(discreetLoggingState);
 		passedImagesCount++;
 	    } catch (AssertionError e) {
 		ReportManager.setDiscreteLogging(discreetLoggingState);
 		// copying image to failed images directory
-		FileActions.copyFile(screenshot.getAbsolutePath(), testProcessingFolder.getParent()
+		FileActions.copyFile(comparison.testFile.getAbsolutePath(), testFolder.getAbsolutePath()
 			+ "/failedImagesDirectory/" + relatedTestFileName + "_testImage");
-		FileActions.copyFile(
-			refrenceProcessingFolder + FileSystems.getDefault().getSeparator() + screenshot.getName(),
-			testProcessingFolder.getParent() + "/failedImagesDirectory/" + relatedTestFileName
-				+ "_refrenceImage");
+		FileActions.copyFile(comparison.refrenceFile.getAbsolutePath(), testFolder.getAbsolutePath()
+			+ "/failedImagesDirectory/" + relatedTestFileName + "_refrenceImage");
+		writeDiffImage(comparison, new File(testFolder.getAbsolutePath() + "/failedImagesDirectory/"
+			+ relatedTestFileName + "_diffImage.png"), relatedTestFileName);
 		failedImagesCount++;
 	    }
 
-	    Verifications.verifyComparativeRelation(threshhold, percentage, ">=", true);
+	    Verifications.verifyComparativeRelation(threshhold, comparison.percentage, ">=", true);
 	}
 
 	ReportManager.log("[" + passedImagesCount + "] images passed, and [" + failedImagesCount
 		+ "] images failed the threshold of [" + threshhold + "%] matching.");
 
     }
+
+    /**
+     * Compares every test image against the reference image at the same index
+     * on a fork-join pool sized to the available cores, reading both images in
+     * place. Exact comparisons without ignored regions only compare the tiles
+     * whose hashes differ from the tile hash index of the reference folder, and
+     * stop comparing a pair once it can no longer meet the threshold.
+     * 
+     * @return the comparison of every pair, in the same order as the files
+     */
+    private static List<ImageComparison> compareImagePairs(File[] refrenceFiles, File[] testFiles,
+	    TileHashIndex tileHashIndex, double threshhold, List<Rectangle> ignoredRegions) throws IOException {
+	ForkJoinPool comparisonPool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+	try {
+	    return comparisonPool.submit(() -> IntStream.range(0, testFiles.length).parallel()
+		    .mapToObj(index -> compareImagePair(refrenceFiles[index], testFiles[index], tileHashIndex,
+			    threshhold, ignoredRegions))
+		    .collect(Collectors.toList())).get();
+	} catch (InterruptedException e) {
+	    Thread.currentThread().interrupt();
+	    throw new IOException("Interrupted while comparing the image files.", e);
+	} catch (ExecutionException e) {
+	    throw new IOException("Failed to compare the image files.", e.getCause());
+	} finally {
+	    comparisonPool.shutdown();
+	}
+    }
+
+    private static ImageComparison compareImagePair(File refrenceFile, File testFile, TileHashIndex tileHashIndex,
+	    double threshhold, List<Rectangle> ignoredRegions) {
+	ImageComparison comparison = new ImageComparison(refrenceFile, testFile);
+	try {
+	    // the regions that were ignored when either screenshot was taken //
+	    List<Rectangle> pairIgnoredRegions = new ArrayList<>(ignoredRegions);
+	    pairIgnoredRegions.addAll(IgnoredRegions.read(testFile));
+	    pairIgnoredRegions.addAll(IgnoredRegions.read(refrenceFile));
+	    comparison.ignoredRegions = pairIgnoredRegions;
+
+	    RasterDiffKernel.Result result;
+	    Rectangle testBounds = BandedImageReader.readBounds(testFile);
+	    Rectangle refrenceBounds = BandedImageReader.readBounds(refrenceFile);
+	    if (BandedImageComparison.isTooLarge(testBounds, refrenceBounds)) {
+		// read and compare both image files band by band, within the memory limit //
+		result = BandedImageComparison.compare(testFile, refrenceFile, threshhold, pairIgnoredRegions);
+	    } else {
+		// wait until both decoded images fit into the memory limit, that is shared
+		// by all the comparisons that run at once //
+		try (BandedImageComparison.MemoryReservation reservation = BandedImageComparison
+			.reserveMemory(BandedImageComparison.getDecodedSize(testBounds, refrenceBounds))) {
+		    result = compareDecodedImagePair(refrenceFile, testFile, tileHashIndex, threshhold,
+			    pairIgnoredRegions);
+		}
+	    }
+
+	    if (result != null) {
+		comparison.percentage = result.getPercentage();
+		comparison.differingRegion = result.getDifferingRegion();
+		comparison.isComplete = result.isComplete();
+	    } else {
+		comparison.isSameSize = false;
+	    }
+	} catch (IOException e) {
+	    comparison.failure = e;
+	}
+	return comparison;
+    }
+
+    private static RasterDiffKernel.Result compareDecodedImagePair(File refrenceFile, File testFile,
+	    TileHashIndex tileHashIndex, double threshhold, List<Rectangle> ignoredRegions) throws IOException {
+	if (!VisualDiff.isExact() || !ignoredRegions.isEmpty()) {
+	    // read both image files, and compare them visually, tile by tile in
+	    // parallel //
+	    BufferedImage biA = ImageIO.read(testFile);
+	    BufferedImage biB = ImageIO.read(refrenceFile);
+	    if (biA == null || biB == null) {
+		throw new IOException("Failed to read [" + (biA == null ? testFile : refrenceFile) + "] as an image.");
+	    }
+	    return biA.getWidth() == biB.getWidth() && biA.getHeight() == biB.getHeight()
+		    ? VisualDiff.compare(biA, biB, ignoredRegions)
+		    : null;
+	} else {
+	    // read the test image file, and compare it tile by tile, reading the
+	    // reference image file only if some tiles differ //
+	    BufferedImage biA = ImageIO.read(testFile);
+	    if (biA == null) {
+		throw new IOException("Failed to read [" + testFile + "] as an image.");
+	    }
+	    return tileHashIndex.compare(refrenceFile, biA, threshhold);
+	}
+    }
+
+    /**
+     * Writes the diff image of a pair that failed the threshold, and attaches it
+     * to the report. It only covers the region where the images differ, unless
+     * the comparison stopped before that region was known.
+     */
+    private static void writeDiffImage(ImageComparison comparison, File diffFile, String diffFileName) {
+	if (!comparison.isSameSize || comparison.differingRegion == null) {
+	    return;
+	}
+	Rectangle diffRegion = comparison.isComplete ? comparison.differingRegion
+		: new Rectangle(0, 0, Integer.MAX_VALUE, Integer.MAX_VALUE);
+	try {
+	    BandedImageComparison.writeDiffImage(comparison.testFile, comparison.refrenceFile, diffRegion,
+		    comparison.ignoredRegions, diffFile);
+	    ReportManager.attachAsStep("Diff Screenshot", diffFileName, new FileInputStream(diffFile));
+	} catch (IOException e) {
+	    ReportManager.log(e);
+	}
+    }
 }
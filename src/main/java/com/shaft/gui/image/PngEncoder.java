@@ -0,0 +1,278 @@
+package com.shaft.gui.image;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+import java.util.zip.Adler32;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Encodes images as 8 bit RGB or RGBA PNG files, with a configurable deflate
+ * level.
+ *
+ * The rows of large images can be filtered and compressed in parallel. The
+ * image is split into horizontal stripes, every stripe is compressed by its own
+ * deflater, primed with the last 32 KB of the previous stripe so that the
+ * compression ratio barely changes, and all but the last stripe are ended with
+ * a sync flush. The compressed stripes are then simply concatenated into one
+ * valid zlib stream, which any PNG decoder can read.
+ */
+class PngEncoder {
+    private static final byte[] SIGNATURE = { (byte) 137, 80, 78, 71, 13, 10, 26, 10 };
+    private static final int MINIMUM_ROWS_PER_STRIPE = 64;
+    private static final int DICTIONARY_SIZE = 32768;
+    private static final int WORKER_THREADS = Runtime.getRuntime().availableProcessors();
+
+    private static final AtomicInteger workerCounter = new AtomicInteger(1);
+    private static final ExecutorService workers = Executors.newFixedThreadPool(WORKER_THREADS, task -> {
+	Thread worker = new Thread(task, "SHAFT-PngEncoder-" + workerCounter.getAndIncrement());
+	worker.setDaemon(true);
+	return worker;
+    });
+
+    private PngEncoder() {
+	throw new IllegalStateException("Utility class");
+    }
+
+    /**
+     * @param image            the image that should be encoded
+     * @param compressionLevel the deflate level, from 0 (fastest) to 9 (smallest)
+     * @param parallel         true to filter and compress the stripes of large
+     *                         images on several threads
+     * @return the PNG bytes of this image
+     * @throws IOException if one of the stripes could not be encoded
+     */
+    static byte[] encode(BufferedImage image, int compressionLevel, boolean parallel) throws IOException {
+	return encode(image, compressionLevel,
+		parallel ? Math.max(1, Math.min(WORKER_THREADS, image.getHeight() / MINIMUM_ROWS_PER_STRIPE)) : 1);
+    }
+
+    /**
+     * Encodes an image in the given number of stripes, which are compressed in
+     * parallel if there are more than one.
+     */
+    static byte[] encode(BufferedImage image, int compressionLevel, int stripes) throws IOException {
+	int width = image.getWidth();
+	int height = image.getHeight();
+	int bytesPerPixel = image.getColorModel().hasAlpha() ? 4 : 3;
+
+	int rowsPerStripe = (height + stripes - 1) / stripes;
+	int stripeCount = (height + rowsPerStripe - 1) / rowsPerStripe;
+
+	byte[][] filteredStripes = new byte[stripeCount][];
+	runStripes(stripeCount, index -> filteredStripes[index] = filterRows(image, index * rowsPerStripe,
+		Math.min(height, (index + 1) * rowsPerStripe), bytesPerPixel));
+	byte[][] compressedStripes = new byte[stripeCount][];
+	runStripes(stripeCount, index -> compressedStripes[index] = deflate(filteredStripes[index],
+		index == 0 ? null : filteredStripes[index - 1], compressionLevel, index == stripeCount - 1));
+
+	Adler32 adler32 = new Adler32();
+	for (byte[] filteredStripe : filteredStripes) {
+	    adler32.update(filteredStripe);
+	}
+	long checksum = adler32.getValue();
+
+	ByteArrayOutputStream png = new ByteArrayOutputStream();
+	png.write(SIGNATURE);
+	writeChunk(png, "IHDR", toBytes(width), toBytes(height),
+		new byte[] { 8, (byte) (bytesPerPixel == 4 ? 6 : 2), 0, 0, 0 });
+	for (int index = 0; index < stripeCount; index++) {
+	    byte[] header = index == 0 ? getZlibHeader(compressionLevel) : new byte[0];
+	    byte[] trailer = index == stripeCount - 1 ? toBytes((int) checksum) : new byte[0];
+	    writeChunk(png, "IDAT", header, compressedStripes[index], trailer);
+	}
+	writeChunk(png, "IEND");
+	return png.toByteArray();
+    }
+
+    private static void runStripes(int stripeCount, IntConsumer stripeTask) throws IOException {
+	if (stripeCount == 1) {
+	    stripeTask.accept(0);
+	    return;
+	}
+	List<Future<?>> stripes = new ArrayList<>();
+	for (int index = 0; index < stripeCount; index++) {
+	    int stripeIndex = index;
+	    stripes.add(workers.submit(() -> stripeTask.accept(stripeIndex)));
+	}
+	try {
+	    for (Future<?> stripe : stripes) {
+		stripe.get();
+	    }
+	} catch (InterruptedException e) {
+	    Thread.currentThread().interrupt();
+	    throw new IOException("Interrupted while encoding the PNG image.", e);
+	} catch (ExecutionException e) {
+	    throw new IOException("Failed to encode the PNG image.", e.getCause());
+	}
+    }
+
+    /**
+     * Filters each row using the filter type that gives the smallest sum of
+     * absolute differences, which usually compresses best.
+     */
+    private static byte[] filterRows(BufferedImage image, int firstRow, int lastRow, int bytesPerPixel) {
+	int width = image.getWidth();
+	int rowLength = width * bytesPerPixel;
+	byte[] filtered = new byte[(lastRow - firstRow) * (rowLength + 1)];
+	int[] pixels = new int[width];
+	byte[] previousRow = new byte[rowLength];
+	byte[] currentRow = new byte[rowLength];
+	byte[][] candidates = new byte[5][rowLength];
+	if (firstRow > 0) {
+	    readRow(image, firstRow - 1, bytesPerPixel, pixels, previousRow);
+	}
+
+	int offset = 0;
+	for (int y = firstRow; y < lastRow; y++) {
+	    readRow(image, y, bytesPerPixel, pixels, currentRow);
+	    int bestFilter = 0;
+	    long bestSum = Long.MAX_VALUE;
+	    for (int filter = 0; filter < 5; filter++) {
+		long sum = applyFilter(filter, currentRow, previousRow, bytesPerPixel, candidates[filter]);
+		if (sum < bestSum) {
+		    bestSum = sum;
+		    bestFilter = filter;
+		}
+	    }
+	    filtered[offset++] = (byte) bestFilter;
+	    System.arraycopy(candidates[bestFilter], 0, filtered, offset, rowLength);
+	    offset += rowLength;
+
+	    byte[] swap = previousRow;
+	    previousRow = currentRow;
+	    currentRow = swap;
+	}
+	return filtered;
+    }
+
+    private static void readRow(BufferedImage image, int y, int bytesPerPixel, int[] pixels, byte[] row) {
+	image.getRGB(0, y, pixels.length, 1, pixels, 0, pixels.length);
+	int offset = 0;
+	for (int pixel : pixels) {
+	    row[offset++] = (byte) (pixel >> 16);
+	    row[offset++] = (byte) (pixel >> 8);
+	    row[offset++] = (byte) pixel;
+	    if (bytesPerPixel == 4) {
+		row[offset++] = (byte) (pixel >> 24);
+	    }
+	}
+    }
+
+    private static long applyFilter(int filter, byte[] row, byte[] previousRow, int bytesPerPixel, byte[] output) {
+	long sum = 0;
+	for (int i = 0; i < row.length; i++) {
+	    int current = row[i] & 0xFF;
+	    int left = i >= bytesPerPixel ? row[i - bytesPerPixel] & 0xFF : 0;
+	    int up = previousRow[i] & 0xFF;
+	    int upLeft = i >= bytesPerPixel ? previousRow[i - bytesPerPixel] & 0xFF : 0;
+	    int predicted;
+	    switch (filter) {
+	    case 1:
+		predicted = left;
+		break;
+	    case 2:
+		predicted = up;
+		break;
+	    case 3:
+		predicted = (left + up) >>> 1;
+		break;
+	    case 4:
+		predicted = paethPredictor(left, up, upLeft);
+		break;
+	    default:
+		predicted = 0;
+		break;
+	    }
+	    byte value = (byte) (current - predicted);
+	    output[i] = value;
+	    sum += Math.abs(value);
+	}
+	return sum;
+    }
+
+    private static int paethPredictor(int left, int up, int upLeft) {
+	int estimate = left + up - upLeft;
+	int leftDistance = Math.abs(estimate - left);
+	int upDistance = Math.abs(estimate - up);
+	int upLeftDistance = Math.abs(estimate - upLeft);
+	if (leftDistance <= upDistance && leftDistance <= upLeftDistance) {
+	    return left;
+	} else if (upDistance <= upLeftDistance) {
+	    return up;
+	}
+	return upLeft;
+    }
+
+    private static byte[] deflate(byte[] data, byte[] previousData, int compressionLevel, boolean isLastStripe) {
+	Deflater deflater = new Deflater(compressionLevel, true);
+	try {
+	    if (previousData != null) {
+		int dictionaryLength = Math.min(DICTIONARY_SIZE, previousData.length);
+		deflater.setDictionary(previousData, previousData.length - dictionaryLength, dictionaryLength);
+	    }
+	    deflater.setInput(data);
+	    ByteArrayOutputStream compressed = new ByteArrayOutputStream(data.length / 4 + 64);
+	    byte[] buffer = new byte[65536];
+	    if (isLastStripe) {
+		deflater.finish();
+		while (!deflater.finished()) {
+		    compressed.write(buffer, 0, deflater.deflate(buffer));
+		}
+	    } else {
+		// a sync flush ends the stripe on a byte boundary without ending the stream
+		int length;
+		do {
+		    length = deflater.deflate(buffer, 0, buffer.length, Deflater.SYNC_FLUSH);
+		    compressed.write(buffer, 0, length);
+		} while (length == buffer.length);
+	    }
+	    return compressed.toByteArray();
+	} finally {
+	    deflater.end();
+	}
+    }
+
+    private static byte[] getZlibHeader(int compressionLevel) {
+	// deflate with a 32 KB window, and the level hint that matches the
+	// compression level, the second byte makes the header a multiple of 31
+	if (compressionLevel < 0 || compressionLevel == 6) {
+	    return new byte[] { 0x78, (byte) 0x9C };
+	} else if (compressionLevel <= 1) {
+	    return new byte[] { 0x78, 0x01 };
+	} else if (compressionLevel <= 5) {
+	    return new byte[] { 0x78, 0x5E };
+	}
+	return new byte[] { 0x78, (byte) 0xDA };
+    }
+
+    static void writeChunk(ByteArrayOutputStream png, String type, byte[]... parts) throws IOException {
+	int length = 0;
+	for (byte[] part : parts) {
+	    length += part.length;
+	}
+	CRC32 crc32 = new CRC32();
+	byte[] typeBytes = type.getBytes("US-ASCII");
+	crc32.update(typeBytes);
+	png.write(toBytes(length));
+	png.write(typeBytes);
+	for (byte[] part : parts) {
+	    crc32.update(part);
+	    png.write(part);
+	}
+	png.write(toBytes((int) crc32.getValue()));
+    }
+
+    private static byte[] toBytes(int value) {
+	return new byte[] { (byte) (value >> 24), (byte) (value >> 16), (byte) (value >> 8), (byte) value };
+    }
+}
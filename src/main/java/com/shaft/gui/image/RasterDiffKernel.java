@@ -0,0 +1,343 @@
+package com.shaft.gui.image;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.DirectColorModel;
+import java.awt.image.Raster;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Compares two images of the same size pixel by pixel.
+ *
+ * The backing arrays of both rasters are read in place whenever both images
+ * share the same standard layout, and every row is compared in a tight
+ * branch-free loop that the JIT can unroll and vectorize; any other pair of
+ * images is compared row by row as packed ARGB pixels. The comparison stops as
+ * soon as the threshold can no longer be met.
+ */
+class RasterDiffKernel {
+    private RasterDiffKernel() {
+	throw new IllegalStateException("Utility class");
+    }
+
+    /**
+     * The result of comparing two images.
+     */
+    static class Result {
+	private final double percentage;
+	private final long differingPixels;
+	private final Rectangle differingRegion;
+	private final boolean isComplete;
+
+	Result(double percentage, long differingPixels, Rectangle differingRegion, boolean isComplete) {
+	    this.percentage = percentage;
+	    this.differingPixels = differingPixels;
+	    this.differingRegion = differingRegion;
+	    this.isComplete = isComplete;
+	}
+
+	/**
+	 * @return the percentage of matching pixels, or its upper bound if the
+	 *         comparison was stopped early
+	 */
+	double getPercentage() {
+	    return percentage;
+	}
+
+	/**
+	 * @return the number of differing pixels that were found
+	 */
+	long getDifferingPixels() {
+	    return differingPixels;
+	}
+
+	/**
+	 * @return the bounding box of all the differing pixels that were found, or
+	 *         null if all the compared pixels match
+	 */
+	Rectangle getDifferingRegion() {
+	    return differingRegion;
+	}
+
+	/**
+	 * @return false if the comparison was stopped early, because the threshold
+	 *         could no longer be met
+	 */
+	boolean isComplete() {
+	    return isComplete;
+	}
+    }
+
+    /**
+     * Tracks the differing pixels while the rows are compared.
+     */
+    private static class DiffState {
+	private final long pixelCount;
+	private final double threshold;
+	private long differingPixels = 0;
+	private int minX = Integer.MAX_VALUE;
+	private int minY = Integer.MAX_VALUE;
+	private int maxX = -1;
+	private int maxY = -1;
+
+	private DiffState(int width, int height, double threshold) {
+	    this.pixelCount = (long) width * height;
+	    this.threshold = threshold;
+	}
+
+	/**
+	 * Adds the differing pixels of one row, locating the first and last of them
+	 * only if there are any.
+	 *
+	 * @return true if the threshold can still be met
+	 */
+	private boolean addRow(int x, int y, int rowDifferences, int[] rowMask) {
+	    if (rowDifferences > 0) {
+		differingPixels += rowDifferences;
+		int first = 0;
+		while (rowMask[first] == 0) {
+		    first++;
+		}
+		int last = rowMask.length - 1;
+		while (rowMask[last] == 0) {
+		    last--;
+		}
+		minX = Math.min(minX, x + first);
+		maxX = Math.max(maxX, x + last);
+		minY = Math.min(minY, y);
+		maxY = Math.max(maxY, y);
+		return getPercentage() >= threshold;
+	    }
+	    return true;
+	}
+
+	private double getPercentage() {
+	    return (pixelCount - differingPixels) * 100d / pixelCount;
+	}
+
+	private Result toResult(boolean isComplete) {
+	    Rectangle differingRegion = maxX < 0 ? null : new Rectangle(minX, minY, maxX - minX + 1, maxY - minY + 1);
+	    return new Result(getPercentage(), differingPixels, differingRegion, isComplete);
+	}
+    }
+
+    /**
+     * @param testImage     the image under test
+     * @param refrenceImage the reference image, of the same width and height
+     * @param threshold     the minimum percentage of matching pixels that is
+     *                      still acceptable, the comparison stops once it can no
+     *                      longer be met, or 0 to compare all the pixels
+     * @return the percentage of matching pixels and the region where the images
+     *         differ
+     */
+    static Result compare(BufferedImage testImage, BufferedImage refrenceImage, double threshold) {
+	return compare(testImage, refrenceImage,
+		Collections.singletonList(new Rectangle(0, 0, testImage.getWidth(), testImage.getHeight())),
+		threshold);
+    }
+
+    /**
+     * Compares only some regions of two images, assuming that all the other
+     * pixels match.
+     *
+     * @param testImage     the image under test
+     * @param refrenceImage the reference image, of the same width and height
+     * @param regions       the regions that should be compared, which must not
+     *                      overlap
+     * @param threshold     the minimum percentage of matching pixels that is
+     *                      still acceptable, the comparison stops once it can no
+     *                      longer be met, or 0 to compare all the pixels
+     * @return the percentage of matching pixels of the whole images and the
+     *         region where they differ
+     */
+    static Result compare(BufferedImage testImage, BufferedImage refrenceImage, List<Rectangle> regions,
+	    double threshold) {
+	int width = testImage.getWidth();
+	int height = testImage.getHeight();
+	if (width != refrenceImage.getWidth() || height != refrenceImage.getHeight()) {
+	    throw new IllegalArgumentException("Both the images must be of the same size.");
+	}
+	DiffState state = new DiffState(width, height, threshold);
+	if (width == 0 || height == 0) {
+	    return state.toResult(true);
+	}
+
+	Raster testRaster = testImage.getRaster();
+	Raster refrenceRaster = refrenceImage.getRaster();
+	boolean isSameType = testImage.getType() == refrenceImage.getType();
+	for (Rectangle region : regions) {
+	    boolean canMeetThreshold;
+	    if (isSameType && isPackedInt(testImage) && isPackedInt(refrenceImage)) {
+		canMeetThreshold = compareInts(testRaster, refrenceRaster, getPixelMask(testImage), region, state);
+	    } else if (isSameType && isInterleavedByte(testImage) && isInterleavedByte(refrenceImage)) {
+		canMeetThreshold = compareBytes(testRaster, refrenceRaster, region, state);
+	    } else {
+		canMeetThreshold = compareRgb(testImage, refrenceImage, region, state);
+	    }
+	    if (!canMeetThreshold) {
+		return state.toResult(false);
+	    }
+	}
+	return state.toResult(true);
+    }
+
+    /**
+     * @return the result of comparing two identical images
+     */
+    static Result match() {
+	return new Result(100, 0, null, true);
+    }
+
+    static boolean isPackedInt(BufferedImage image) {
+	int type = image.getType();
+	return (type == BufferedImage.TYPE_INT_RGB || type == BufferedImage.TYPE_INT_ARGB
+		|| type == BufferedImage.TYPE_INT_ARGB_PRE || type == BufferedImage.TYPE_INT_BGR)
+		&& image.getRaster().getDataBuffer() instanceof DataBufferInt
+		&& image.getSampleModel() instanceof SinglePixelPackedSampleModel;
+    }
+
+    static boolean isInterleavedByte(BufferedImage image) {
+	int type = image.getType();
+	return (type == BufferedImage.TYPE_3BYTE_BGR || type == BufferedImage.TYPE_4BYTE_ABGR
+		|| type == BufferedImage.TYPE_4BYTE_ABGR_PRE || type == BufferedImage.TYPE_BYTE_GRAY)
+		&& image.getRaster().getDataBuffer() instanceof DataBufferByte
+		&& image.getSampleModel() instanceof ComponentSampleModel;
+    }
+
+    static int getPixelMask(BufferedImage image) {
+	// the unused bits of opaque packed pixels don't take part in the comparison
+	DirectColorModel colorModel = (DirectColorModel) image.getColorModel();
+	return colorModel.getRedMask() | colorModel.getGreenMask() | colorModel.getBlueMask()
+		| colorModel.getAlphaMask();
+    }
+
+    private static boolean compareInts(Raster testRaster, Raster refrenceRaster, int pixelMask, Rectangle region,
+	    DiffState state) {
+	int[] testPixels = ((DataBufferInt) testRaster.getDataBuffer()).getData();
+	int[] refrencePixels = ((DataBufferInt) refrenceRaster.getDataBuffer()).getData();
+	int testStride = ((SinglePixelPackedSampleModel) testRaster.getSampleModel()).getScanlineStride();
+	int refrenceStride = ((SinglePixelPackedSampleModel) refrenceRaster.getSampleModel()).getScanlineStride();
+	int[] rowMask = new int[region.width];
+
+	for (int y = region.y; y < region.y + region.height; y++) {
+	    int testOffset = getOffset(testRaster, region.x, y, 1, testStride);
+	    int refrenceOffset = getOffset(refrenceRaster, region.x, y, 1, refrenceStride);
+	    int rowDifferences = 0;
+	    for (int x = 0; x < rowMask.length; x++) {
+		// 1 if the pixels differ, 0 otherwise, without branching
+		int difference = (testPixels[testOffset + x] ^ refrencePixels[refrenceOffset + x]) & pixelMask;
+		int differs = (difference | -difference) >>> 31;
+		rowMask[x] = differs;
+		rowDifferences += differs;
+	    }
+	    if (!state.addRow(region.x, y, rowDifferences, rowMask)) {
+		return false;
+	    }
+	}
+	return true;
+    }
+
+    private static boolean compareBytes(Raster testRaster, Raster refrenceRaster, Rectangle region,
+	    DiffState state) {
+	byte[] testBytes = ((DataBufferByte) testRaster.getDataBuffer()).getData();
+	byte[] refrenceBytes = ((DataBufferByte) refrenceRaster.getDataBuffer()).getData();
+	ComponentSampleModel testModel = (ComponentSampleModel) testRaster.getSampleModel();
+	ComponentSampleModel refrenceModel = (ComponentSampleModel) refrenceRaster.getSampleModel();
+	int pixelStride = testModel.getPixelStride();
+	if (pixelStride != refrenceModel.getPixelStride() || pixelStride != testModel.getNumBands()
+		|| pixelStride > 4) {
+	    return compareSamples(testRaster, refrenceRaster, region, state);
+	}
+	int[] rowMask = new int[region.width];
+
+	for (int y = region.y; y < region.y + region.height; y++) {
+	    int testOffset = getOffset(testRaster, region.x, y, pixelStride, testModel.getScanlineStride());
+	    int refrenceOffset = getOffset(refrenceRaster, region.x, y, pixelStride,
+		    refrenceModel.getScanlineStride());
+	    int rowDifferences = 0;
+	    for (int x = 0; x < rowMask.length; x++) {
+		// all the samples of a pixel are ORed, so that each pixel is counted once
+		int difference = 0;
+		int testIndex = testOffset + x * pixelStride;
+		int refrenceIndex = refrenceOffset + x * pixelStride;
+		for (int band = 0; band < pixelStride; band++) {
+		    difference |= testBytes[testIndex + band] ^ refrenceBytes[refrenceIndex + band];
+		}
+		int differs = (difference | -difference) >>> 31;
+		rowMask[x] = differs;
+		rowDifferences += differs;
+	    }
+	    if (!state.addRow(region.x, y, rowDifferences, rowMask)) {
+		return false;
+	    }
+	}
+	return true;
+    }
+
+    private static boolean compareSamples(Raster testRaster, Raster refrenceRaster, Rectangle region,
+	    DiffState state) {
+	// the same standard type, but an unusual layout, so the samples are compared
+	// through the rasters
+	int bands = testRaster.getNumBands();
+	int[] testRow = new int[region.width * bands];
+	int[] refrenceRow = new int[region.width * bands];
+	int[] rowMask = new int[region.width];
+	for (int y = region.y; y < region.y + region.height; y++) {
+	    testRaster.getPixels(testRaster.getMinX() + region.x, testRaster.getMinY() + y, region.width, 1,
+		    testRow);
+	    refrenceRaster.getPixels(refrenceRaster.getMinX() + region.x, refrenceRaster.getMinY() + y,
+		    region.width, 1, refrenceRow);
+	    if (!addRow(region.x, y, testRow, refrenceRow, bands, rowMask, state)) {
+		return false;
+	    }
+	}
+	return true;
+    }
+
+    private static boolean compareRgb(BufferedImage testImage, BufferedImage refrenceImage, Rectangle region,
+	    DiffState state) {
+	// different or custom types, so both images are compared as packed ARGB
+	// pixels, one row at a time
+	int[] testRow = new int[region.width];
+	int[] refrenceRow = new int[region.width];
+	int[] rowMask = new int[region.width];
+	for (int y = region.y; y < region.y + region.height; y++) {
+	    testImage.getRGB(region.x, y, region.width, 1, testRow, 0, region.width);
+	    refrenceImage.getRGB(region.x, y, region.width, 1, refrenceRow, 0, region.width);
+	    if (!addRow(region.x, y, testRow, refrenceRow, 1, rowMask, state)) {
+		return false;
+	    }
+	}
+	return true;
+    }
+
+    private static boolean addRow(int x, int y, int[] testRow, int[] refrenceRow, int samplesPerPixel,
+	    int[] rowMask, DiffState state) {
+	int rowDifferences = 0;
+	for (int pixel = 0; pixel < rowMask.length; pixel++) {
+	    int difference = 0;
+	    for (int sample = pixel * samplesPerPixel; sample < (pixel + 1) * samplesPerPixel; sample++) {
+		difference |= testRow[sample] ^ refrenceRow[sample];
+	    }
+	    int differs = (difference | -difference) >>> 31;
+	    rowMask[pixel] = differs;
+	    rowDifferences += differs;
+	}
+	return state.addRow(x, y, rowDifferences, rowMask);
+    }
+
+    /**
+     * @return the index of the first sample of a pixel in the backing array of a
+     *         raster, which may be a child of a larger raster
+     */
+    static int getOffset(Raster raster, int x, int y, int pixelStride, int scanlineStride) {
+	int column = raster.getMinX() + x - raster.getSampleModelTranslateX();
+	int row = raster.getMinY() + y - raster.getSampleModelTranslateY();
+	return raster.getDataBuffer().getOffset() + row * scanlineStride + column * pixelStride;
+    }
+}
@@ -0,0 +1,78 @@
+package com.shaft.gui.image;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+
+import javax.imageio.ImageIO;
+
+/**
+ * A screenshot that is kept in memory, either as the PNG bytes that were
+ * returned by the browser or as a raster that was composed by the engine (like a
+ * stitched full page screenshot or a cropped element screenshot).
+ *
+ * The PNG bytes are decoded at most once, and the same raster is then shared by
+ * everything that consumes the screenshot. The raster is only encoded back to
+ * PNG if there were no original bytes.
+ */
+class Screenshot {
+    private byte[] pngBytes;
+    private BufferedImage image;
+
+    private Screenshot(byte[] pngBytes, BufferedImage image) {
+	this.pngBytes = pngBytes;
+	this.image = image;
+    }
+
+    /**
+     * @param pngBytes the PNG bytes of a screenshot, as returned by the browser
+     * @return a screenshot that is decoded once it is needed
+     */
+    static Screenshot fromBytes(byte[] pngBytes) {
+	return new Screenshot(pngBytes, null);
+    }
+
+    /**
+     * @param pngBytes the PNG bytes of a screenshot, as returned by the browser
+     * @param image    the raster that was already decoded from these bytes
+     * @return a screenshot that doesn't need to be decoded again
+     */
+    static Screenshot fromDecodedBytes(byte[] pngBytes, BufferedImage image) {
+	return new Screenshot(pngBytes, image);
+    }
+
+    /**
+     * @param image a raster that was composed by the engine
+     * @return a screenshot that is encoded once it is needed
+     */
+    static Screenshot fromImage(BufferedImage image) {
+	return new Screenshot(null, image);
+    }
+
+    /**
+     * @return the decoded raster of this screenshot, which is shared with every
+     *         other caller
+     * @throws IOException if the PNG bytes could not be decoded
+     */
+    synchronized BufferedImage getImage() throws IOException {
+	if (image == null) {
+	    image = ImageIO.read(new ByteArrayInputStream(pngBytes));
+	    if (image == null) {
+		throw new IOException("Failed to decode the screenshot.");
+	    }
+	}
+	return image;
+    }
+
+    /**
+     * @return the PNG bytes of this screenshot, without any changes that were
+     *         drawn on the shared raster after they were first requested
+     * @throws IOException if the raster could not be encoded
+     */
+    synchronized byte[] getPngBytes() throws IOException {
+	if (pngBytes == null) {
+	    pngBytes = ScreenshotEncoder.encodePng(image);
+	}
+	return pngBytes;
+    }
+}
@@ -0,0 +1,126 @@
+package com.shaft.gui.image;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Iterator;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+
+/**
+ * Encodes screenshots according to the screenshot encoding properties.
+ *
+ * Original screenshots are always encoded as lossless PNG files, while the
+ * copies that are attached to the report can be downscaled, and encoded either
+ * as PNG files or as JPEG files of a certain quality.
+ */
+class ScreenshotEncoder {
+    private static final String REPORT_FORMAT = System.getProperty("screenshotParams_reportFormat").trim();
+    private static final int PNG_COMPRESSION_LEVEL = Integer
+	    .parseInt(System.getProperty("screenshotParams_pngCompressionLevel").trim());
+    private static final float JPEG_QUALITY = Float
+	    .parseFloat(System.getProperty("screenshotParams_jpegQuality").trim());
+    private static final double REPORT_SCALE = Double
+	    .parseDouble(System.getProperty("screenshotParams_reportScale").trim());
+    private static final Boolean PARALLEL_PNG_ENCODING = Boolean
+	    .valueOf(System.getProperty("screenshotParams_parallelPngEncoding").trim());
+
+    private ScreenshotEncoder() {
+	throw new IllegalStateException("Utility class");
+    }
+
+    /**
+     * @param image the raster that should be encoded
+     * @return the lossless PNG bytes of that raster
+     * @throws IOException if the raster could not be encoded
+     */
+    static byte[] encodePng(BufferedImage image) throws IOException {
+	return PngEncoder.encode(image, PNG_COMPRESSION_LEVEL, PARALLEL_PNG_ENCODING);
+    }
+
+    /**
+     * @param image the raster that should be attached to the report
+     * @return the bytes of the report copy of that raster, downscaled and encoded
+     *         as configured
+     * @throws IOException if the raster could not be encoded
+     */
+    static byte[] encodeReportCopy(BufferedImage image) throws IOException {
+	BufferedImage reportImage = image;
+	if (REPORT_SCALE > 0 && REPORT_SCALE < 1) {
+	    reportImage = drawOpaque(image, Math.max(1, (int) Math.round(image.getWidth() * REPORT_SCALE)),
+		    Math.max(1, (int) Math.round(image.getHeight() * REPORT_SCALE)));
+	}
+	if (isJpeg()) {
+	    if (reportImage.getColorModel().hasAlpha()) {
+		// JPEG files can't hold transparency
+		reportImage = drawOpaque(reportImage, reportImage.getWidth(), reportImage.getHeight());
+	    }
+	    return encodeJpeg(reportImage);
+	}
+	return encodePng(reportImage);
+    }
+
+    /**
+     * @return true if the report copies are not identical to the original
+     *         screenshots, because they are downscaled or lossy
+     */
+    static boolean isReportCopyConverted() {
+	return isJpeg() || (REPORT_SCALE > 0 && REPORT_SCALE < 1);
+    }
+
+    /**
+     * @return the MIME type of the report copies
+     */
+    static String getReportMimeType() {
+	return isJpeg() ? "image/jpeg" : "image/png";
+    }
+
+    /**
+     * @return the file extension of the report copies
+     */
+    static String getReportFileExtension() {
+	return isJpeg() ? ".jpg" : ".png";
+    }
+
+    private static boolean isJpeg() {
+	return REPORT_FORMAT.equalsIgnoreCase("JPEG") || REPORT_FORMAT.equalsIgnoreCase("JPG");
+    }
+
+    private static BufferedImage drawOpaque(BufferedImage image, int width, int height) {
+	BufferedImage opaqueImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+	Graphics2D opaqueGraphics = opaqueImage.createGraphics();
+	opaqueGraphics.setBackground(Color.WHITE);
+	opaqueGraphics.clearRect(0, 0, width, height);
+	opaqueGraphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+	opaqueGraphics.drawImage(image, 0, 0, width, height, null);
+	opaqueGraphics.dispose();
+	return opaqueImage;
+    }
+
+    private static byte[] encodeJpeg(BufferedImage image) throws IOException {
+	Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName("jpeg");
+	if (!writers.hasNext()) {
+	    throw new IOException("No JPEG Image Writers Exist");
+	}
+	ImageWriter jpegWriter = writers.next();
+	ImageWriteParam jpegWriteParam = jpegWriter.getDefaultWriteParam();
+	jpegWriteParam.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+	jpegWriteParam.setCompressionQuality(JPEG_QUALITY);
+
+	ByteArrayOutputStream jpeg = new ByteArrayOutputStream();
+	try (ImageOutputStream jpegOutputStream = ImageIO.createImageOutputStream(jpeg)) {
+	    jpegWriter.setOutput(jpegOutputStream);
+	    jpegWriter.write(null, new IIOImage(image, null, null), jpegWriteParam);
+	} finally {
+	    jpegWriter.dispose();
+	}
+	return jpeg.toByteArray();
+    }
+}
@@ -4,16 +4,19 @@ import java.awt.AlphaComposite;
 import java.awt.Color;
 import java.awt.Graphics2D;
 import java.awt.Image;
+import java.awt.Rectangle;
 import java.awt.RenderingHints;
 import java.awt.image.BufferedImage;
 import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
 
@@ -25,7 +28,6 @@ import org.openqa.selenium.By;
 import org.openqa.selenium.JavascriptExecutor;
 import org.openqa.selenium.NoSuchSessionException;
 import org.openqa.selenium.OutputType;
-import org.openqa.selenium.StaleElementReferenceException;
 import org.openqa.selenium.TakesScreenshot;
 import org.openqa.selenium.WebDriver;
 import org.openqa.selenium.WebDriverException;
@@ -33,15 +35,15 @@ import org.openqa.selenium.WebElement;
 import org.testng.Reporter;
 
 import com.shaft.cli.FileActions;
-import com.shaft.gui.browser.BrowserFactory;
 import com.shaft.gui.element.ElementActions;
-import com.shaft.gui.element.JSWaiter;
 import com.shaft.tools.io.ReportManager;
+import com.shaft.tools.io.TimingManager;
+import com.shaft.tools.io.TimingManager.Phase;
 
 public class ScreenshotManager {
     private static final String SCREENSHOT_FOLDERPATH = "allure-results/screenshots/";
     private static final String SCREENSHOT_FOLDERNAME = new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date());
-    private static String screenshotFileName = "Screenshot";
+    private static ThreadLocal<String> screenshotFileName = ThreadLocal.withInitial(() -> "Screenshot");
     private static final String SCREENSHOT_PARAMS_WHENTOTAKEASCREENSHOT = System
 	    .getProperty("screenshotParams_whenToTakeAScreenshot");
     private static final Boolean SCREENSHOT_PARAMS_HIGHLIGHTELEMENTS = Boolean
@@ -57,12 +59,20 @@ public class ScreenshotManager {
     private static final Boolean AI_SUPPORTED_ELEMENT_IDENTIFICATION = Boolean
 	    .valueOf(System.getProperty("aiSupportedElementIdentification").trim());
 
-    private static By targetElementLocator;
+    private static ThreadLocal<By> targetElementLocator = new ThreadLocal<>();
+    // the page state at the last screenshot taken by each thread, and its report
+    // attachment
+    private static ThreadLocal<String> lastCapturedPageState = new ThreadLocal<>();
+    private static ThreadLocal<String> lastCapturedAttachmentSource = new ThreadLocal<>();
+    private static ThreadLocal<List<By>> ignoredElementLocators = ThreadLocal.withInitial(ArrayList::new);
+    private static final String JS_RETRIEVE_ELEMENT_RECT = "var rect = arguments[0].getBoundingClientRect(); return [rect.left, rect.top, rect.width, rect.height, window.devicePixelRatio || 1, window.pageXOffset, window.pageYOffset];";
+    static final String JS_RETRIEVE_PAGE_STATE = "var agent = window.__shaftReadinessAgent; return agent ? [agent.documentId, agent.epoch, window.pageXOffset, window.pageYOffset, window.innerWidth, window.innerHeight].join(':') : null;";
 
     private static final int RETRIESBEFORETHROWINGELEMENTNOTFOUNDEXCEPTION = 1;
 
     private static final Boolean CREATE_GIF = Boolean.valueOf(System.getProperty("createAnimatedGif").trim());
     private static final int GIF_FRAME_DELAY = Integer.parseInt(System.getProperty("animatedGif_frameDelay").trim());
+    private static final double GIF_SCALE = Double.parseDouble(System.getProperty("animatedGif_scale").trim());
     // default is 500
 
     /*
@@ -71,21 +81,24 @@ public class ScreenshotManager {
      * or verification point. FailuresOnly; after validation failures and element
      * action failures.
      */
-    private static boolean globalPassFailStatus = false;
+    private static ThreadLocal<Boolean> globalPassFailStatus = ThreadLocal.withInitial(() -> false);
 
     /*
      * A flag to control the highlighting of the element green for passing yellow
      * for failing
      */
-    private static String globalPassFailAppendedText = "";
+    private static ThreadLocal<String> globalPassFailAppendedText = ThreadLocal.withInitial(() -> "");
 
-    private static WebDriver gifDriver = null;
-    private static String testCaseName = "";
-    private static String gifFilePath = "";
-    private static ImageOutputStream gifOutputStream = null;
-    private static GifSequenceWriter gifWriter = null;
+    // the animated GIF state is confined to the test thread that started it, so
+    // that tests running in parallel each record their own GIF
+    private static ThreadLocal<WebDriver> gifDriver = new ThreadLocal<>();
+    private static ThreadLocal<String> testCaseName = ThreadLocal.withInitial(() -> "");
+    private static ThreadLocal<String> gifFilePath = ThreadLocal.withInitial(() -> "");
+    private static ThreadLocal<ImageOutputStream> gifOutputStream = new ThreadLocal<>();
+    private static ThreadLocal<GifSequenceWriter> gifWriter = new ThreadLocal<>();
 
-    private static final String AI_AIDED_ELEMENT_IDENTIFICATION_FOLDERPATH = "src/test/resources/elementScreenshots/";
+    private static BufferedImage watermarkImage = null;
+    private static BufferedImage scaledWatermarkImage = null;
 
     private ScreenshotManager() {
 	throw new IllegalStateException("Utility class");
@@ -101,14 +114,14 @@ public class ScreenshotManager {
      *                       failed
      */
     public static void captureScreenShot(WebDriver driver, String actionName, boolean passFailStatus) {
-	globalPassFailStatus = passFailStatus;
+	globalPassFailStatus.set(passFailStatus);
 	if (passFailStatus) {
-	    globalPassFailAppendedText = "passed";
+	    globalPassFailAppendedText.set("passed");
 	} else {
-	    globalPassFailAppendedText = "failed";
+	    globalPassFailAppendedText.set("failed");
 	}
 
-	internalCaptureScreenShot(driver, null, actionName, globalPassFailAppendedText,
+	internalCaptureScreenShot(driver, null, actionName, globalPassFailAppendedText.get(),
 		(SCREENSHOT_PARAMS_WHENTOTAKEASCREENSHOT.equals("Always"))
 			|| (SCREENSHOT_PARAMS_WHENTOTAKEASCREENSHOT.equals("ValidationPointsOnly")
 				&& (actionName.contains("assert") || actionName.contains("verify")))
@@ -133,16 +146,16 @@ public class ScreenshotManager {
      */
     public static void captureScreenShot(WebDriver driver, By elementLocator, String actionName,
 	    boolean passFailStatus) {
-	globalPassFailStatus = passFailStatus;
-	targetElementLocator = elementLocator;
+	globalPassFailStatus.set(passFailStatus);
+	targetElementLocator.set(elementLocator);
 
 	if (passFailStatus) {
-	    globalPassFailAppendedText = "passed";
+	    globalPassFailAppendedText.set("passed");
 	} else {
-	    globalPassFailAppendedText = "failed";
+	    globalPassFailAppendedText.set("failed");
 	}
 
-	internalCaptureScreenShot(driver, elementLocator, actionName, globalPassFailAppendedText,
+	internalCaptureScreenShot(driver, elementLocator, actionName, globalPassFailAppendedText.get(),
 		(SCREENSHOT_PARAMS_WHENTOTAKEASCREENSHOT.equals("Always"))
 			|| (SCREENSHOT_PARAMS_WHENTOTAKEASCREENSHOT.equals("ValidationPointsOnly")
 				&& (actionName.contains("assert") || actionName.contains("verify")))
@@ -176,96 +189,202 @@ public class ScreenshotManager {
 	     */
 	    System.setProperty("org.uncommons.reportng.escape-output", "false");
 
+	    // the recorded frames show what led to this failure
+	    if (isFlightRecorderMode()) {
+		attachFlightRecorderFrames();
+	    }
+
 	    /**
-	     * Declare regularElementStyle, the WebElemnt, and Javascript Executor to
-	     * highlight and unhighlight the WebElement
+	     * If an elementLocator was passed, locate the area of that element, so that it
+	     * is highlighted on the screenshot without touching the page
 	     */
-	    String regularElementStyle = "";
-	    JavascriptExecutor js = null;
-	    WebElement element = null;
-
-	    try {
-		/**
-		 * If an elementLocator was passed, store regularElementStyle and highlight that
-		 * element before taking the screenshot
-		 */
-		if (SCREENSHOT_PARAMS_HIGHLIGHTELEMENTS && elementLocator != null
-			&& (ElementActions.getElementsCount(driver, elementLocator,
-				RETRIESBEFORETHROWINGELEMENTNOTFOUNDEXCEPTION) == 1)) {
-		    element = driver.findElement(elementLocator);
-		    js = (JavascriptExecutor) driver;
-		    regularElementStyle = highlightElementAndReturnDefaultStyle(element, js,
-			    setHighlightedElementStyle());
-		}
-	    } catch (StaleElementReferenceException e) {
-		// this happens when WebDriver fails to capture the elements initial style or
-		// fails to highlight the element for some reason
-		ReportManager.log(e);
+	    Rectangle highlightedArea = null;
+	    if (SCREENSHOT_PARAMS_HIGHLIGHTELEMENTS && elementLocator != null) {
+		highlightedArea = getHighlightedArea(driver, elementLocator);
 	    }
 
 	    /**
-	     * Take the screenshot and store it as a file
+	     * Take the screenshot and keep it in memory
 	     */
-	    File src;
+	    Screenshot src;
 
 	    /**
 	     * Attempt to take a full page screenshot, take a regular screenshot upon
 	     * failure
 	     */
 	    try {
-		src = takeScreenshot(driver);
+		long startTime = TimingManager.start();
+		// nothing changed on the page since the last screenshot, so it doesn't need
+		// to be taken again
+		String pageState = getPageState(driver, highlightedArea);
+		boolean isPageUnchanged = pageState != null && pageState.equals(lastCapturedPageState.get());
+		src = isPageUnchanged ? null : takeScreenshot(driver);
+		TimingManager.record(Phase.SCREENSHOT, startTime);
 
 		/**
 		 * Declare screenshot file name
 		 */
-		testCaseName = Reporter.getCurrentTestResult().getMethod().getMethodName();
-		screenshotFileName = System.currentTimeMillis() + "_" + testCaseName + "_" + actionName;
+		testCaseName.set(Reporter.getCurrentTestResult().getMethod().getMethodName());
+		screenshotFileName.set(System.currentTimeMillis() + "_" + testCaseName.get() + "_" + actionName);
 		if (!appendedText.equals("")) {
-		    screenshotFileName = screenshotFileName + "_" + appendedText;
+		    screenshotFileName.set(screenshotFileName.get() + "_" + appendedText);
 		}
 
-		/**
-		 * If an elementLocator was passed, unhighlight that element after taking the
-		 * screenshot
-		 * 
-		 */
-		if (js != null) {
-		    js.executeScript("arguments[0].setAttribute('style', arguments[1]);", element, regularElementStyle);
+		if (isPageUnchanged) {
+		    ReportManager.attachExistingAsStep("Screenshot", screenshotFileName.get(),
+			    ScreenshotEncoder.getReportMimeType(), lastCapturedAttachmentSource.get());
+		} else {
+		    lastCapturedAttachmentSource.set(processScreenshot(driver, src, actionName, highlightedArea,
+			    getIgnoredRegions(driver)));
+		    lastCapturedPageState.set(pageState);
 		}
-
-		/**
-		 * Copy the screenshot to desired path, and append the appropriate filename.
-		 * 
-		 */
-		FileActions.copyFile(src.getAbsolutePath(), SCREENSHOT_FOLDERPATH + SCREENSHOT_FOLDERNAME
-			+ FileSystems.getDefault().getSeparator() + screenshotFileName + ".png");
-
-		addScreenshotToReport(src);
-		appendToAnimatedGif(src);
 	    } catch (WebDriverException e) {
 		// this happens when a browser session crashes mid-execution, or the docker is
 		// unregistered
 		ReportManager.log(e);
 	    }
 	} else {
-	    appendToAnimatedGif();
+	    if (isFlightRecorderMode()) {
+		recordFlightRecorderFrame(driver, actionName);
+	    }
+	    appendToAnimatedGif(driver, actionName);
+	}
+    }
+
+    private static boolean isFlightRecorderMode() {
+	return SCREENSHOT_PARAMS_WHENTOTAKEASCREENSHOT.equals("FlightRecorder");
+    }
+
+    private static void recordFlightRecorderFrame(WebDriver driver, String actionName) {
+	long startTime = TimingManager.start();
+	try {
+	    String pageState = getPageState(driver, null);
+	    if (!FlightRecorder.isRecorded(pageState)) {
+		FlightRecorder.record(actionName, pageState, takeRegularScreenshot(driver).getPngBytes());
+	    }
+	} catch (IOException | WebDriverException e) {
+	    // the frame is simply missing from the recording
+	    ReportManager.log(e);
+	} finally {
+	    TimingManager.record(Phase.SCREENSHOT, startTime);
+	}
+    }
+
+    private static void attachFlightRecorderFrames() {
+	FlightRecorder.flush((frameName, pngBytes) -> ReportManager.attach("Flight Recorder Screenshot", frameName,
+		new ByteArrayInputStream(pngBytes)));
+    }
+
+    /**
+     * Adds the screenshot to the report from the test thread, so that it shows up
+     * in the right place, and hands the rest of its processing over to the
+     * background pipeline; writing it to the screenshots folder, adding the
+     * watermark, encoding its attachment, and appending it to the animated GIF.
+     * Screenshots that are identical to one that was already processed are
+     * linked to its files instead of being written again. If the report copy is
+     * downscaled or lossy, the original is only kept for failed actions, and it
+     * carries the regions that image comparison should ignore.
+     * 
+     * @return the source of the report attachment of this screenshot
+     */
+    private static String processScreenshot(WebDriver driver, Screenshot screenshot, String actionName,
+	    Rectangle highlightedArea, List<Rectangle> ignoredRegions) {
+	String fileName = screenshotFileName.get();
+	String attachmentSource = ReportManager.prepareAttachmentAsStep("Screenshot", fileName,
+		ScreenshotEncoder.getReportMimeType(), ScreenshotEncoder.getReportFileExtension());
+	boolean passFailStatus = globalPassFailStatus.get();
+	boolean isOriginalRetained = !ScreenshotEncoder.isReportCopyConverted() || !passFailStatus;
+	// the same screenshot looks different in the report if another area is
+	// highlighted on it
+	String attachmentKind = highlightedArea == null ? "attachment"
+		: "attachment:" + highlightedArea + ":" + passFailStatus;
+	GifSequenceWriter animatedGifWriter = getAnimatedGifWriter(driver);
+	String screenshotFolderPath = SCREENSHOT_FOLDERPATH + SCREENSHOT_FOLDERNAME
+		+ FileSystems.getDefault().getSeparator();
+	FileActions.createFolder(screenshotFolderPath);
+
+	ScreenshotPipeline.submit(actionName, () -> {
+	    // the original bytes are written before the watermark is drawn on the raster
+	    byte[] screenshotBytes = IgnoredRegions.embed(screenshot.getPngBytes(), ignoredRegions);
+	    String contentHash = ScreenshotStore.hash(screenshotBytes);
+	    if (isOriginalRetained) {
+		ScreenshotStore.store("screenshot", contentHash, Paths.get(screenshotFolderPath + fileName + ".png"),
+			screenshotBytes);
+	    }
+
+	    // the screenshot is decoded once, for both the report and the animated GIF,
+	    // and only if it is needed
+	    BufferedImage screenshotImage = null;
+	    Path attachmentPath = ReportManager.getAttachmentPath(attachmentSource);
+	    if (!ScreenshotStore.link(attachmentKind, contentHash, attachmentPath)) {
+		screenshotImage = decorate(screenshot, highlightedArea, passFailStatus);
+		ReportManager.writeAttachment(attachmentSource,
+			SCREENSHOT_PARAMS_WATERMARK || highlightedArea != null
+				|| ScreenshotEncoder.isReportCopyConverted()
+					? ScreenshotEncoder.encodeReportCopy(screenshotImage)
+					: screenshotBytes);
+		ScreenshotStore.remember(attachmentKind, contentHash, attachmentPath);
+	    }
+
+	    if (animatedGifWriter != null) {
+		if (screenshotImage == null) {
+		    screenshotImage = decorate(screenshot, highlightedArea, passFailStatus);
+		}
+		animatedGifWriter.writeToSequence(screenshotImage);
+	    }
+	});
+	return attachmentSource;
+    }
+
+    private static BufferedImage decorate(Screenshot screenshot, Rectangle highlightedArea, boolean passFailStatus)
+	    throws IOException {
+	BufferedImage screenshotImage = screenshot.getImage();
+	if (highlightedArea != null) {
+	    screenshotImage = highlightArea(screenshotImage, highlightedArea, passFailStatus);
+	}
+	return overlayShaftEngineLogo(screenshotImage);
+    }
+
+    /**
+     * @return the state of the page that decides how its screenshot looks; the
+     *         document id and DOM mutation epoch that are tracked by the readiness
+     *         agent, the scroll position, the viewport size, what the screenshot
+     *         would be cropped to, whether the action passed, since only failed
+     *         actions keep their original screenshot, and what would be
+     *         highlighted on it. Or null if the agent isn't installed on this page,
+     *         in which case the state is unknown
+     */
+    private static String getPageState(WebDriver driver, Rectangle highlightedArea) {
+	try {
+	    Object pageState = ((JavascriptExecutor) driver).executeScript(JS_RETRIEVE_PAGE_STATE);
+	    if (pageState != null) {
+		return pageState + ":" + SCREENSHOT_PARAMS_SCREENSHOTTYPE + ":" + targetElementLocator.get() + ":"
+			+ globalPassFailStatus.get() + (highlightedArea == null ? "" : ":" + highlightedArea);
+	    }
+	} catch (WebDriverException e) {
+	    // the screenshot is taken anyway
 	}
+	return null;
     }
 
-    private static File takeScreenshot(WebDriver driver) {
+    private static Screenshot takeScreenshot(WebDriver driver) {
 	switch (SCREENSHOT_PARAMS_SCREENSHOTTYPE.toLowerCase().trim()) {
 	case "regular":
-	    return ((TakesScreenshot) driver).getScreenshotAs(OutputType.FILE);
+	    return takeRegularScreenshot(driver);
 	case "fullpage":
 	    return takeFullPageScreenshot(driver);
 	case "element":
 	    return takeElementScreenshot(driver, true);
 	default:
-	    return ((TakesScreenshot) driver).getScreenshotAs(OutputType.FILE);
+	    return takeRegularScreenshot(driver);
 	}
     }
 
-    private static File takeFullPageScreenshot(WebDriver driver) {
+    private static Screenshot takeRegularScreenshot(WebDriver driver) {
+	return Screenshot.fromBytes(((TakesScreenshot) driver).getScreenshotAs(OutputType.BYTES));
+    }
+
+    private static Screenshot takeFullPageScreenshot(WebDriver driver) {
 	try {
 	    if (SCREENSHOT_PARAMS_SKIPPEDELEMENTSFROMSCREENSHOT.length() > 0) {
 		List<WebElement> skippedElementsList = new ArrayList<>();
@@ -286,93 +405,126 @@ public class ScreenshotManager {
 	    }
 	} catch (Exception e) {
 	    ReportManager.log(e);
-	    return ((TakesScreenshot) driver).getScreenshotAs(OutputType.FILE);
+	    return takeRegularScreenshot(driver);
 	}
     }
 
-    private static File takeElementScreenshot(WebDriver driver, boolean isBaseFullPage) {
+    private static Screenshot takeElementScreenshot(WebDriver driver, boolean isBaseFullPage) {
 	try {
-	    if (targetElementLocator != null && ElementActions.getElementsCount(driver, targetElementLocator,
-		    RETRIESBEFORETHROWINGELEMENTNOTFOUNDEXCEPTION) == 1) {
-		return ScreenshotUtils.makeElementScreenshot(driver, targetElementLocator, isBaseFullPage);
+	    if (targetElementLocator.get() != null && ElementActions.getElementsCount(driver,
+		    targetElementLocator.get(), RETRIESBEFORETHROWINGELEMENTNOTFOUNDEXCEPTION) == 1) {
+		return ScreenshotUtils.makeElementScreenshot(driver, targetElementLocator.get(), isBaseFullPage);
 	    } else {
-		return ((TakesScreenshot) driver).getScreenshotAs(OutputType.FILE);
+		return takeRegularScreenshot(driver);
 	    }
 	} catch (Exception e) {
 	    ReportManager.log(e);
-	    return ((TakesScreenshot) driver).getScreenshotAs(OutputType.FILE);
+	    return takeRegularScreenshot(driver);
 	}
     }
 
-    private static void addScreenshotToReport(File screenshotFile) {
-	/**
-	 * Adding Screenshot to the Report.
-	 * 
-	 */
+    /**
+     * Locates the area of the screenshot that the element covers, using a single
+     * script that reads its bounding rectangle, so that it can be highlighted on
+     * the raster.
+     * 
+     * @return the highlighted area in screenshot pixels, or null if there isn't
+     *         exactly one element matching the elementLocator
+     */
+    private static Rectangle getHighlightedArea(WebDriver driver, By elementLocator) {
 	try {
-	    // add SHAFT_Engine logo overlay
-	    BufferedImage screenshotImage = ImageIO.read(screenshotFile);
-	    screenshotImage = overlayShaftEngineLogo(screenshotImage);
-	    ByteArrayOutputStream screenshotOutputStream = new ByteArrayOutputStream();
-	    ImageIO.write(screenshotImage, "png", screenshotOutputStream);
-
-	    ReportManager.attachAsStep("Screenshot", screenshotFileName,
-		    new ByteArrayInputStream(screenshotOutputStream.toByteArray()));
-
-	} catch (IOException e) {
+	    List<WebElement> matchingElements = driver.findElements(elementLocator);
+	    if (matchingElements.size() != 1) {
+		return null;
+	    }
+	    if (SCREENSHOT_PARAMS_SCREENSHOTTYPE.equalsIgnoreCase("element")) {
+		// the screenshot is cropped to the element itself
+		return new Rectangle(0, 0, Integer.MAX_VALUE, Integer.MAX_VALUE);
+	    }
+	    List<?> rect = (List<?>) ((JavascriptExecutor) driver).executeScript(JS_RETRIEVE_ELEMENT_RECT,
+		    matchingElements.get(0));
+	    double left = ((Number) rect.get(0)).doubleValue();
+	    double top = ((Number) rect.get(1)).doubleValue();
+	    double devicePixelRatio = ((Number) rect.get(4)).doubleValue();
+	    if (SCREENSHOT_PARAMS_SCREENSHOTTYPE.equalsIgnoreCase("fullpage")) {
+		// full page screenshots start at the top of the document
+		left += ((Number) rect.get(5)).doubleValue();
+		top += ((Number) rect.get(6)).doubleValue();
+	    }
+	    return new Rectangle((int) Math.round(left * devicePixelRatio), (int) Math.round(top * devicePixelRatio),
+		    (int) Math.round(((Number) rect.get(2)).doubleValue() * devicePixelRatio),
+		    (int) Math.round(((Number) rect.get(3)).doubleValue() * devicePixelRatio));
+	} catch (WebDriverException e) {
+	    // this happens when the element goes stale, so it just isn't highlighted
 	    ReportManager.log(e);
+	    return null;
 	}
     }
 
-    private static String highlightElementAndReturnDefaultStyle(WebElement element, JavascriptExecutor js,
-	    String highlightedElementStyle) {
-	String regularElementStyle = element.getAttribute("style");
-	if (regularElementStyle != null && !regularElementStyle.equals("")) {
-	    js.executeScript("arguments[0].style.cssText = arguments[1];", element,
-		    regularElementStyle + highlightedElementStyle);
-	} else {
-	    js.executeScript("arguments[0].setAttribute('style', arguments[1]);", element, highlightedElementStyle);
-	}
-
-	try {
-	    JSWaiter.waitForLazyLoading();
-	} catch (Exception e) {
-	    ReportManager.log(e);
+    /**
+     * Locates the areas of the screenshot that the ignored elements cover, see
+     * {@link #ignoreElementsInImageComparison}.
+     * 
+     * @return the ignored areas in screenshot pixels, skipping the elements that
+     *         can't be located
+     */
+    private static List<Rectangle> getIgnoredRegions(WebDriver driver) {
+	List<Rectangle> ignoredRegions = new ArrayList<>();
+	if (!SCREENSHOT_PARAMS_SCREENSHOTTYPE.equalsIgnoreCase("element")) {
+	    for (By elementLocator : ignoredElementLocators.get()) {
+		Rectangle ignoredRegion = getHighlightedArea(driver, elementLocator);
+		if (ignoredRegion != null) {
+		    ignoredRegions.add(ignoredRegion);
+		}
+	    }
 	}
-	return regularElementStyle;
+	return ignoredRegions;
     }
 
-    private static String setHighlightedElementStyle() {
-	String highlightedElementStyle = "";
-	if (globalPassFailStatus) {
-	    highlightedElementStyle = "outline-offset:-3px !important; outline:3px solid #808080 !important; background:#46aad2 !important; background-color:#A5D2A5 !important; color:#000000 !important; -webkit-transition: none !important; -moz-transition: none !important; -o-transition: none !important; transition: none !important;";
-	    // [incorta-blue: #46aad2] background-color:#A5D2A5
-	} else {
-	    highlightedElementStyle = "outline-offset:-3px !important; outline:3px solid #808080 !important; background:#FFFF99 !important; background-color:#FFFF99 !important; color:#000000 !important; -webkit-transition: none !important; -moz-transition: none !important; -o-transition: none !important; transition: none !important;";
-	    // background-color:#ffff66
+    /**
+     * Draws the pass/fail highlight of an element on the screenshot; a tinted fill
+     * and an outline inside its border.
+     */
+    private static BufferedImage highlightArea(BufferedImage screenshot, Rectangle highlightedArea,
+	    boolean passFailStatus) {
+	Rectangle visibleArea = highlightedArea
+		.intersection(new Rectangle(0, 0, screenshot.getWidth(), screenshot.getHeight()));
+	if (visibleArea.isEmpty()) {
+	    return screenshot;
+	}
+	Graphics2D screenshotGraphics = screenshot.createGraphics();
+	screenshotGraphics.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, 0.4f));
+	screenshotGraphics.setColor(passFailStatus ? new Color(0xA5D2A5) : new Color(0xFFFF99));
+	screenshotGraphics.fill(visibleArea);
+	screenshotGraphics.setComposite(AlphaComposite.SrcOver);
+	screenshotGraphics.setColor(new Color(0x808080));
+	int outlineWidth = Math.min(3, Math.min(visibleArea.width, visibleArea.height) / 2 + 1);
+	for (int i = 0; i < outlineWidth; i++) {
+	    screenshotGraphics.drawRect(visibleArea.x + i, visibleArea.y + i, visibleArea.width - 1 - 2 * i,
+		    visibleArea.height - 1 - 2 * i);
 	}
-	return highlightedElementStyle;
+	screenshotGraphics.dispose();
+	return screenshot;
     }
 
     public static void startAnimatedGif(WebDriver driver) {
 	if (CREATE_GIF) {
-	    gifDriver = driver;
+	    gifDriver.set(driver);
+	    long startTime = TimingManager.start();
 	    try {
-		testCaseName = Reporter.getCurrentTestResult().getMethod().getMethodName();
-		gifFilePath = SCREENSHOT_FOLDERPATH + SCREENSHOT_FOLDERNAME + FileSystems.getDefault().getSeparator()
-			+ System.currentTimeMillis() + "_" + testCaseName + ".gif";
-		File src = ((TakesScreenshot) gifDriver).getScreenshotAs(OutputType.FILE); // takes first screenshot
-		FileActions.copyFile(src.getAbsolutePath(), gifFilePath);
-
-		// grab the output image type from the first image in the sequence
-		BufferedImage firstImage = ImageIO.read(new File(gifFilePath));
+		testCaseName.set(Reporter.getCurrentTestResult().getMethod().getMethodName());
+		gifFilePath.set(SCREENSHOT_FOLDERPATH + SCREENSHOT_FOLDERNAME + FileSystems.getDefault().getSeparator()
+			+ System.currentTimeMillis() + "_" + testCaseName.get() + ".gif");
+		// takes first screenshot, and grabs the output image type from it
+		BufferedImage firstImage = takeRegularScreenshot(gifDriver.get()).getImage();
+		FileActions.createFolder(SCREENSHOT_FOLDERPATH + SCREENSHOT_FOLDERNAME);
 
 		// create a new BufferedOutputStream
-		gifOutputStream = new FileImageOutputStream(new File(gifFilePath));
+		gifOutputStream.set(new FileImageOutputStream(new File(gifFilePath.get())));
 
-		// create a gif sequence with the type of the first image, 500 milliseconds
-		// between frames, which loops infinitely
-		gifWriter = new GifSequenceWriter(gifOutputStream, firstImage.getType(), GIF_FRAME_DELAY, true);
+		// create a gif sequence with 500 milliseconds between frames, which loops
+		// infinitely
+		gifWriter.set(new GifSequenceWriter(gifOutputStream.get(), GIF_FRAME_DELAY, true, GIF_SCALE));
 
 		// draw initial blank image to set the size of the GIF...
 		BufferedImage initialImage = new BufferedImage(firstImage.getWidth(), firstImage.getHeight(),
@@ -382,15 +534,17 @@ public class ScreenshotManager {
 		initialImageGraphics.clearRect(0, 0, firstImage.getWidth(), firstImage.getHeight());
 
 		// write out initialImage to the sequence...
-		gifWriter.writeToSequence(overlayShaftEngineLogo(initialImage));
+		gifWriter.get().writeToSequence(overlayShaftEngineLogo(initialImage));
 		initialImageGraphics.dispose();
 		// write out first image to the sequence...
-		gifWriter.writeToSequence(overlayShaftEngineLogo(firstImage));
+		gifWriter.get().writeToSequence(overlayShaftEngineLogo(firstImage));
 	    } catch (IOException | WebDriverException e) {
 		ReportManager.log(e);
 	    } catch (NullPointerException e2) {
 		// this happens in case the start animated Gif is triggered in a none-test
 		// method
+	    } finally {
+		TimingManager.record(Phase.ENCODE, startTime);
 	    }
 	}
     }
@@ -407,9 +561,7 @@ public class ScreenshotManager {
 			AlphaComposite.getInstance(AlphaComposite.SRC_OVER, SCREENSHOT_PARAMS_WATERMARKOPACITY));
 
 		// overlay SHAFT_Engine logo to the initial image...
-		BufferedImage shaftLogo = ImageIO.read(new File(System.getProperty("watermarkImagePath").trim()));
-		shaftLogo = toBufferedImage(
-			shaftLogo.getScaledInstance(screenshot.getWidth() / 8, -1, Image.SCALE_SMOOTH));
+		BufferedImage shaftLogo = getWatermarkImage(screenshot.getWidth() / 8);
 		screenshotGraphics.drawImage(shaftLogo, screenshot.getWidth() - shaftLogo.getWidth(),
 			screenshot.getHeight() - shaftLogo.getHeight(), null);
 		screenshotGraphics.dispose();
@@ -420,6 +572,21 @@ public class ScreenshotManager {
 	return screenshot;
     }
 
+    private static synchronized BufferedImage getWatermarkImage(int width) throws IOException {
+	// the logo is decoded once, and only scaled again when the screenshot width
+	// changes
+	if (watermarkImage == null) {
+	    watermarkImage = ImageIO.read(new File(System.getProperty("watermarkImagePath").trim()));
+	    if (watermarkImage == null) {
+		throw new IOException("Failed to decode the watermark image.");
+	    }
+	}
+	if (scaledWatermarkImage == null || scaledWatermarkImage.getWidth() != width) {
+	    scaledWatermarkImage = toBufferedImage(watermarkImage.getScaledInstance(width, -1, Image.SCALE_SMOOTH));
+	}
+	return scaledWatermarkImage;
+    }
+
     private static BufferedImage toBufferedImage(Image img) {
 	if (img instanceof BufferedImage) {
 	    return (BufferedImage) img;
@@ -437,57 +604,108 @@ public class ScreenshotManager {
 	return bimage;
     }
 
-    private static void appendToAnimatedGif(File... screenshot) {
+    /**
+     * @return the writer of the animated GIF of the current test, or null if the
+     *         GIF was just started using a fresh screenshot
+     */
+    private static GifSequenceWriter getAnimatedGifWriter(WebDriver driver) {
 	// ensure that animatedGif is started, else force start it
+	if (CREATE_GIF && (gifDriver.get() == null || gifWriter.get() == null)) {
+	    startAnimatedGif(driver);
+	    return null;
+	}
+	return gifWriter.get();
+    }
+
+    private static void appendToAnimatedGif(WebDriver driver, String actionName) {
 	if (CREATE_GIF) {
-	    if (gifDriver == null || gifWriter == null) {
-		BrowserFactory.startAnimatedGif();
-	    } else {
+	    GifSequenceWriter animatedGifWriter = getAnimatedGifWriter(driver);
+	    if (animatedGifWriter != null) {
 		try {
-		    BufferedImage image;
-		    if (screenshot.length == 1) {
-			image = ImageIO.read(screenshot[0]);
-		    } else {
-			image = ImageIO.read(((TakesScreenshot) gifDriver).getScreenshotAs(OutputType.FILE));
-		    }
-		    gifWriter.writeToSequence(overlayShaftEngineLogo(image));
-
+		    long startTime = TimingManager.start();
+		    Screenshot screenshot = takeRegularScreenshot(gifDriver.get());
+		    TimingManager.record(Phase.SCREENSHOT, startTime);
+		    ScreenshotPipeline.submit(actionName, () -> animatedGifWriter
+			    .writeToSequence(overlayShaftEngineLogo(screenshot.getImage())));
 		} catch (NoSuchSessionException e) {
 		    // this happens when attempting to append to a non existing gif, expected
 		    // solution is to recreate the gif
-		    BrowserFactory.startAnimatedGif();
+		    startAnimatedGif(driver);
 		} catch (WebDriverException e) {
 		    if (e.getMessage().contains("was terminated due to BROWSER_TIMEOUT")) {
 			// this happens when attempting to append to a gif from an already terminated
 			// browser session
-			BrowserFactory.startAnimatedGif();
+			startAnimatedGif(driver);
 		    } else {
 			ReportManager.log(e);
 		    }
-		} catch (IOException | IllegalStateException | IllegalArgumentException | NullPointerException e) {
-		    ReportManager.log(e);
 		}
 	    }
 	}
     }
 
+    /**
+     * Ends the flight recording of the current test, when the
+     * screenshotParams_whenToTakeAScreenshot parameter is FlightRecorder. The last
+     * screenshots are attached to the report if the test failed, and discarded
+     * otherwise.
+     * 
+     * @param isTestFailed true if the current test failed
+     */
+    public static void stopFlightRecorder(boolean isTestFailed) {
+	if (isFlightRecorderMode()) {
+	    if (isTestFailed) {
+		attachFlightRecorderFrames();
+	    } else {
+		FlightRecorder.discard();
+	    }
+	}
+    }
+
+    /**
+     * Sets the elements that image comparison should ignore in the screenshots
+     * that the current test thread takes from now on, such as a blinking cursor,
+     * a clock, or an advertisement. Their areas are located when each screenshot
+     * is taken, and stored inside its PNG file, so that
+     * {@link ImageProcessingActions#compareImageFolders} skips them. The elements
+     * are only ignored until the current test method ends, so they should be set
+     * in the test method itself, or in a method annotated with BeforeMethod.
+     * 
+     * @param elementLocators the locators of the ignored elements, or none to stop
+     *                        ignoring elements
+     */
+    public static void ignoreElementsInImageComparison(By... elementLocators) {
+	ignoredElementLocators.set(new ArrayList<>(Arrays.asList(elementLocators)));
+    }
+
+    /**
+     * Waits for all the screenshots that were taken by the current test thread to
+     * be processed in the background, so that they are all attached before the
+     * test ends.
+     */
+    public static void waitForScreenshotProcessing() {
+	ScreenshotPipeline.drain();
+    }
+
     public static void attachAnimatedGif() {
 	// stop and attach
-	if (CREATE_GIF && gifDriver != null && !gifFilePath.equals("")) {
+	if (CREATE_GIF && gifDriver.get() != null && !gifFilePath.get().equals("")) {
 	    try {
-		appendToAnimatedGif();
+		appendToAnimatedGif(gifDriver.get(), "attachAnimatedGif");
 	    } catch (Exception e) {
 		ReportManager.log(e);
 	    }
+	    // all the frames are written before the GIF is closed
+	    ScreenshotPipeline.drain();
 	    try {
-		gifWriter.close();
-		gifOutputStream.close();
-
-		gifOutputStream = null;
-		gifWriter = null;
-		gifDriver = null;
-		ReportManager.attach("Animated Gif", testCaseName, new FileInputStream(gifFilePath));
-		gifFilePath = "";
+		gifWriter.get().close();
+		gifOutputStream.get().close();
+
+		gifOutputStream.remove();
+		gifWriter.remove();
+		gifDriver.remove();
+		ReportManager.attach("Animated Gif", testCaseName.get(), new FileInputStream(gifFilePath.get()));
+		gifFilePath.set("");
 	    } catch (IOException | NullPointerException | IllegalStateException e) {
 		ReportManager.log(e);
 	    }
@@ -496,13 +714,15 @@ public class ScreenshotManager {
 
     public static void storeElementScreenshotForAISupportedElementIdentification(WebDriver driver, By elementLocator) {
 	if (AI_SUPPORTED_ELEMENT_IDENTIFICATION) {
-	    FileActions.createFolder(AI_AIDED_ELEMENT_IDENTIFICATION_FOLDERPATH);
-	    File element = takeElementScreenshot(driver, false);
-
-	    String elementFileName = elementLocator.toString().replaceAll("[\\W\\s]", "_");
-
-	    FileActions.copyFile(element.getAbsolutePath(),
-		    AI_AIDED_ELEMENT_IDENTIFICATION_FOLDERPATH + elementFileName + ".png");
+	    long startTime = TimingManager.start();
+	    try {
+		String pageState = (String) ((JavascriptExecutor) driver).executeScript(JS_RETRIEVE_PAGE_STATE);
+		ElementScreenshotStore.store(driver, elementLocator, pageState);
+	    } catch (WebDriverException e) {
+		ReportManager.log(e);
+	    } finally {
+		TimingManager.record(Phase.SCREENSHOT, startTime);
+	    }
 	}
     }
 
@@ -0,0 +1,129 @@
+package com.shaft.gui.image;
+
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.shaft.tools.io.ReportManager;
+import com.shaft.tools.io.TimingManager;
+import com.shaft.tools.io.TimingManager.Phase;
+
+/**
+ * Processes screenshots in the background, so that the test thread only waits
+ * for the browser to capture them. Decoding, watermarking, PNG encoding, writing
+ * the report attachment and appending the animated GIF frame all happen on a
+ * small pool of worker threads.
+ *
+ * The tasks of each test thread are performed in the order in which they were
+ * submitted, so the frames of an animated GIF are never reordered, while tasks
+ * from different test threads run in parallel. The number of pending tasks is
+ * bounded, and a test thread that submits a task while the pipeline is full
+ * waits for a free slot. Every test thread drains its own tasks at the end of
+ * each test method, see {@link #drain()}.
+ */
+class ScreenshotPipeline {
+    @FunctionalInterface
+    interface Task {
+	void run() throws Exception;
+    }
+
+    private static final int WORKER_THREADS = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+    private static final int MAXIMUM_PENDING_TASKS = 16;
+    private static final Boolean ASYNCHRONOUS_PROCESSING = Boolean
+	    .valueOf(System.getProperty("screenshotParams_asynchronousProcessing").trim());
+
+    private static final Semaphore pendingTasks = new Semaphore(MAXIMUM_PENDING_TASKS);
+    private static final AtomicInteger workerCounter = new AtomicInteger(1);
+    private static final ExecutorService workers = Executors.newFixedThreadPool(WORKER_THREADS, task -> {
+	Thread worker = new Thread(task, "SHAFT-ScreenshotPipeline-" + workerCounter.getAndIncrement());
+	worker.setDaemon(true);
+	return worker;
+    });
+
+    // the last task submitted by each test thread, and the failures of its tasks
+    // that weren't reported yet
+    private static ThreadLocal<CompletableFuture<Void>> lastTask = ThreadLocal
+	    .withInitial(() -> CompletableFuture.completedFuture(null));
+    private static ThreadLocal<Queue<Exception>> failures = ThreadLocal.withInitial(ConcurrentLinkedQueue::new);
+
+    private ScreenshotPipeline() {
+	throw new IllegalStateException("Utility class");
+    }
+
+    /**
+     * Queues a task after all the tasks that were previously submitted by the
+     * current thread, and waits for a free slot if the pipeline is full.
+     *
+     * @param actionName the name of the action that took the screenshot, used to
+     *                   report the time spent processing it
+     * @param task       the processing that doesn't need the browser
+     */
+    static void submit(String actionName, Task task) {
+	String testName = TimingManager.getCurrentTest();
+	Queue<Exception> taskFailures = failures.get();
+	if (!ASYNCHRONOUS_PROCESSING) {
+	    perform(testName, actionName, task, taskFailures);
+	    reportFailures();
+	    return;
+	}
+
+	long startTime = TimingManager.start();
+	try {
+	    pendingTasks.acquire();
+	} catch (InterruptedException e) {
+	    Thread.currentThread().interrupt();
+	    perform(testName, actionName, task, taskFailures);
+	    return;
+	} finally {
+	    TimingManager.record(Phase.ENCODE, startTime);
+	}
+	// a task that failed doesn't stop the tasks that were queued after it
+	lastTask.set(lastTask.get().handle((result, failure) -> result).thenRunAsync(() -> {
+	    try {
+		perform(testName, actionName, task, taskFailures);
+	    } finally {
+		pendingTasks.release();
+	    }
+	}, workers));
+    }
+
+    /**
+     * Waits for all the tasks that were submitted by the current thread to
+     * finish, and reports any of them that failed.
+     */
+    static void drain() {
+	long startTime = TimingManager.start();
+	try {
+	    lastTask.get().join();
+	} catch (CompletionException e) {
+	    ReportManager.log(e);
+	}
+	lastTask.remove();
+	TimingManager.record(Phase.ENCODE, startTime);
+	reportFailures();
+    }
+
+    private static void perform(String testName, String actionName, Task task, Queue<Exception> taskFailures) {
+	long startTime = System.nanoTime();
+	try {
+	    task.run();
+	} catch (Exception e) {
+	    // the report can only be written from the test thread
+	    taskFailures.add(e);
+	} finally {
+	    TimingManager.recordCompleted(testName, actionName, Phase.ENCODE, System.nanoTime() - startTime);
+	}
+    }
+
+    private static void reportFailures() {
+	Exception failure;
+	while ((failure = failures.get().poll()) != null) {
+	    ReportManager.log(failure);
+	}
+    }
+}
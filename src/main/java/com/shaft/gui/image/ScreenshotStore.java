@@ -0,0 +1,101 @@
+package com.shaft.gui.image;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Stores the content of every distinct screenshot only once per execution.
+ *
+ * Each stored file is remembered by the hash of its content, and any later
+ * file with the same content is created as a hard link to the first one, so
+ * the duplicates keep their own names and can still be referenced separately
+ * by the report. If a link can't be created, for example when the files are on
+ * different file systems, the content is simply written again.
+ */
+class ScreenshotStore {
+    // content key to the first file that was stored with that content
+    private static Map<String, Path> storedFiles = new ConcurrentHashMap<>();
+
+    private ScreenshotStore() {
+	throw new IllegalStateException("Utility class");
+    }
+
+    /**
+     * @param content the content of a file
+     * @return the hexadecimal SHA-256 hash of that content
+     */
+    static String hash(byte[] content) {
+	try {
+	    StringBuilder hash = new StringBuilder();
+	    for (byte hashByte : MessageDigest.getInstance("SHA-256").digest(content)) {
+		hash.append(String.format("%02x", hashByte));
+	    }
+	    return hash.toString();
+	} catch (NoSuchAlgorithmException e) {
+	    // every Java platform is required to support SHA-256
+	    throw new IllegalStateException(e);
+	}
+    }
+
+    /**
+     * Writes the content to the target file, unless the same content was already
+     * stored under the same kind, in which case the target is linked to it.
+     *
+     * @param kind    the kind of stored file, like the raw screenshot or its
+     *                report attachment, since each kind is derived differently
+     *                from the same content
+     * @param hash    the hash of the screenshot that the content was derived from
+     * @param target  the file that should hold the content
+     * @param content the content, only written if it wasn't stored before
+     * @throws IOException if the content could not be written
+     */
+    static void store(String kind, String hash, Path target, byte[] content) throws IOException {
+	if (!link(kind, hash, target)) {
+	    Files.write(target, content);
+	    storedFiles.putIfAbsent(kind + ":" + hash, target);
+	}
+    }
+
+    /**
+     * Links the target file to a file that was already stored with the same
+     * content.
+     *
+     * @param kind   the kind of stored file
+     * @param hash   the hash of the screenshot that the content was derived from
+     * @param target the file that should hold the content
+     * @return true if the target was linked, or false if the content was never
+     *         stored before and should be written, see
+     *         {@link #remember(String, String, Path)}
+     */
+    static boolean link(String kind, String hash, Path target) {
+	Path storedFile = storedFiles.get(kind + ":" + hash);
+	if (storedFile == null || !Files.exists(storedFile)) {
+	    return false;
+	}
+	try {
+	    Files.deleteIfExists(target);
+	    Files.createLink(target, storedFile);
+	    return true;
+	} catch (IOException | UnsupportedOperationException | SecurityException e) {
+	    return false;
+	}
+    }
+
+    /**
+     * Remembers a file that was written outside of this store, so that later
+     * files with the same content can be linked to it.
+     *
+     * @param kind       the kind of stored file
+     * @param hash       the hash of the screenshot that the content was derived
+     *                   from
+     * @param storedFile the file that holds the content
+     */
+    static void remember(String kind, String hash, Path storedFile) {
+	storedFiles.putIfAbsent(kind + ":" + hash, storedFile);
+    }
+}
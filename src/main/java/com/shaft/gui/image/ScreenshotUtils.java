@@ -3,8 +3,21 @@ package com.shaft.gui.image;
 import java.awt.Graphics2D;
 import java.awt.image.BufferedImage;
 import java.io.ByteArrayInputStream;
-import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.imageio.ImageIO;
 
@@ -14,7 +27,11 @@ import org.openqa.selenium.OutputType;
 import org.openqa.selenium.Point;
 import org.openqa.selenium.TakesScreenshot;
 import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
 import org.openqa.selenium.WebElement;
+import org.openqa.selenium.chrome.ChromeDriver;
+
+import com.shaft.tools.io.ReportManager;
 
 public class ScreenshotUtils {
 
@@ -24,6 +41,26 @@ public class ScreenshotUtils {
 
     private static final String JS_RETRIEVE_DEVICE_PIXEL_RATIO = "var pr = window.devicePixelRatio; if (pr != undefined && pr != null)return pr; else return 1.0;";
 
+    private enum FullPageStrategy {
+	DEVTOOLS, STITCHING
+    }
+
+    // the full page strategy that works for each browser session, decided by its
+    // first full page screenshot
+    private static Map<WebDriver, FullPageStrategy> fullPageStrategies = Collections
+	    .synchronizedMap(new WeakHashMap<>());
+
+    // decodes and draws the stitched tiles while the browser scrolls to the next
+    // viewport
+    private static final AtomicInteger workerCounter = new AtomicInteger(1);
+    private static final ExecutorService stitchingWorkers = Executors
+	    .newFixedThreadPool(Math.max(1, Runtime.getRuntime().availableProcessors() / 2), task -> {
+		Thread worker = new Thread(task, "SHAFT-ScreenshotStitcher-" + workerCounter.getAndIncrement());
+		worker.setDaemon(true);
+		return worker;
+	    });
+    private static String scrollScript = null;
+
     private static void hideScroll(WebDriver driver) {
 	((JavascriptExecutor) driver).executeScript("document.documentElement.style.overflow = 'hidden';");
     }
@@ -51,8 +88,79 @@ public class ScreenshotUtils {
 	return ((TakesScreenshot) driver).getScreenshotAs(OutputType.BYTES);
     }
 
-    // The code that does the job
-    protected static File makeFullScreenshot(WebDriver driver, WebElement... skipElements) throws IOException {
+    /**
+     * Captures the whole page in a single DevTools command when the browser is
+     * Chromium based, and falls back to scrolling the page and stitching its
+     * viewports otherwise. The strategy is decided once per browser session.
+     * 
+     * @param driver       the current instance of Selenium webdriver
+     * @param skipElements the elements that should be hidden after the first
+     *                     viewport, like sticky headers, only needed while
+     *                     stitching
+     * @return the full page screenshot
+     * @throws IOException if one of the captured viewports could not be decoded
+     */
+    static Screenshot makeFullScreenshot(WebDriver driver, WebElement... skipElements) throws IOException {
+	FullPageStrategy strategy = fullPageStrategies.computeIfAbsent(driver,
+		key -> key instanceof ChromeDriver ? FullPageStrategy.DEVTOOLS : FullPageStrategy.STITCHING);
+	if (strategy == FullPageStrategy.DEVTOOLS) {
+	    try {
+		return makeDevToolsFullScreenshot((ChromeDriver) driver);
+	    } catch (WebDriverException | IllegalArgumentException | ClassCastException | NullPointerException e) {
+		// this happens with Chromium versions that don't support these DevTools
+		// commands, so this session will always be stitched
+		ReportManager.log(e);
+		fullPageStrategies.put(driver, FullPageStrategy.STITCHING);
+	    }
+	}
+	return makeStitchedFullScreenshot(driver, skipElements);
+    }
+
+    /**
+     * Asks Chromium to render the whole page, including the parts beyond the
+     * viewport, without scrolling it.
+     * 
+     * @param driver the current instance of Chrome webdriver
+     * @return the full page screenshot, as returned by the browser
+     */
+    @SuppressWarnings("unchecked")
+    private static Screenshot makeDevToolsFullScreenshot(ChromeDriver driver) {
+	Map<String, Object> layoutMetrics = driver.executeCdpCommand("Page.getLayoutMetrics", new HashMap<>());
+	// cssContentSize is only reported by newer versions, where contentSize is in
+	// device pixels
+	Map<String, Object> contentSize = (Map<String, Object>) layoutMetrics.getOrDefault("cssContentSize",
+		layoutMetrics.get("contentSize"));
+
+	Map<String, Object> clip = new HashMap<>();
+	clip.put("x", 0);
+	clip.put("y", 0);
+	clip.put("width", ((Number) contentSize.get("width")).doubleValue());
+	clip.put("height", ((Number) contentSize.get("height")).doubleValue());
+	clip.put("scale", 1);
+
+	Map<String, Object> parameters = new HashMap<>();
+	parameters.put("format", "png");
+	parameters.put("captureBeyondViewport", true);
+	parameters.put("fromSurface", true);
+	parameters.put("clip", clip);
+	Map<String, Object> screenshot = driver.executeCdpCommand("Page.captureScreenshot", parameters);
+	return Screenshot.fromBytes(Base64.getDecoder().decode((String) screenshot.get("data")));
+    }
+
+    /**
+     * Scrolls the page from top to bottom and stitches the captured viewports
+     * together in memory. Each viewport is captured on the current thread, and
+     * then decoded and drawn on a worker thread while the browser scrolls to the
+     * next one.
+     * 
+     * @param driver       the current instance of Selenium webdriver
+     * @param skipElements the elements that should be hidden after the first
+     *                     viewport, like sticky headers
+     * @return the full page screenshot
+     * @throws IOException if one of the captured viewports could not be decoded
+     */
+    private static Screenshot makeStitchedFullScreenshot(WebDriver driver, WebElement... skipElements)
+	    throws IOException {
 
 	// scroll up first to start taking screenshots
 	scrollVerticallyTo(driver, 0);
@@ -75,11 +183,9 @@ public class ScreenshotUtils {
 
 	int scrollHeight = (int) longScrollHeight;
 
-	File file = File.createTempFile("screenshot", ".png");
-
 	int adaptedCapturedHeight = (int) (((double) capturedHeight) / devicePixelRatio);
 
-	BufferedImage resultingImage;
+	Screenshot resultingScreenshot;
 
 	if (Math.abs(adaptedCapturedHeight - scrollHeight) > 40) {
 	    int scrollOffset = adaptedCapturedHeight;
@@ -89,36 +195,43 @@ public class ScreenshotUtils {
 
 	    final BufferedImage tiledImage = new BufferedImage(capturedWidth,
 		    (int) (((double) scrollHeight) * devicePixelRatio), BufferedImage.TYPE_INT_RGB);
-	    Graphics2D g2dTile = tiledImage.createGraphics();
-	    g2dTile.drawImage(image, 0, 0, null);
+	    List<Future<?>> tiles = new ArrayList<>();
+	    tiles.add(stitchingWorkers.submit(() -> drawTile(tiledImage, image, 0)));
 
 	    int scroll = 0;
 	    for (int i = 0; i < times - 1; i++) {
 		scroll += scrollOffset;
 		scrollVerticallyTo(driver, scroll);
-		BufferedImage nextImage = ImageIO.read(new ByteArrayInputStream(getScreenShot(driver)));
-		g2dTile.drawImage(nextImage, 0, (i + 1) * capturedHeight, null);
+		byte[] tileBytes = getScreenShot(driver);
+		int tileY = (i + 1) * capturedHeight;
+		tiles.add(stitchingWorkers.submit(() -> drawTile(tiledImage, decodeTile(tileBytes), tileY)));
 	    }
 	    if (leftover > 0) {
 		scroll += scrollOffset;
 		scrollVerticallyTo(driver, scroll);
-		BufferedImage nextImage = ImageIO.read(new ByteArrayInputStream(getScreenShot(driver)));
-		BufferedImage lastPart = nextImage.getSubimage(0,
-			nextImage.getHeight() - (int) (((double) leftover) * devicePixelRatio), nextImage.getWidth(),
-			leftover);
-		g2dTile.drawImage(lastPart, 0, times * capturedHeight, null);
+		byte[] tileBytes = getScreenShot(driver);
+		int tileY = times * capturedHeight;
+		// the leftover is in CSS pixels, and the captured viewport in device pixels
+		int leftoverHeight = (int) (((double) leftover) * devicePixelRatio);
+		tiles.add(stitchingWorkers.submit(() -> {
+		    BufferedImage nextImage = decodeTile(tileBytes);
+		    BufferedImage lastPart = nextImage.getSubimage(0, nextImage.getHeight() - leftoverHeight,
+			    nextImage.getWidth(), leftoverHeight);
+		    return drawTile(tiledImage, lastPart, tileY);
+		}));
 	    }
 
 	    scrollVerticallyTo(driver, 0);
+	    awaitTiles(tiles);
 
-	    resultingImage = tiledImage;
+	    resultingScreenshot = Screenshot.fromImage(tiledImage);
 	} else {
-	    resultingImage = image;
+	    // the first viewport is the whole page, so its original bytes are kept
+	    resultingScreenshot = Screenshot.fromDecodedBytes(bytes, image);
 	}
 	showScroll(driver);
 	showHideElements(driver, false, skipElements);
-	ImageIO.write(resultingImage, "png", file);
-	return file;
+	return resultingScreenshot;
     }
 
     /**
@@ -128,23 +241,22 @@ public class ScreenshotUtils {
      *                       selector, name ...etc)
      * @param isBaseFullPage true means crop from fullPageScreenshot, and false
      *                       means crop from regularScreenshot
-     * @return a file object that holds the screenshot
-     * @throws IOException if there was a problem writing the screenshot to a file
-     *                     object
+     * @return the cropped element screenshot
+     * @throws IOException if the base screenshot could not be decoded
      */
-    protected static File makeElementScreenshot(WebDriver driver, By elementLocator, boolean isBaseFullPage)
+    static Screenshot makeElementScreenshot(WebDriver driver, By elementLocator, boolean isBaseFullPage)
 	    throws IOException {
 	WebElement targetElement = driver.findElement(elementLocator);
 
-	File baseScreenshot = null;
+	Screenshot baseScreenshot = null;
 
 	if (isBaseFullPage) {
 	    baseScreenshot = ScreenshotUtils.makeFullScreenshot(driver);
 	} else {
-	    baseScreenshot = ((TakesScreenshot) driver).getScreenshotAs(OutputType.FILE);
+	    baseScreenshot = Screenshot.fromBytes(getScreenShot(driver));
 	}
 
-	BufferedImage baseImg = ImageIO.read(baseScreenshot);
+	BufferedImage baseImg = baseScreenshot.getImage();
 
 	// Get the location of element on the page
 	Point point = targetElement.getLocation();
@@ -156,12 +268,50 @@ public class ScreenshotUtils {
 	// Crop the entire page screenshot to get only element screenshot
 	BufferedImage eleScreenshot = baseImg.getSubimage(point.getX(), point.getY(), eleWidth, eleHeight);
 
-	File file = File.createTempFile("screenshot", ".png");
-	ImageIO.write(eleScreenshot, "png", file);
-	return file;
+	return Screenshot.fromImage(eleScreenshot);
+    }
+
+    private static BufferedImage decodeTile(byte[] tileBytes) throws IOException {
+	BufferedImage tile = ImageIO.read(new ByteArrayInputStream(tileBytes));
+	if (tile == null) {
+	    throw new IOException("Failed to decode a viewport of the full page screenshot.");
+	}
+	return tile;
+    }
+
+    private static BufferedImage drawTile(BufferedImage tiledImage, BufferedImage tile, int tileY) {
+	// every tile is drawn on its own rows, so the tiles don't need to be drawn in
+	// order
+	Graphics2D g2dTile = tiledImage.createGraphics();
+	g2dTile.drawImage(tile, 0, tileY, null);
+	g2dTile.dispose();
+	return tiledImage;
+    }
+
+    private static void awaitTiles(List<Future<?>> tiles) throws IOException {
+	try {
+	    for (Future<?> tile : tiles) {
+		tile.get();
+	    }
+	} catch (InterruptedException e) {
+	    Thread.currentThread().interrupt();
+	    throw new IOException("Interrupted while stitching the full page screenshot.", e);
+	} catch (ExecutionException e) {
+	    throw new IOException("Failed to stitch the full page screenshot.", e.getCause());
+	}
     }
 
     private static void scrollVerticallyTo(WebDriver driver, int scroll) {
+	String script = getScrollScript();
+	if (!script.equals("")) {
+	    try {
+		// returns once the browser reports the scroll and paints the next frame
+		((JavascriptExecutor) driver).executeAsyncScript(script, scroll);
+		return;
+	    } catch (WebDriverException e) {
+		// fall back to polling the scroll position
+	    }
+	}
 	((JavascriptExecutor) driver).executeScript("window.scrollTo(0, " + scroll + ");");
 	try {
 	    waitUntilItIsScrolledToPosition(driver, scroll);
@@ -171,6 +321,18 @@ public class ScreenshotUtils {
 	}
     }
 
+    private static String getScrollScript() {
+	if (scrollScript == null) {
+	    try {
+		scrollScript = new String(Files.readAllBytes(Paths.get("src/main/resources/scripts/scroll_to.js")));
+	    } catch (IOException e) {
+		ReportManager.log(e);
+		scrollScript = "";
+	    }
+	}
+	return scrollScript;
+    }
+
     private static void waitUntilItIsScrolledToPosition(WebDriver driver, int scrollPosition)
 	    throws InterruptedException {
 	int time = 250;// SCREENSHOT_FULLPAGE_SCROLLTIMEOUT
@@ -0,0 +1,279 @@
+package com.shaft.gui.image;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.Raster;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.imageio.ImageIO;
+
+/**
+ * A sidecar index of the reference images of a folder, that holds a hash of
+ * every 64x64 pixels tile of every reference image.
+ *
+ * A test image is hashed tile by tile first, and only the tiles whose hashes
+ * differ from those of its reference image are compared pixel by pixel; the
+ * reference image isn't even read if all the tiles match. The index is stored
+ * next to the reference folder, and the entry of a reference image is rebuilt
+ * whenever the size or the modification time of its file changes.
+ */
+class TileHashIndex {
+    private static final int TILE_SIZE = 64;
+    private static final int FORMAT_VERSION = 1;
+    private static final String FILE_EXTENSION = ".tileHashes";
+    // 64 bit FNV-1a
+    private static final long HASH_OFFSET_BASIS = 0xCBF29CE484222325L;
+    private static final long HASH_PRIME = 0x100000001B3L;
+
+    private final File indexFile;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private volatile boolean isChanged = false;
+
+    private static class Entry {
+	private final long lastModified;
+	private final long length;
+	private final int width;
+	private final int height;
+	private final int imageType;
+	private final long[] tileHashes;
+
+	private Entry(long lastModified, long length, int width, int height, int imageType, long[] tileHashes) {
+	    this.lastModified = lastModified;
+	    this.length = length;
+	    this.width = width;
+	    this.height = height;
+	    this.imageType = imageType;
+	    this.tileHashes = tileHashes;
+	}
+
+	private boolean isUpToDate(File refrenceFile) {
+	    return lastModified == refrenceFile.lastModified() && length == refrenceFile.length();
+	}
+    }
+
+    private TileHashIndex(File indexFile) {
+	this.indexFile = indexFile;
+    }
+
+    /**
+     * Loads the index of a reference folder, or starts an empty one if it
+     * doesn't exist yet or can't be read.
+     *
+     * @param refrenceFolder the folder of the reference images
+     * @return the index of that folder
+     */
+    static TileHashIndex load(File refrenceFolder) {
+	File absoluteFolder = refrenceFolder.getAbsoluteFile();
+	TileHashIndex index = new TileHashIndex(
+		new File(absoluteFolder.getParentFile(), absoluteFolder.getName() + FILE_EXTENSION));
+	if (!index.indexFile.isFile()) {
+	    return index;
+	}
+	try (DataInputStream input = new DataInputStream(
+		new BufferedInputStream(Files.newInputStream(index.indexFile.toPath())))) {
+	    if (input.readInt() != FORMAT_VERSION || input.readInt() != TILE_SIZE) {
+		return index;
+	    }
+	    int entryCount = input.readInt();
+	    for (int i = 0; i < entryCount; i++) {
+		String fileName = input.readUTF();
+		long lastModified = input.readLong();
+		long length = input.readLong();
+		int width = input.readInt();
+		int height = input.readInt();
+		int imageType = input.readInt();
+		long[] tileHashes = new long[input.readInt()];
+		for (int tile = 0; tile < tileHashes.length; tile++) {
+		    tileHashes[tile] = input.readLong();
+		}
+		index.entries.put(fileName, new Entry(lastModified, length, width, height, imageType, tileHashes));
+	    }
+	} catch (IOException e) {
+	    // a damaged index is simply rebuilt
+	    index.entries.clear();
+	    index.isChanged = true;
+	}
+	return index;
+    }
+
+    /**
+     * Compares a test image against its reference image, pixel by pixel only
+     * within the tiles whose hashes differ.
+     *
+     * @param refrenceFile the file of the reference image
+     * @param testImage    the image under test
+     * @param threshold    the minimum percentage of matching pixels that is
+     *                     still acceptable
+     * @return the result of the comparison, or null if the images are not of the
+     *         same size
+     * @throws IOException if the reference image could not be read
+     */
+    RasterDiffKernel.Result compare(File refrenceFile, BufferedImage testImage, double threshold)
+	    throws IOException {
+	BufferedImage refrenceImage = null;
+	Entry entry = entries.get(refrenceFile.getName());
+	if (entry == null || !entry.isUpToDate(refrenceFile)) {
+	    refrenceImage = read(refrenceFile);
+	    entry = new Entry(refrenceFile.lastModified(), refrenceFile.length(), refrenceImage.getWidth(),
+		    refrenceImage.getHeight(), refrenceImage.getType(), hashTiles(refrenceImage));
+	    entries.put(refrenceFile.getName(), entry);
+	    isChanged = true;
+	}
+	if (entry.width != testImage.getWidth() || entry.height != testImage.getHeight()) {
+	    return null;
+	}
+
+	List<Rectangle> differingTiles = new ArrayList<>();
+	if (entry.imageType == testImage.getType()) {
+	    long[] testHashes = hashTiles(testImage);
+	    int tileColumns = getTileCount(testImage.getWidth());
+	    for (int tile = 0; tile < testHashes.length; tile++) {
+		if (testHashes[tile] != entry.tileHashes[tile]) {
+		    int x = (tile % tileColumns) * TILE_SIZE;
+		    int y = (tile / tileColumns) * TILE_SIZE;
+		    differingTiles.add(new Rectangle(x, y, Math.min(TILE_SIZE, entry.width - x),
+			    Math.min(TILE_SIZE, entry.height - y)));
+		}
+	    }
+	} else {
+	    // the hashes of different pixel layouts can't be compared
+	    differingTiles.add(new Rectangle(0, 0, entry.width, entry.height));
+	}
+
+	if (differingTiles.isEmpty()) {
+	    return RasterDiffKernel.match();
+	} else if (refrenceImage == null) {
+	    refrenceImage = read(refrenceFile);
+	}
+	return RasterDiffKernel.compare(testImage, refrenceImage, differingTiles, threshold);
+    }
+
+    /**
+     * Stores the index next to the reference folder, if it was changed, dropping
+     * the entries of the reference images that no longer exist.
+     *
+     * @param refrenceFiles the current reference images
+     * @throws IOException if the index could not be stored
+     */
+    void save(File[] refrenceFiles) throws IOException {
+	if (entries.keySet().retainAll(getFileNames(refrenceFiles))) {
+	    isChanged = true;
+	}
+	if (!isChanged) {
+	    return;
+	}
+	File temporaryFile = new File(indexFile.getPath() + ".tmp");
+	try (DataOutputStream output = new DataOutputStream(
+		new BufferedOutputStream(Files.newOutputStream(temporaryFile.toPath())))) {
+	    output.writeInt(FORMAT_VERSION);
+	    output.writeInt(TILE_SIZE);
+	    output.writeInt(entries.size());
+	    for (Map.Entry<String, Entry> indexEntry : entries.entrySet()) {
+		Entry entry = indexEntry.getValue();
+		output.writeUTF(indexEntry.getKey());
+		output.writeLong(entry.lastModified);
+		output.writeLong(entry.length);
+		output.writeInt(entry.width);
+		output.writeInt(entry.height);
+		output.writeInt(entry.imageType);
+		output.writeInt(entry.tileHashes.length);
+		for (long tileHash : entry.tileHashes) {
+		    output.writeLong(tileHash);
+		}
+	    }
+	}
+	Files.move(temporaryFile.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+	isChanged = false;
+    }
+
+    private static List<String> getFileNames(File[] files) {
+	List<String> fileNames = new ArrayList<>();
+	for (File file : files) {
+	    fileNames.add(file.getName());
+	}
+	return fileNames;
+    }
+
+    private static BufferedImage read(File imageFile) throws IOException {
+	BufferedImage image = ImageIO.read(imageFile);
+	if (image == null) {
+	    throw new IOException("Failed to read [" + imageFile + "] as an image.");
+	}
+	return image;
+    }
+
+    private static int getTileCount(int pixels) {
+	return (pixels + TILE_SIZE - 1) / TILE_SIZE;
+    }
+
+    /**
+     * Hashes the tiles of an image row by row, from the backing array of its
+     * raster if it has a standard layout, so every row is read once and feeds
+     * the hashes of all the tiles that it crosses.
+     */
+    private static long[] hashTiles(BufferedImage image) {
+	int width = image.getWidth();
+	int height = image.getHeight();
+	int tileColumns = getTileCount(width);
+	long[] tileHashes = new long[tileColumns * getTileCount(height)];
+	Arrays.fill(tileHashes, HASH_OFFSET_BASIS);
+	Raster raster = image.getRaster();
+
+	if (RasterDiffKernel.isPackedInt(image)) {
+	    int[] pixels = ((DataBufferInt) raster.getDataBuffer()).getData();
+	    int scanlineStride = ((SinglePixelPackedSampleModel) raster.getSampleModel()).getScanlineStride();
+	    int pixelMask = RasterDiffKernel.getPixelMask(image);
+	    for (int y = 0; y < height; y++) {
+		int offset = RasterDiffKernel.getOffset(raster, 0, y, 1, scanlineStride);
+		int firstTile = (y / TILE_SIZE) * tileColumns;
+		for (int x = 0; x < width; x++) {
+		    int tile = firstTile + x / TILE_SIZE;
+		    tileHashes[tile] = (tileHashes[tile] ^ (pixels[offset + x] & pixelMask)) * HASH_PRIME;
+		}
+	    }
+	} else if (RasterDiffKernel.isInterleavedByte(image)) {
+	    byte[] samples = ((DataBufferByte) raster.getDataBuffer()).getData();
+	    ComponentSampleModel sampleModel = (ComponentSampleModel) raster.getSampleModel();
+	    int pixelStride = sampleModel.getPixelStride();
+	    for (int y = 0; y < height; y++) {
+		int offset = RasterDiffKernel.getOffset(raster, 0, y, pixelStride, sampleModel.getScanlineStride());
+		int firstTile = (y / TILE_SIZE) * tileColumns;
+		for (int x = 0; x < width; x++) {
+		    int tile = firstTile + x / TILE_SIZE;
+		    long tileHash = tileHashes[tile];
+		    for (int band = 0; band < pixelStride; band++) {
+			tileHash = (tileHash ^ (samples[offset + x * pixelStride + band] & 0xFF)) * HASH_PRIME;
+		    }
+		    tileHashes[tile] = tileHash;
+		}
+	    }
+	} else {
+	    int[] row = new int[width];
+	    for (int y = 0; y < height; y++) {
+		image.getRGB(0, y, width, 1, row, 0, width);
+		int firstTile = (y / TILE_SIZE) * tileColumns;
+		for (int x = 0; x < width; x++) {
+		    int tile = firstTile + x / TILE_SIZE;
+		    tileHashes[tile] = (tileHashes[tile] ^ row[x]) * HASH_PRIME;
+		}
+	    }
+	}
+	return tileHashes;
+    }
+}
@@ -0,0 +1,320 @@
+package com.shaft.gui.image;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Marks the pixels of two images that differ visually, according to the
+ * imageComparison_method property, skipping the ignored regions.
+ *
+ * Exact comparison marks every pixel whose color changed. Perceptual tolerance
+ * marks the pixels whose colors differ by more than the tolerance in the YIQ
+ * color space, which is close to how people perceive colors, so that
+ * anti-aliasing and slight rendering differences don't count. SSIM marks the
+ * 8x8 pixels blocks whose structural similarity falls below one minus the
+ * tolerance. The images are split into tiles that are compared in parallel.
+ */
+class VisualDiff {
+    static final byte MATCHING = 0;
+    static final byte DIFFERING = 1;
+    static final byte IGNORED = 2;
+
+    private static final int TILE_SIZE = 64;
+    private static final int BLOCK_SIZE = 8;
+    // the largest possible YIQ difference between two colors
+    private static final double MAXIMUM_YIQ_DELTA = 35215;
+    private static final double SSIM_C1 = (0.01 * 255) * (0.01 * 255);
+    private static final double SSIM_C2 = (0.03 * 255) * (0.03 * 255);
+
+    private static final String METHOD = System.getProperty("imageComparison_method").trim();
+    private static final double TOLERANCE = Double
+	    .parseDouble(System.getProperty("imageComparison_tolerance").trim());
+
+    private VisualDiff() {
+	throw new IllegalStateException("Utility class");
+    }
+
+    /**
+     * The differences that were found within a band of two images.
+     */
+    static class BandDiff {
+	private long differingPixels = 0;
+	private long ignoredPixels = 0;
+	private Rectangle differingRegion = null;
+
+	private BandDiff add(BandDiff other) {
+	    differingPixels += other.differingPixels;
+	    ignoredPixels += other.ignoredPixels;
+	    if (other.differingRegion != null) {
+		differingRegion = differingRegion == null ? other.differingRegion
+			: differingRegion.union(other.differingRegion);
+	    }
+	    return this;
+	}
+
+	long getDifferingPixels() {
+	    return differingPixels;
+	}
+
+	long getIgnoredPixels() {
+	    return ignoredPixels;
+	}
+
+	/**
+	 * @return the bounding box of the differing pixels, in the coordinates of the
+	 *         whole images, or null if no pixels differ
+	 */
+	Rectangle getDifferingRegion() {
+	    return differingRegion;
+	}
+    }
+
+    /**
+     * @return true if only identical pixels match, so that the faster raster diff
+     *         kernel can be used when nothing is ignored
+     */
+    static boolean isExact() {
+	return !METHOD.equalsIgnoreCase("PerceptualTolerance") && !METHOD.equalsIgnoreCase("SSIM");
+    }
+
+    /**
+     * @param pixelCount      the number of pixels of the compared images
+     * @param differingPixels the number of differing pixels
+     * @param ignoredPixels   the number of ignored pixels
+     * @return the percentage of matching pixels among those that are not ignored
+     */
+    static double getPercentage(long pixelCount, long differingPixels, long ignoredPixels) {
+	long comparedPixels = pixelCount - ignoredPixels;
+	return comparedPixels <= 0 ? 100 : (comparedPixels - differingPixels) * 100d / comparedPixels;
+    }
+
+    /**
+     * Compares two images of the same size in full.
+     *
+     * @param testImage      the image under test
+     * @param refrenceImage  the reference image
+     * @param ignoredRegions the regions that should not be compared
+     * @return the percentage of matching pixels and the region where the images
+     *         differ
+     */
+    static RasterDiffKernel.Result compare(BufferedImage testImage, BufferedImage refrenceImage,
+	    List<Rectangle> ignoredRegions) {
+	return compare(testImage, refrenceImage, ignoredRegions, METHOD, TOLERANCE);
+    }
+
+    /**
+     * Compares two images of the same size in full, with the given method and
+     * tolerance instead of those of the properties.
+     */
+    static RasterDiffKernel.Result compare(BufferedImage testImage, BufferedImage refrenceImage,
+	    List<Rectangle> ignoredRegions, String method, double tolerance) {
+	int width = testImage.getWidth();
+	int height = testImage.getHeight();
+	BandDiff diff = compareBand(testImage, refrenceImage, height, 0, ignoredRegions, new byte[width * height],
+		method, tolerance);
+	return new RasterDiffKernel.Result(
+		getPercentage((long) width * height, diff.differingPixels, diff.ignoredPixels), diff.differingPixels,
+		diff.differingRegion, true);
+    }
+
+    /**
+     * Compares the top rows of two bands of the same size, tile by tile in
+     * parallel, and marks every pixel as matching, differing, or ignored.
+     *
+     * @param testBand       a band of the image under test
+     * @param refrenceBand   the same band of the reference image
+     * @param rows           the number of rows of the bands that hold pixels
+     * @param bandY          the row of the whole images at which the bands start,
+     *                       a multiple of 8
+     * @param ignoredRegions the regions of the whole images that should not be
+     *                       compared
+     * @param mask           receives the mark of every pixel, row by row
+     * @return the differences that were found within the bands
+     */
+    static BandDiff compareBand(BufferedImage testBand, BufferedImage refrenceBand, int rows, int bandY,
+	    List<Rectangle> ignoredRegions, byte[] mask) {
+	return compareBand(testBand, refrenceBand, rows, bandY, ignoredRegions, mask, METHOD, TOLERANCE);
+    }
+
+    /**
+     * Compares the top rows of two bands of the same size, with the given method
+     * and tolerance instead of those of the properties.
+     */
+    static BandDiff compareBand(BufferedImage testBand, BufferedImage refrenceBand, int rows, int bandY,
+	    List<Rectangle> ignoredRegions, byte[] mask, String method, double tolerance) {
+	int width = testBand.getWidth();
+	int tileColumns = (width + TILE_SIZE - 1) / TILE_SIZE;
+	int tileRows = (rows + TILE_SIZE - 1) / TILE_SIZE;
+	return IntStream.range(0, tileColumns * tileRows).parallel().mapToObj(tile -> {
+	    int x = (tile % tileColumns) * TILE_SIZE;
+	    int y = (tile / tileColumns) * TILE_SIZE;
+	    Rectangle tileArea = new Rectangle(x, y, Math.min(TILE_SIZE, width - x), Math.min(TILE_SIZE, rows - y));
+	    return compareTile(testBand, refrenceBand, tileArea, bandY, ignoredRegions, mask, method, tolerance);
+	}).reduce(BandDiff::add).orElseGet(BandDiff::new);
+    }
+
+    private static BandDiff compareTile(BufferedImage testBand, BufferedImage refrenceBand, Rectangle tile,
+	    int bandY, List<Rectangle> ignoredRegions, byte[] mask, String method, double tolerance) {
+	int width = testBand.getWidth();
+	int[] testPixels = testBand.getRGB(tile.x, tile.y, tile.width, tile.height, null, 0, tile.width);
+	int[] refrencePixels = refrenceBand.getRGB(tile.x, tile.y, tile.width, tile.height, null, 0, tile.width);
+	BandDiff diff = new BandDiff();
+
+	// the ignored regions are marked first, in the coordinates of the band
+	List<Rectangle> ignoredAreas = new ArrayList<>();
+	for (Rectangle ignoredRegion : ignoredRegions) {
+	    Rectangle ignoredArea = new Rectangle(ignoredRegion.x, ignoredRegion.y - bandY, ignoredRegion.width,
+		    ignoredRegion.height).intersection(tile);
+	    if (!ignoredArea.isEmpty()) {
+		ignoredAreas.add(ignoredArea);
+	    }
+	}
+	for (int y = tile.y; y < tile.y + tile.height; y++) {
+	    for (int x = tile.x; x < tile.x + tile.width; x++) {
+		mask[y * width + x] = isIgnored(x, y, ignoredAreas) ? IGNORED : MATCHING;
+	    }
+	}
+
+	if (method.equalsIgnoreCase("SSIM")) {
+	    markDissimilarBlocks(testPixels, refrencePixels, tile, width, mask, tolerance);
+	} else {
+	    boolean isTolerant = method.equalsIgnoreCase("PerceptualTolerance");
+	    double maximumDelta = MAXIMUM_YIQ_DELTA * tolerance * tolerance;
+	    for (int y = 0; y < tile.height; y++) {
+		int maskOffset = (tile.y + y) * width + tile.x;
+		for (int x = 0; x < tile.width; x++) {
+		    int pixel = y * tile.width + x;
+		    if (mask[maskOffset + x] == MATCHING && testPixels[pixel] != refrencePixels[pixel] && (!isTolerant
+			    || getYiqDelta(testPixels[pixel], refrencePixels[pixel]) > maximumDelta)) {
+			mask[maskOffset + x] = DIFFERING;
+		    }
+		}
+	    }
+	}
+
+	int minX = Integer.MAX_VALUE;
+	int minY = Integer.MAX_VALUE;
+	int maxX = -1;
+	int maxY = -1;
+	for (int y = tile.y; y < tile.y + tile.height; y++) {
+	    for (int x = tile.x; x < tile.x + tile.width; x++) {
+		byte mark = mask[y * width + x];
+		if (mark == DIFFERING) {
+		    diff.differingPixels++;
+		    minX = Math.min(minX, x);
+		    minY = Math.min(minY, y);
+		    maxX = Math.max(maxX, x);
+		    maxY = Math.max(maxY, y);
+		} else if (mark == IGNORED) {
+		    diff.ignoredPixels++;
+		}
+	    }
+	}
+	if (maxX >= 0) {
+	    diff.differingRegion = new Rectangle(minX, bandY + minY, maxX - minX + 1, maxY - minY + 1);
+	}
+	return diff;
+    }
+
+    private static boolean isIgnored(int x, int y, List<Rectangle> ignoredAreas) {
+	for (Rectangle ignoredArea : ignoredAreas) {
+	    if (ignoredArea.contains(x, y)) {
+		return true;
+	    }
+	}
+	return false;
+    }
+
+    /**
+     * Calculates the structural similarity of the luma of every 8x8 pixels block
+     * of a tile, over the pixels that are not ignored, and marks all the pixels of
+     * a block as differing if it isn't similar enough.
+     */
+    private static void markDissimilarBlocks(int[] testPixels, int[] refrencePixels, Rectangle tile, int width,
+	    byte[] mask, double tolerance) {
+	double minimumSimilarity = 1 - tolerance;
+	for (int blockY = 0; blockY < tile.height; blockY += BLOCK_SIZE) {
+	    for (int blockX = 0; blockX < tile.width; blockX += BLOCK_SIZE) {
+		int blockWidth = Math.min(BLOCK_SIZE, tile.width - blockX);
+		int blockHeight = Math.min(BLOCK_SIZE, tile.height - blockY);
+		int count = 0;
+		boolean isIdentical = true;
+		double testSum = 0;
+		double refrenceSum = 0;
+		double testSquares = 0;
+		double refrenceSquares = 0;
+		double products = 0;
+		for (int y = blockY; y < blockY + blockHeight; y++) {
+		    for (int x = blockX; x < blockX + blockWidth; x++) {
+			if (mask[(tile.y + y) * width + tile.x + x] == IGNORED) {
+			    continue;
+			}
+			int testPixel = testPixels[y * tile.width + x];
+			int refrencePixel = refrencePixels[y * tile.width + x];
+			isIdentical &= testPixel == refrencePixel;
+			double testLuma = getLuma(testPixel);
+			double refrenceLuma = getLuma(refrencePixel);
+			testSum += testLuma;
+			refrenceSum += refrenceLuma;
+			testSquares += testLuma * testLuma;
+			refrenceSquares += refrenceLuma * refrenceLuma;
+			products += testLuma * refrenceLuma;
+			count++;
+		    }
+		}
+		if (count == 0 || isIdentical) {
+		    continue;
+		}
+
+		double testMean = testSum / count;
+		double refrenceMean = refrenceSum / count;
+		double testVariance = testSquares / count - testMean * testMean;
+		double refrenceVariance = refrenceSquares / count - refrenceMean * refrenceMean;
+		double covariance = products / count - testMean * refrenceMean;
+		double similarity = ((2 * testMean * refrenceMean + SSIM_C1) * (2 * covariance + SSIM_C2))
+			/ ((testMean * testMean + refrenceMean * refrenceMean + SSIM_C1)
+				* (testVariance + refrenceVariance + SSIM_C2));
+		if (similarity < minimumSimilarity) {
+		    for (int y = blockY; y < blockY + blockHeight; y++) {
+			for (int x = blockX; x < blockX + blockWidth; x++) {
+			    int maskIndex = (tile.y + y) * width + tile.x + x;
+			    if (mask[maskIndex] != IGNORED) {
+				mask[maskIndex] = DIFFERING;
+			    }
+			}
+		    }
+		}
+	    }
+	}
+    }
+
+    private static double getLuma(int pixel) {
+	return ((pixel >> 16) & 0xFF) * 0.299 + ((pixel >> 8) & 0xFF) * 0.587 + (pixel & 0xFF) * 0.114;
+    }
+
+    /**
+     * @return the perceived difference between two colors in the YIQ color space,
+     *         after blending both with a white background
+     */
+    private static double getYiqDelta(int testPixel, int refrencePixel) {
+	double[] testYiq = toYiq(testPixel);
+	double[] refrenceYiq = toYiq(refrencePixel);
+	double y = testYiq[0] - refrenceYiq[0];
+	double i = testYiq[1] - refrenceYiq[1];
+	double q = testYiq[2] - refrenceYiq[2];
+	return 0.5053 * y * y + 0.299 * i * i + 0.1957 * q * q;
+    }
+
+    private static double[] toYiq(int pixel) {
+	double alpha = ((pixel >>> 24) & 0xFF) / 255d;
+	double red = 255 + (((pixel >> 16) & 0xFF) - 255) * alpha;
+	double green = 255 + (((pixel >> 8) & 0xFF) - 255) * alpha;
+	double blue = 255 + ((pixel & 0xFF) - 255) * alpha;
+	return new double[] { red * 0.29889531 + green * 0.58662247 + blue * 0.11448223,
+		red * 0.59597799 - green * 0.27417610 - blue * 0.32180189,
+		red * 0.21147017 - green * 0.52261711 + blue * 0.31114694 };
+    }
+}
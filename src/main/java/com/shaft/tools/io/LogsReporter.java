@@ -11,6 +11,7 @@ public class LogsReporter {
 	attachFullLogs();
 	attachBrowserLogs();
 	attachExecutionVideoRecording();
+	attachActionTimings();
     }
 
     public void attachFullLogs() {
@@ -27,6 +28,15 @@ public class LogsReporter {
 	}
     }
 
+    public void attachActionTimings() {
+	if (TimingManager.isEnabled()) {
+	    TimingManager.attachActionTimings();
+	} else {
+	    ReportManager.logDiscrete(
+		    "Action timings have been disabled for this test run. Please use the relevant property in the execution.properties file to enable action timings for future test runs.");
+	}
+    }
+
     public void attachExecutionVideoRecording() {
 	if (RecordManager.getRecordVideo()) {
 	    RecordManager.stopRecording();
@@ -7,10 +7,13 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.text.SimpleDateFormat;
 import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 import org.apache.tools.ant.filters.StringInputStream;
@@ -23,17 +26,25 @@ import com.shaft.cli.TerminalActions;
 
 import io.qameta.allure.Allure;
 import io.qameta.allure.Step;
+import io.qameta.allure.model.Attachment;
 
 public class ReportManager {
 
-    private static String fullLog = "";
+    // the full log and the issues log are shared by all the test threads, while
+    // the current test log and the logging mode are confined to each thread
+    private static final StringBuffer fullLog = new StringBuffer();
     private static String issuesLog = "";
-    private static String currentTestLog = "";
-    private static int actionCounter = 1;
-    private static int issueCounter = 1;
-    private static boolean discreteLogging = false;
+    private static ThreadLocal<StringBuilder> currentTestLog = ThreadLocal.withInitial(StringBuilder::new);
+    private static AtomicInteger actionCounter = new AtomicInteger(1);
+    private static AtomicInteger issueCounter = new AtomicInteger(1);
+    private static InheritableThreadLocal<Boolean> discreteLogging = new InheritableThreadLocal<Boolean>() {
+	@Override
+	protected Boolean initialValue() {
+	    return false;
+	}
+    };
     private static int totalNumberOfTests = 0;
-    private static int testCasesCounter = 0;
+    private static AtomicInteger testCasesCounter = new AtomicInteger(0);
     private static boolean debugMode = false;
     private static final String TIMESTAMP_FORMAT = "dd-MM-yyyy HH:mm:ss.SSSS aaa";
     private static final Logger slf4jLogger = LoggerFactory.getLogger(ReportManager.class);
@@ -49,8 +60,7 @@ public class ReportManager {
     private static void createLogEntry(String logText) {
 	String timestamp = (new SimpleDateFormat(TIMESTAMP_FORMAT)).format(new Date(System.currentTimeMillis()));
 	String log = "[ReportManager] " + logText.trim() + " @" + timestamp;
-	appendToLog(log);
-	appendToLog(System.lineSeparator());
+	appendToLog(log + System.lineSeparator());
     }
 
     /**
@@ -59,31 +69,30 @@ public class ReportManager {
      * @param log the log entry that needs to be appended to the full log
      */
     private static void appendToLog(String log) {
-	fullLog += log;
-	currentTestLog += log;
+	fullLog.append(log);
+	currentTestLog.get().append(log);
     }
 
-    public static void logIssue(String issue) {
+    public static synchronized void logIssue(String issue) {
 	if (issuesLog.trim().equals("")) {
 	    issuesLog = "################################################################################################################################################"
 		    + System.lineSeparator() + "Issues Analysis" + System.lineSeparator()
 		    + "################################################################################################################################################";
 	}
 	String timestamp = (new SimpleDateFormat(TIMESTAMP_FORMAT)).format(new Date(System.currentTimeMillis()));
-	String log = System.lineSeparator() + "[ReportManager] " + issueCounter + ". " + issue.trim() + " @"
-		+ timestamp;
+	String log = System.lineSeparator() + "[ReportManager] " + issueCounter.getAndIncrement() + ". "
+		+ issue.trim() + " @" + timestamp;
 	issuesLog += log;
-	issueCounter++;
     }
 
-    public static void logIssuesSummary(int openIssuesForFailedTestsCounter, int openIssuesForPassedTestsCounter,
-	    int failedTestsWithoutOpenIssuesCounter) {
+    public static synchronized void logIssuesSummary(int openIssuesForFailedTestsCounter,
+	    int openIssuesForPassedTestsCounter, int failedTestsWithoutOpenIssuesCounter) {
 	issuesLog += System.lineSeparator()
 		+ "################################################################################################################################################"
-		+ System.lineSeparator() + "Total Issues: " + (issueCounter - 1) + ", Failed tests with open issues: "
-		+ openIssuesForFailedTestsCounter + ", Failed tests without open issues: "
-		+ failedTestsWithoutOpenIssuesCounter + ", Passed tests with open issues: "
-		+ openIssuesForPassedTestsCounter + System.lineSeparator()
+		+ System.lineSeparator() + "Total Issues: " + (issueCounter.get() - 1)
+		+ ", Failed tests with open issues: " + openIssuesForFailedTestsCounter
+		+ ", Failed tests without open issues: " + failedTestsWithoutOpenIssuesCounter
+		+ ", Passed tests with open issues: " + openIssuesForPassedTestsCounter + System.lineSeparator()
 		+ "################################################################################################################################################";
     }
 
@@ -91,19 +100,20 @@ public class ReportManager {
      * Clears the current test log to prepare for a new test
      */
     private static void clearTestLog() {
-	currentTestLog = "";
+	currentTestLog.get().setLength(0);
     }
 
     private static void createReportEntry(String logText) {
+	long startTime = TimingManager.start();
 	String timestamp = (new SimpleDateFormat(TIMESTAMP_FORMAT)).format(new Date(System.currentTimeMillis()));
 	String log = "[ReportManager] " + logText.trim() + " @" + timestamp;
 	Reporter.log(log, true);
-	appendToLog(log);
-	appendToLog(System.lineSeparator());
+	appendToLog(log + System.lineSeparator());
+	TimingManager.record(TimingManager.Phase.REPORT, startTime);
     }
 
     private static void createImportantReportEntry(String logText) {
-	Boolean initialLoggingStatus = discreteLogging;
+	Boolean initialLoggingStatus = discreteLogging.get();
 	setDiscreteLogging(false); // force log even if discrete logging was turned on
 	String log = System.lineSeparator()
 		+ "################################################################################################################################################"
@@ -111,8 +121,7 @@ public class ReportManager {
 		+ "################################################################################################################################################";
 
 	Reporter.log(log, true);
-	appendToLog(log);
-	appendToLog(System.lineSeparator());
+	appendToLog(log + System.lineSeparator());
 	setDiscreteLogging(initialLoggingStatus);
     }
 
@@ -130,6 +139,7 @@ public class ReportManager {
     }
 
     private static void createAttachment(String attachmentType, String attachmentName, InputStream attachmentContent) {
+	long startTime = TimingManager.start();
 	InputStream attachmentContentCopy = null;
 	ByteArrayOutputStream baos = new ByteArrayOutputStream();
 	byte[] buffer = new byte[1024];
@@ -157,14 +167,15 @@ public class ReportManager {
 	    Allure.addAttachment(attachmentDescription, "image/gif", attachmentContent, ".gif");
 	} else if (attachmentType.toLowerCase().contains("engine logs")) {
 	    if (attachmentName.equals("Current Method log")) {
-		Allure.addAttachment(attachmentDescription, "text/plain", new StringInputStream(currentTestLog.trim()),
-			".txt");
+		Allure.addAttachment(attachmentDescription, "text/plain",
+			new StringInputStream(currentTestLog.get().toString().trim()), ".txt");
 	    } else {
 		Allure.addAttachment(attachmentDescription, "text/plain", attachmentContent, ".txt");
 	    }
 	} else {
 	    Allure.addAttachment(attachmentDescription, attachmentContent);
 	}
+	TimingManager.record(TimingManager.Phase.REPORT, startTime);
 	createReportEntry("Successfully created attachment [" + attachmentType + " - " + attachmentName + "]");
 
 	if (debugMode && !attachmentType.contains("SHAFT Engine Logs")
@@ -195,7 +206,7 @@ public class ReportManager {
      * @return the discreteLogging
      */
     public static boolean isDiscreteLogging() {
-	return discreteLogging;
+	return discreteLogging.get();
     }
 
     /**
@@ -205,11 +216,11 @@ public class ReportManager {
 	if (debugMode) {
 	    ReportManager.logDiscrete("Setting discrete logging to: \"" + discreteLogging + "\"");
 	}
-	ReportManager.discreteLogging = discreteLogging;
+	ReportManager.discreteLogging.set(discreteLogging);
     }
 
     public static int getTestCasesCounter() {
-	return testCasesCounter;
+	return testCasesCounter.get();
     }
 
     public static int getTotalNumberOfTests() {
@@ -246,7 +257,8 @@ public class ReportManager {
 
     public static void logTestInformation(String className, String testMethodName, String testDescription) {
 	clearTestLog();
-	testCasesCounter++;
+	TimingManager.setCurrentTest(className + "." + testMethodName);
+	int testCasesCounter = ReportManager.testCasesCounter.incrementAndGet();
 	if (!testDescription.equals("")) {
 	    createImportantReportEntry("Starting Execution:\t[" + testCasesCounter + " out of " + totalNumberOfTests
 		    + "] test cases in the current suite\nTest Method:\t\t[" + className + "." + testMethodName
@@ -266,8 +278,7 @@ public class ReportManager {
 	if (isDiscreteLogging() && !logText.toLowerCase().contains("failed")) {
 	    createLogEntry(logText);
 	} else {
-	    writeStepToReport(logText, actionCounter);
-	    actionCounter++;
+	    writeStepToReport(logText, actionCounter.getAndIncrement());
 	}
     }
 
@@ -295,7 +306,7 @@ public class ReportManager {
 	logText = logBuilder.toString();
 
 	attachAsStep("Exception Stack Trace", t.getClass().getName(), logText);
-	actionCounter++;
+	actionCounter.incrementAndGet();
     }
 
     public static void logDiscrete(String logText) {
@@ -330,6 +341,70 @@ public class ReportManager {
 	}
     }
 
+    /**
+     * Adds a new image attachment as a step in the execution report, without its
+     * content. The content is written later using
+     * {@link #writeAttachment(String, byte[])}, which can be called from any
+     * thread. Used for Screenshots that are processed in the background.
+     * 
+     * @param attachmentType the type of this attachment
+     * @param attachmentName the name of this attachment
+     * @param mimeType       the MIME type of the image, like image/png
+     * @param fileExtension  the file extension of the image, like .png
+     * @return the source of the attachment, to write its content to
+     */
+    @Step("Attachment: {attachmentType} - {attachmentName}")
+    public static String prepareAttachmentAsStep(String attachmentType, String attachmentName, String mimeType,
+	    String fileExtension) {
+	long startTime = TimingManager.start();
+	String attachmentSource = Allure.getLifecycle()
+		.prepareAttachment("Attachment: " + attachmentType + " - " + attachmentName, mimeType, fileExtension);
+	TimingManager.record(TimingManager.Phase.REPORT, startTime);
+	createReportEntry("Successfully created attachment [" + attachmentType + " - " + attachmentName + "]");
+	return attachmentSource;
+    }
+
+    /**
+     * Writes the content of an attachment that was added using
+     * {@link #prepareAttachmentAsStep(String, String, String, String)}.
+     * 
+     * @param attachmentSource  the source of the attachment
+     * @param attachmentContent the content of this attachment
+     */
+    public static void writeAttachment(String attachmentSource, byte[] attachmentContent) {
+	Allure.getLifecycle().writeAttachment(attachmentSource, new ByteArrayInputStream(attachmentContent));
+    }
+
+    /**
+     * @param attachmentSource the source of an attachment that was added using
+     *                         {@link #prepareAttachmentAsStep(String, String, String, String)}
+     * @return the path of the file that holds the content of this attachment
+     */
+    public static Path getAttachmentPath(String attachmentSource) {
+	return Paths.get(System.getProperty("allure.results.directory", "allure-results"), attachmentSource);
+    }
+
+    /**
+     * Adds a new image attachment as a step in the execution report, which refers
+     * to the content of an attachment that was already added. Used for
+     * Screenshots that are identical to the previous one.
+     * 
+     * @param attachmentType   the type of this attachment
+     * @param attachmentName   the name of this attachment
+     * @param mimeType         the MIME type of the image, like image/png
+     * @param attachmentSource the source of the attachment that holds the content
+     */
+    @Step("Attachment: {attachmentType} - {attachmentName}")
+    public static void attachExistingAsStep(String attachmentType, String attachmentName, String mimeType,
+	    String attachmentSource) {
+	long startTime = TimingManager.start();
+	Attachment attachment = new Attachment().setName("Attachment: " + attachmentType + " - " + attachmentName)
+		.setSource(attachmentSource).setType(mimeType);
+	Allure.getLifecycle().updateStep(step -> step.getAttachments().add(attachment));
+	TimingManager.record(TimingManager.Phase.REPORT, startTime);
+	createReportEntry("Successfully created attachment [" + attachmentType + " - " + attachmentName + "]");
+    }
+
     /**
      * Adds a new attachment using the input parameters provided. The attachment is
      * displayed as a step in the execution report. Used for Screenshots.
@@ -363,22 +438,23 @@ public class ReportManager {
      * 
      */
     public static void attachTestLog() {
-	String trimmed = currentTestLog.trim();
-	if (!currentTestLog.trim().equals("") && (!(String.valueOf(trimmed.charAt(0)).equals("#")
+	String trimmed = currentTestLog.get().toString().trim();
+	if (!trimmed.equals("") && (!(String.valueOf(trimmed.charAt(0)).equals("#")
 		&& String.valueOf(trimmed.charAt(trimmed.length() - 1)).equals("#")))) {
-	    createAttachment("SHAFT Engine Logs", "Current Method log", new StringInputStream(currentTestLog));
+	    createAttachment("SHAFT Engine Logs", "Current Method log",
+		    new StringInputStream(currentTestLog.get().toString()));
 	}
 	clearTestLog();
     }
 
     public static void attachFullLog() {
-	if (!fullLog.trim().equals("")) {
-	    createAttachment("SHAFT Engine Logs", "Execution log", new StringInputStream(fullLog.trim()));
+	if (!fullLog.toString().trim().equals("")) {
+	    createAttachment("SHAFT Engine Logs", "Execution log", new StringInputStream(fullLog.toString().trim()));
 
 	}
     }
 
-    public static void attachIssuesLog() {
+    public static synchronized void attachIssuesLog() {
 	if (!issuesLog.trim().equals("")) {
 	    createAttachment("SHAFT Engine Logs", "Issues log", new StringInputStream(issuesLog.trim()));
 	}
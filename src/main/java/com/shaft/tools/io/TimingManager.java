@@ -0,0 +1,216 @@
+package com.shaft.tools.io;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.shaft.cli.FileActions;
+
+/**
+ * Times the phases of every engine action, and publishes the results as
+ * latency histograms at the end of the test suite.
+ *
+ * Each phase is timed where it happens, and the durations are accumulated for
+ * the current thread until the engine action that they belong to is reported,
+ * see {@link #completeAction(String)}. They are then added to the histograms of
+ * that action name within the current test.
+ *
+ * Timing is controlled by the recordActionTimings property. When it is
+ * disabled, every call returns immediately without reading the clock.
+ */
+public class TimingManager {
+    public enum Phase {
+	LOCATE, WAIT, ACT, SCREENSHOT, ENCODE, REPORT
+    }
+
+    private static final boolean RECORD_ACTION_TIMINGS = Boolean
+	    .parseBoolean(System.getProperty("recordActionTimings").trim());
+    private static final String TIMINGS_FOLDERPATH = "allure-results/timings/";
+    private static final String TIMINGS_FILENAME = "actionTimings.json";
+    private static final String UNATTRIBUTED_ACTION = "unattributed";
+    // the upper bound of bucket i is 2^i microseconds, the last bucket is
+    // unbounded
+    private static final int NUMBER_OF_BUCKETS = 32;
+
+    // the histograms are shared by all the test threads, keyed by
+    // test|action|phase
+    private static Map<String, Histogram> histograms = new ConcurrentHashMap<>();
+    private static ThreadLocal<String> currentTest = ThreadLocal.withInitial(() -> "");
+    private static ThreadLocal<long[]> pendingPhases = ThreadLocal.withInitial(() -> new long[Phase.values().length]);
+
+    private static class Histogram {
+	private final AtomicLongArray buckets = new AtomicLongArray(NUMBER_OF_BUCKETS);
+	private final LongAdder count = new LongAdder();
+	private final LongAdder totalNanos = new LongAdder();
+	private final LongAccumulator maxNanos = new LongAccumulator(Long::max, 0);
+
+	private void record(long nanos) {
+	    long micros = nanos / 1000;
+	    int bucket = micros <= 1 ? 0 : 64 - Long.numberOfLeadingZeros(micros - 1);
+	    buckets.incrementAndGet(Math.min(bucket, NUMBER_OF_BUCKETS - 1));
+	    count.increment();
+	    totalNanos.add(nanos);
+	    maxNanos.accumulate(nanos);
+	}
+
+	private long getPercentileMicros(double percentile) {
+	    long total = count.sum();
+	    long target = (long) Math.ceil(total * percentile);
+	    long seen = 0;
+	    for (int i = 0; i < NUMBER_OF_BUCKETS; i++) {
+		seen += buckets.get(i);
+		if (seen >= target && seen > 0) {
+		    // the bucket upper bound, capped by the actual maximum
+		    return Math.min(1L << i, maxNanos.get() / 1000);
+		}
+	    }
+	    return maxNanos.get() / 1000;
+	}
+    }
+
+    private TimingManager() {
+	throw new IllegalStateException("Utility class");
+    }
+
+    /**
+     * @return true if the phases of engine actions are being timed
+     */
+    public static boolean isEnabled() {
+	return RECORD_ACTION_TIMINGS;
+    }
+
+    /**
+     * Starts timing a phase.
+     *
+     * @return the start time in nanoseconds, to be passed to
+     *         {@link #record(Phase, long)}, or zero if timing is disabled
+     */
+    public static long start() {
+	return RECORD_ACTION_TIMINGS ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Adds the time that passed since the phase was started to the current engine
+     * action.
+     *
+     * @param phase     the phase that was timed
+     * @param startTime the value returned by {@link #start()}
+     */
+    public static void record(Phase phase, long startTime) {
+	if (RECORD_ACTION_TIMINGS && startTime != 0) {
+	    pendingPhases.get()[phase.ordinal()] += System.nanoTime() - startTime;
+	}
+    }
+
+    /**
+     * Adds a phase that was timed on another thread, for example while processing
+     * a screenshot in the background, directly to the histograms of the action
+     * that it belongs to.
+     *
+     * @param testName   the full name of the test that the action belongs to
+     * @param actionName the name of the engine action
+     * @param phase      the phase that was timed
+     * @param nanos      the duration of the phase in nanoseconds
+     */
+    public static void recordCompleted(String testName, String actionName, Phase phase, long nanos) {
+	if (RECORD_ACTION_TIMINGS) {
+	    histograms.computeIfAbsent(testName + "|" + actionName + "|" + phase, k -> new Histogram()).record(nanos);
+	}
+    }
+
+    /**
+     * @return the full name of the test that the current thread is executing, or
+     *         an empty string outside of tests
+     */
+    public static String getCurrentTest() {
+	return currentTest.get();
+    }
+
+    /**
+     * Adds the phases that were timed since the last engine action was completed
+     * to the histograms of this action.
+     *
+     * @param actionName the name of the engine action that was just reported
+     */
+    public static void completeAction(String actionName) {
+	if (RECORD_ACTION_TIMINGS) {
+	    long[] phases = pendingPhases.get();
+	    for (Phase phase : Phase.values()) {
+		long nanos = phases[phase.ordinal()];
+		if (nanos > 0) {
+		    String key = currentTest.get() + "|" + actionName + "|" + phase;
+		    histograms.computeIfAbsent(key, k -> new Histogram()).record(nanos);
+		}
+	    }
+	    Arrays.fill(phases, 0);
+	}
+    }
+
+    /**
+     * Sets the test that the next engine actions on this thread belong to. Any
+     * phases that were timed after the last action of the previous test are
+     * recorded for that test as unattributed.
+     *
+     * @param testName the full name of the test method
+     */
+    public static void setCurrentTest(String testName) {
+	if (RECORD_ACTION_TIMINGS) {
+	    completeAction(UNATTRIBUTED_ACTION);
+	    currentTest.set(testName);
+	}
+    }
+
+    /**
+     * Writes the histograms of all the engine actions as a JSON summary, and
+     * attaches it to the execution report.
+     */
+    public static void attachActionTimings() {
+	if (RECORD_ACTION_TIMINGS) {
+	    completeAction(UNATTRIBUTED_ACTION);
+	    if (!histograms.isEmpty()) {
+		String summary = getActionTimingsSummary();
+		FileActions.writeToFile(TIMINGS_FOLDERPATH, TIMINGS_FILENAME, Arrays.asList(summary));
+		ReportManager.attach("SHAFT Engine Logs", "Action timings", summary);
+	    }
+	}
+    }
+
+    private static String getActionTimingsSummary() {
+	// sorted by test, then action, then phase
+	Map<String, Histogram> sortedHistograms = new TreeMap<>(histograms);
+	List<String> entries = new ArrayList<>();
+	sortedHistograms.forEach((key, histogram) -> {
+	    String[] keyParts = key.split("\\|", -1);
+	    long count = histogram.count.sum();
+	    StringBuilder buckets = new StringBuilder();
+	    for (int i = 0; i < NUMBER_OF_BUCKETS; i++) {
+		long bucketCount = histogram.buckets.get(i);
+		if (bucketCount > 0) {
+		    if (buckets.length() > 0) {
+			buckets.append(", ");
+		    }
+		    String upperBound = i == NUMBER_OF_BUCKETS - 1 ? "\"+Inf\"" : String.valueOf(1L << i);
+		    buckets.append("{\"leMicros\": " + upperBound + ", \"count\": " + bucketCount + "}");
+		}
+	    }
+	    entries.add("    {\"test\": \"" + escape(keyParts[0]) + "\", \"action\": \"" + escape(keyParts[1])
+		    + "\", \"phase\": \"" + keyParts[2] + "\", \"count\": " + count + ", \"totalMillis\": "
+		    + histogram.totalNanos.sum() / 1000000 + ", \"meanMicros\": "
+		    + histogram.totalNanos.sum() / 1000 / Math.max(1, count) + ", \"p50Micros\": "
+		    + histogram.getPercentileMicros(0.5) + ", \"p95Micros\": " + histogram.getPercentileMicros(0.95)
+		    + ", \"maxMicros\": " + histogram.maxNanos.get() / 1000 + ", \"buckets\": [" + buckets + "]}");
+	});
+	return "{\"actionTimings\": [" + System.lineSeparator() + String.join("," + System.lineSeparator(), entries)
+		+ System.lineSeparator() + "]}";
+    }
+
+    private static String escape(String value) {
+	return value.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+}
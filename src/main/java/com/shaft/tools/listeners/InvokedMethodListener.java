@@ -16,6 +16,7 @@ import org.testng.internal.ConstructorOrMethod;
 
 import com.shaft.gui.browser.BrowserFactory;
 import com.shaft.gui.element.ElementActions;
+import com.shaft.gui.image.ScreenshotManager;
 import com.shaft.gui.video.RecordManager;
 import com.shaft.tools.io.ReportManager;
 
@@ -48,8 +49,10 @@ public class InvokedMethodListener implements IInvokedMethodListener {
 	    } else {
 		ReportManager.logTestInformation(testMethod.getTestClass().getName(), testMethod.getMethodName(), "");
 	    }
-	    if (invokedTestsCounter == 0) {
-		RecordManager.startRecording();
+	    synchronized (this) {
+		if (invokedTestsCounter == 0) {
+		    RecordManager.startRecording();
+		}
 	    }
 	}
 	// implementing the new kill switch at the start of every test method
@@ -62,7 +65,11 @@ public class InvokedMethodListener implements IInvokedMethodListener {
     public void afterInvocation(IInvokedMethod method, ITestResult testResult) {
 	if (!method.getTestMethod().getQualifiedName().contains("closureActivities")) {
 	    // attaching log and gif for test methods only
+	    ScreenshotManager.stopFlightRecorder(testResult.getStatus() == ITestResult.FAILURE);
 	    BrowserFactory.attachAnimatedGif();
+	    // the screenshots of this method are processed in the background, so they are
+	    // all attached before the method ends
+	    ScreenshotManager.waitForScreenshotProcessing();
 	    ReportManager.attachTestLog();
 	}
 
@@ -71,16 +78,22 @@ public class InvokedMethodListener implements IInvokedMethodListener {
 	ReportManager.setDiscreteLogging(Boolean.valueOf(System.getProperty("alwaysLogDiscreetly")));
 	ITestNGMethod testMethod = method.getTestMethod();
 	if (testMethod.isTest()) {
-	    updateTestStatusInCaseOfVerificationFailure(testResult);
-	    updateIssuesLog(testResult, testMethod);
-	    if (invokedTestsCounter == testSize - 1) {
-		// is last test in the last class of the test suite
-		ReportManager.logIssuesSummary(openIssuesForFailedTestsCounter, openIssuesForPassedTestsCounter,
-			failedTestsWithoutOpenIssuesCounter);
-		ReportManager.logEngineVersion(false);
-		invokedTestsCounter = 0;
-	    } else {
-		invokedTestsCounter++;
+	    // test threads are reused, so the ignored elements of this test method
+	    // mustn't hide regions of the next one
+	    ScreenshotManager.ignoreElementsInImageComparison();
+	    // the counters are shared by all the test threads
+	    synchronized (this) {
+		updateTestStatusInCaseOfVerificationFailure(testResult);
+		updateIssuesLog(testResult, testMethod);
+		if (invokedTestsCounter == testSize - 1) {
+		    // is last test in the last class of the test suite
+		    ReportManager.logIssuesSummary(openIssuesForFailedTestsCounter, openIssuesForPassedTestsCounter,
+			    failedTestsWithoutOpenIssuesCounter);
+		    ReportManager.logEngineVersion(false);
+		    invokedTestsCounter = 0;
+		} else {
+		    invokedTestsCounter++;
+		}
 	    }
 	}
     }
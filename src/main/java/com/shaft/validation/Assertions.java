@@ -9,6 +9,7 @@ import com.shaft.gui.browser.BrowserActions;
 import com.shaft.gui.element.ElementActions;
 import com.shaft.gui.image.ScreenshotManager;
 import com.shaft.tools.io.ReportManager;
+import com.shaft.tools.io.TimingManager;
 import com.shaft.tools.support.JavaActions;
 
 public class Assertions {
@@ -16,7 +17,8 @@ public class Assertions {
 	    .parseInt(System.getProperty("attemptsBeforeThrowingElementNotFoundException").trim());
     private static int attemptsBeforeThrowingElementNotFoundExceptionInCaseElementShouldntExist = 1;
 
-    private static Boolean discreetLoggingState = Boolean.valueOf(System.getProperty("alwaysLogDiscreetly"));
+    private static ThreadLocal<Boolean> discreetLoggingState = ThreadLocal
+	    .withInitial(() -> Boolean.valueOf(System.getProperty("alwaysLogDiscreetly")));
 
     public enum AssertionType {
 	POSITIVE(true), NEGATIVE(false);
@@ -65,14 +67,16 @@ public class Assertions {
     }
 
     private static void fail(String message, Throwable realCause) {
-	ReportManager.setDiscreteLogging(discreetLoggingState); // reset state in case of failure
+	ReportManager.setDiscreteLogging(discreetLoggingState.get()); // reset state in case of failure
 	ReportManager.log(message);
+	TimingManager.completeAction("assert");
 	Assert.fail(message, realCause);
     }
 
     private static void fail(String message) {
-	ReportManager.setDiscreteLogging(discreetLoggingState); // reset state in case of failure
+	ReportManager.setDiscreteLogging(discreetLoggingState.get()); // reset state in case of failure
 	ReportManager.log(message);
+	TimingManager.completeAction("assert");
 	Assert.fail(message);
     }
 
@@ -88,6 +92,7 @@ public class Assertions {
 
     private static void pass(String message) {
 	ReportManager.log(message);
+	TimingManager.completeAction("assert");
     }
 
     private static void pass(String actionName, WebDriver driver, String message) {
@@ -237,12 +242,16 @@ public class Assertions {
     public static void assertElementExists(WebDriver driver, By elementLocator, Boolean assertionType) {
 	ReportManager.logDiscrete("Assertion [" + "assertElementExists" + "] is being performed.");
 	try {
-	    int customAttempts = attemptsBeforeThrowingElementNotFoundException;
-	    if (!assertionType) {
-		customAttempts = attemptsBeforeThrowingElementNotFoundExceptionInCaseElementShouldntExist;
+	    int actualElementsCount;
+	    if (assertionType) {
+		actualElementsCount = ElementActions.getElementsCount(driver, elementLocator,
+			attemptsBeforeThrowingElementNotFoundException);
+	    } else {
+		actualElementsCount = ElementActions.getElementsCountExpectingAbsence(driver, elementLocator,
+			attemptsBeforeThrowingElementNotFoundExceptionInCaseElementShouldntExist);
 	    }
 
-	    switch (ElementActions.getElementsCount(driver, elementLocator, customAttempts)) {
+	    switch (actualElementsCount) {
 	    case 0:
 		if (assertionType) {
 		    fail("assertElementExists", driver,
@@ -316,7 +325,7 @@ public class Assertions {
 		+ "] is being performed for target attribute [" + elementAttribute + "].");
 	String actualValue = null;
 
-	discreetLoggingState = ReportManager.isDiscreteLogging();
+	discreetLoggingState.set(ReportManager.isDiscreteLogging());
 	ReportManager.setDiscreteLogging(true);
 	switch (elementAttribute.toLowerCase()) {
 	case "text":
@@ -332,7 +341,7 @@ public class Assertions {
 	    actualValue = ElementActions.getAttribute(driver, elementLocator, elementAttribute);
 	    break;
 	}
-	ReportManager.setDiscreteLogging(discreetLoggingState);
+	ReportManager.setDiscreteLogging(discreetLoggingState.get());
 
 	switch (JavaActions.compareTwoObjects(expectedValue, actualValue, comparisonType, assertionType)) {
 	case 1:
@@ -413,10 +422,10 @@ public class Assertions {
 	ReportManager.logDiscrete("Assertion [" + "assertElementCSSProperty"
 		+ "] is being performed for target CSS Property [" + propertyName + "].");
 
-	discreetLoggingState = ReportManager.isDiscreteLogging();
+	discreetLoggingState.set(ReportManager.isDiscreteLogging());
 	ReportManager.setDiscreteLogging(true);
 	String actualValue = ElementActions.getCSSProperty(driver, elementLocator, propertyName);
-	ReportManager.setDiscreteLogging(discreetLoggingState);
+	ReportManager.setDiscreteLogging(discreetLoggingState.get());
 
 	switch (JavaActions.compareTwoObjects(expectedValue, actualValue, comparisonType, assertionType)) {
 	case 1:
@@ -500,7 +509,7 @@ public class Assertions {
 		+ "] is being performed for target attribute [" + browserAttribute + "].");
 	String actualValue = null;
 
-	discreetLoggingState = ReportManager.isDiscreteLogging();
+	discreetLoggingState.set(ReportManager.isDiscreteLogging());
 	ReportManager.setDiscreteLogging(true);
 	switch (browserAttribute.toLowerCase()) {
 	case "currenturl":
@@ -525,7 +534,7 @@ public class Assertions {
 	    actualValue = "";
 	    break;
 	}
-	ReportManager.setDiscreteLogging(discreetLoggingState);
+	ReportManager.setDiscreteLogging(discreetLoggingState.get());
 
 	switch (JavaActions.compareTwoObjects(expectedValue, actualValue, comparisonType, assertionType)) {
 	case 1:
@@ -11,27 +11,30 @@ import com.shaft.gui.browser.BrowserActions;
 import com.shaft.gui.element.ElementActions;
 import com.shaft.gui.image.ScreenshotManager;
 import com.shaft.tools.io.ReportManager;
+import com.shaft.tools.io.TimingManager;
 import com.shaft.tools.support.JavaActions;
 
 public class Verifications {
 
     // TODO: apply enums
 
-    private static StringBuilder verificationFailures = new StringBuilder();
-    private static StringBuilder verificationSuccesses = new StringBuilder();
+    // verification results are collected per test thread
+    private static ThreadLocal<StringBuilder> verificationFailures = ThreadLocal.withInitial(StringBuilder::new);
+    private static ThreadLocal<StringBuilder> verificationSuccesses = ThreadLocal.withInitial(StringBuilder::new);
 
     private static int attemptsBeforeThrowingElementNotFoundException = Integer
 	    .parseInt(System.getProperty("attemptsBeforeThrowingElementNotFoundException").trim());
     private static int attemptsBeforeThrowingElementNotFoundExceptionInCaseElementShouldntExist = 1;
 
-    private static Boolean discreetLoggingState = Boolean.valueOf(System.getProperty("alwaysLogDiscreetly"));
+    private static ThreadLocal<Boolean> discreetLoggingState = ThreadLocal
+	    .withInitial(() -> Boolean.valueOf(System.getProperty("alwaysLogDiscreetly")));
 
     private Verifications() {
 	throw new IllegalStateException("Utility class");
     }
 
     private static void reportVerificationResults(String actionName, WebDriver driver, By elementLocator) {
-	String verificationSuccessesString = verificationSuccesses.toString().trim();
+	String verificationSuccessesString = verificationSuccesses.get().toString().trim();
 	if (!"".equals(verificationSuccessesString)) {
 	    if (driver != null) {
 		try {
@@ -43,12 +46,12 @@ public class Verifications {
 		}
 	    }
 	    ReportManager.log(verificationSuccessesString);
-	    verificationSuccesses.delete(0, verificationSuccesses.length());
+	    verificationSuccesses.get().delete(0, verificationSuccesses.get().length());
 	}
 
-	String verificationFailuresString = verificationFailures.toString().trim();
+	String verificationFailuresString = verificationFailures.get().toString().trim();
 	if (!"".equals(verificationFailuresString)) {
-	    ReportManager.setDiscreteLogging(discreetLoggingState); // reset state in case of failure
+	    ReportManager.setDiscreteLogging(discreetLoggingState.get()); // reset state in case of failure
 	    if (driver != null) {
 		try {
 		    ScreenshotManager.captureScreenShot(driver, elementLocator, actionName, false);
@@ -69,8 +72,9 @@ public class Verifications {
 		Reporter.getCurrentTestResult().setThrowable(new Throwable(verificationFailuresString));
 	    }
 	    Reporter.getCurrentTestResult().setStatus(ITestResult.FAILURE);
-	    verificationFailures.delete(0, verificationFailures.length());
+	    verificationFailures.get().delete(0, verificationFailures.get().length());
 	}
+	TimingManager.completeAction(actionName);
     }
 
     /**
@@ -95,27 +99,27 @@ public class Verifications {
 	switch (JavaActions.compareTwoObjects(expectedValue, actualValue, comparisonType, verificationType)) {
 	case 1:
 	    if (verificationType) {
-		verificationSuccesses.append("Verification Passed; actual value [" + actualValue
+		verificationSuccesses.get().append("Verification Passed; actual value [" + actualValue
 			+ "] does match expected value [" + expectedValue + "].");
 	    } else {
-		verificationSuccesses.append("Verification Passed; actual value [" + actualValue
+		verificationSuccesses.get().append("Verification Passed; actual value [" + actualValue
 			+ "] does not match expected value [" + expectedValue + "].");
 	    }
 	    break;
 	case 0:
 	    if (verificationType) {
-		verificationFailures.append("Verification Failed; actual value [" + actualValue
+		verificationFailures.get().append("Verification Failed; actual value [" + actualValue
 			+ "] does not match expected value [" + expectedValue + "].");
 	    } else {
-		verificationFailures.append("Verification Failed; actual value [" + actualValue
+		verificationFailures.get().append("Verification Failed; actual value [" + actualValue
 			+ "] does match expected value [" + expectedValue + "].");
 	    }
 	    break;
 	case -1:
-	    verificationFailures.append("Verification Failed; invalid comparison operator used.");
+	    verificationFailures.get().append("Verification Failed; invalid comparison operator used.");
 	    break;
 	default:
-	    verificationFailures.append("Verification Failed; an unhandled exception occured.");
+	    verificationFailures.get().append("Verification Failed; an unhandled exception occured.");
 	    break;
 	}
 	reportVerificationResults("verifyEquals", null, null);
@@ -136,22 +140,22 @@ public class Verifications {
 	if (verificationType) {
 	    try {
 		Assert.assertNull(object);
-		verificationSuccesses.append("Verification Passed; actual value is null.");
+		verificationSuccesses.get().append("Verification Passed; actual value is null.");
 	    } catch (AssertionError e) {
-		verificationFailures.append("Verification Failed; actual value is not null.");
+		verificationFailures.get().append("Verification Failed; actual value is not null.");
 	    } catch (Exception e) {
 		ReportManager.log(e);
-		verificationFailures.append("Verification Failed; an unhandled exception occured.");
+		verificationFailures.get().append("Verification Failed; an unhandled exception occured.");
 	    }
 	} else {
 	    try {
 		Assert.assertNotNull(object);
-		verificationSuccesses.append("Verification Passed; actual value is not null.");
+		verificationSuccesses.get().append("Verification Passed; actual value is not null.");
 	    } catch (AssertionError e) {
-		verificationFailures.append("Verification Failed; actual value is null.");
+		verificationFailures.get().append("Verification Failed; actual value is null.");
 	    } catch (Exception e) {
 		ReportManager.log(e);
-		verificationFailures.append("Verification Failed; an unhandled exception occured.");
+		verificationFailures.get().append("Verification Failed; an unhandled exception occured.");
 	    }
 	}
 	reportVerificationResults("verifyNull", null, null);
@@ -171,40 +175,44 @@ public class Verifications {
     public static void verifyElementExists(WebDriver driver, By elementLocator, Boolean verificationType) {
 	ReportManager.logDiscrete("Verification [" + "verifyElementExists" + "] is being performed.");
 	try {
-	    int customAttempts = attemptsBeforeThrowingElementNotFoundException;
-	    if (!verificationType) {
-		customAttempts = attemptsBeforeThrowingElementNotFoundExceptionInCaseElementShouldntExist;
+	    int actualElementsCount;
+	    if (verificationType) {
+		actualElementsCount = ElementActions.getElementsCount(driver, elementLocator,
+			attemptsBeforeThrowingElementNotFoundException);
+	    } else {
+		actualElementsCount = ElementActions.getElementsCountExpectingAbsence(driver, elementLocator,
+			attemptsBeforeThrowingElementNotFoundExceptionInCaseElementShouldntExist);
 	    }
 
-	    switch (ElementActions.getElementsCount(driver, elementLocator, customAttempts)) {
+	    switch (actualElementsCount) {
 	    case 0:
 		if (verificationType) {
-		    verificationFailures.append("Verification Failed; element does not exist. Locator ["
+		    verificationFailures.get().append("Verification Failed; element does not exist. Locator ["
 			    + elementLocator.toString() + "].");
 		} else {
-		    verificationSuccesses.append("Verification Passed; element does not exist. Locator ["
+		    verificationSuccesses.get().append("Verification Passed; element does not exist. Locator ["
 			    + elementLocator.toString() + "].");
 		}
 		elementLocator = null; // workaround to force take a screenshot of the whole page
 		break;
 	    case 1:
 		if (verificationType) {
-		    verificationSuccesses.append("Verification Passed; element exists and is unique. Locator ["
+		    verificationSuccesses.get().append("Verification Passed; element exists and is unique. Locator ["
 			    + elementLocator.toString() + "].");
 		} else {
-		    verificationFailures.append("Verification Failed; element exists and is unique. Locator ["
+		    verificationFailures.get().append("Verification Failed; element exists and is unique. Locator ["
 			    + elementLocator.toString() + "].");
 		}
 		break;
 	    default:
-		verificationFailures.append(
+		verificationFailures.get().append(
 			"Verification Failed; element is not unique. Locator [" + elementLocator.toString() + "].");
 		elementLocator = null; // workaround to force take a screenshot of the whole page
 		break;
 	    }
 	} catch (Exception e) {
 	    ReportManager.log(e);
-	    verificationFailures.append("Verification Failed; an unhandled exception occured.");
+	    verificationFailures.get().append("Verification Failed; an unhandled exception occured.");
 	}
 	reportVerificationResults("verifyElementExists", driver, elementLocator);
     }
@@ -233,7 +241,7 @@ public class Verifications {
 
 	String actualValue = null;
 
-	discreetLoggingState = ReportManager.isDiscreteLogging();
+	discreetLoggingState.set(ReportManager.isDiscreteLogging());
 	ReportManager.setDiscreteLogging(true);
 	switch (elementAttribute.toLowerCase()) {
 	case "text":
@@ -249,32 +257,34 @@ public class Verifications {
 	    actualValue = ElementActions.getAttribute(driver, elementLocator, elementAttribute);
 	    break;
 	}
-	ReportManager.setDiscreteLogging(discreetLoggingState);
+	ReportManager.setDiscreteLogging(discreetLoggingState.get());
 
 	switch (JavaActions.compareTwoObjects(expectedValue, actualValue, comparisonType, verificationType)) {
 	case 1:
 	    if (verificationType) {
-		verificationSuccesses.append("Verification Passed; actual value of [" + elementAttribute
+		verificationSuccesses.get().append("Verification Passed; actual value of [" + elementAttribute
 			+ "] does match expected value [" + expectedValue + "].");
 	    } else {
-		verificationSuccesses.append("Verification Passed; actual value of [" + elementAttribute + "] equals ["
-			+ actualValue + "] which does not match expected value [" + expectedValue + "].");
+		verificationSuccesses.get().append("Verification Passed; actual value of [" + elementAttribute
+			+ "] equals [" + actualValue + "] which does not match expected value [" + expectedValue
+			+ "].");
 	    }
 	    break;
 	case 0:
 	    if (verificationType) {
-		verificationFailures.append("Verification Failed; actual value of [" + elementAttribute + "] equals ["
-			+ actualValue + "] which does not match expected value [" + expectedValue + "].");
+		verificationFailures.get().append("Verification Failed; actual value of [" + elementAttribute
+			+ "] equals [" + actualValue + "] which does not match expected value [" + expectedValue
+			+ "].");
 	    } else {
-		verificationFailures.append("Verification Failed; actual value of [" + elementAttribute
+		verificationFailures.get().append("Verification Failed; actual value of [" + elementAttribute
 			+ "] does match expected value [" + actualValue + "].");
 	    }
 	    break;
 	case -1:
-	    verificationFailures.append("Verification Failed; invalid comparison operator used.");
+	    verificationFailures.get().append("Verification Failed; invalid comparison operator used.");
 	    break;
 	default:
-	    verificationFailures.append("Verification Failed; an unhandled exception occured.");
+	    verificationFailures.get().append("Verification Failed; an unhandled exception occured.");
 	    break;
 	}
 	reportVerificationResults("verifyElementAttribute", driver, elementLocator);
@@ -302,37 +312,37 @@ public class Verifications {
 	ReportManager.logDiscrete("Verification [" + "verifyElementCSSProperty"
 		+ "] is being performed for target CSS Property [" + propertyName + "].");
 
-	discreetLoggingState = ReportManager.isDiscreteLogging();
+	discreetLoggingState.set(ReportManager.isDiscreteLogging());
 	ReportManager.setDiscreteLogging(true);
 	String actualValue = ElementActions.getCSSProperty(driver, elementLocator, propertyName);
-	ReportManager.setDiscreteLogging(discreetLoggingState);
+	ReportManager.setDiscreteLogging(discreetLoggingState.get());
 
 	switch (JavaActions.compareTwoObjects(expectedValue, actualValue, comparisonType, verificationType)) {
 	case 1:
 	    if (verificationType) {
-		verificationSuccesses.append("Verification Passed; actual CSS Property value of [" + propertyName
+		verificationSuccesses.get().append("Verification Passed; actual CSS Property value of [" + propertyName
 			+ "] does match expected value [" + expectedValue + "].");
 	    } else {
-		verificationSuccesses
+		verificationSuccesses.get()
 			.append("Verification Passed; actual CSS Property value of [" + propertyName + "] equals ["
 				+ actualValue + "] which does not match expected value [" + expectedValue + "].");
 	    }
 	    break;
 	case 0:
 	    if (verificationType) {
-		verificationFailures
+		verificationFailures.get()
 			.append("Verification Failed; actual CSS Property value of [" + propertyName + "] equals ["
 				+ actualValue + "] which does not match expected value [" + expectedValue + "].");
 	    } else {
-		verificationFailures.append("Verification Failed; actual CSS Property value of [" + propertyName
+		verificationFailures.get().append("Verification Failed; actual CSS Property value of [" + propertyName
 			+ "] does match expected value [" + expectedValue + "].");
 	    }
 	    break;
 	case -1:
-	    verificationFailures.append("Verification Failed; invalid comparison operator used.");
+	    verificationFailures.get().append("Verification Failed; invalid comparison operator used.");
 	    break;
 	default:
-	    verificationFailures.append("Verification Failed; an unhandled exception occured.");
+	    verificationFailures.get().append("Verification Failed; an unhandled exception occured.");
 	    break;
 	}
 	reportVerificationResults("verifyElementCSSProperty", driver, elementLocator);
@@ -361,7 +371,7 @@ public class Verifications {
 
 	String actualValue = null;
 
-	discreetLoggingState = ReportManager.isDiscreteLogging();
+	discreetLoggingState.set(ReportManager.isDiscreteLogging());
 	ReportManager.setDiscreteLogging(true);
 	switch (browserAttribute.toLowerCase()) {
 	case "currenturl":
@@ -386,32 +396,33 @@ public class Verifications {
 	    actualValue = "";
 	    break;
 	}
-	ReportManager.setDiscreteLogging(discreetLoggingState);
+	ReportManager.setDiscreteLogging(discreetLoggingState.get());
 
 	switch (JavaActions.compareTwoObjects(expectedValue, actualValue, comparisonType, verificationType)) {
 	case 1:
 	    if (verificationType) {
-		verificationSuccesses.append("Verification Passed; actual value of [" + browserAttribute
+		verificationSuccesses.get().append("Verification Passed; actual value of [" + browserAttribute
 			+ "] does match expected value [" + expectedValue + "].");
 	    } else {
-		verificationSuccesses.append("Verification Passed; actual value of [" + browserAttribute + "] equals ["
-			+ actualValue + "] which does not match expected value [" + expectedValue + "].");
+		verificationSuccesses.get().append("Verification Passed; actual value of [" + browserAttribute
+			+ "] equals [" + actualValue + "] which does not match expected value [" + expectedValue
+			+ "].");
 	    }
 	    break;
 	case 0:
 	    if (verificationType) {
-		verificationFailures.append("Verification Failed; actual value [" + actualValue
+		verificationFailures.get().append("Verification Failed; actual value [" + actualValue
 			+ "] does not match expected value [" + expectedValue + "].");
 	    } else {
-		verificationFailures.append("Verification Failed; actual value of [" + browserAttribute
+		verificationFailures.get().append("Verification Failed; actual value of [" + browserAttribute
 			+ "] does match expected value [" + actualValue + "].");
 	    }
 	    break;
 	case -1:
-	    verificationFailures.append("Verification Failed; invalid comparison operator used.");
+	    verificationFailures.get().append("Verification Failed; invalid comparison operator used.");
 	    break;
 	default:
-	    verificationFailures.append("Verification Failed; an unhandled exception occured.");
+	    verificationFailures.get().append("Verification Failed; an unhandled exception occured.");
 	    break;
 	}
 	reportVerificationResults("verifyBrowserAttribute", driver, null);
@@ -464,17 +475,17 @@ public class Verifications {
 		    Assert.assertTrue(actualValue.floatValue() == expectedValue.floatValue());
 		    break;
 		default:
-		    verificationFailures.append("Verification Failed; invalid comparison operator used.");
+		    verificationFailures.get().append("Verification Failed; invalid comparison operator used.");
 		    break;
 		}
-		verificationSuccesses.append("Verification Passed; actual value [" + actualValue + "] is "
+		verificationSuccesses.get().append("Verification Passed; actual value [" + actualValue + "] is "
 			+ comparativeRelationType + " expected value [" + expectedValue + "].");
 	    } catch (AssertionError e) {
-		verificationFailures.append("Verification Failed; actual value [" + actualValue + "] is not "
+		verificationFailures.get().append("Verification Failed; actual value [" + actualValue + "] is not "
 			+ comparativeRelationType + " expected value [" + expectedValue + "].");
 	    } catch (Exception e) {
 		ReportManager.log(e);
-		verificationFailures.append("Verification Failed; an unhandled exception occured.");
+		verificationFailures.get().append("Verification Failed; an unhandled exception occured.");
 	    }
 	} else {
 	    try {
@@ -495,18 +506,18 @@ public class Verifications {
 		    Assert.assertFalse(actualValue.floatValue() == expectedValue.floatValue());
 		    break;
 		default:
-		    verificationFailures.append("Verification Failed; invalid comparison operator used.");
+		    verificationFailures.get().append("Verification Failed; invalid comparison operator used.");
 		    break;
 		}
 
-		verificationSuccesses.append("Verification Passed; actual value [" + actualValue + "] is not "
+		verificationSuccesses.get().append("Verification Passed; actual value [" + actualValue + "] is not "
 			+ comparativeRelationType + " expected value [" + expectedValue + "].");
 	    } catch (AssertionError e) {
-		verificationFailures.append("Verification Failed; actual value [" + actualValue + "] is "
+		verificationFailures.get().append("Verification Failed; actual value [" + actualValue + "] is "
 			+ comparativeRelationType + " expected value [" + expectedValue + "].");
 	    } catch (Exception e) {
 		ReportManager.log(e);
-		verificationFailures.append("Verification Failed; an unhandled exception occured.");
+		verificationFailures.get().append("Verification Failed; an unhandled exception occured.");
 	    }
 	}
     }
@@ -533,23 +544,23 @@ public class Verifications {
 		+ fileFolderName + "], and target file [" + fileName + "].");
 	if (FileActions.doesFileExist(fileFolderName, fileName, numberOfRetries)) {
 	    if (verificationType) {
-		verificationSuccesses
+		verificationSuccesses.get()
 			.append("Verification Passed; target file [" + fileName + "] exists under the target path ["
 				+ FileActions.getAbsolutePath(fileFolderName, fileName) + "].");
 	    } else {
-		verificationFailures
+		verificationFailures.get()
 			.append("Verification Failed; target file [" + fileName + "] exists under the target path ["
 				+ FileActions.getAbsolutePath(fileFolderName, fileName) + "].");
 	    }
 
 	} else {
 	    if (verificationType) {
-		verificationFailures.append(
+		verificationFailures.get().append(
 			"Verification Failed; target file [" + fileName + "] doesn't exist under the target path ["
 				+ FileActions.getAbsolutePath(fileFolderName, fileName) + "], tried for ["
 				+ numberOfRetries * 500 + "] milliseconds.");
 	    } else {
-		verificationSuccesses.append(
+		verificationSuccesses.get().append(
 			"Verification Passed; target file [" + fileName + "] doesn't exist under the target path ["
 				+ FileActions.getAbsolutePath(fileFolderName, fileName) + "], tried for ["
 				+ numberOfRetries * 500 + "] milliseconds.");
@@ -0,0 +1,50 @@
+/** dispatches the full sequence of pointer events of hovering over each of the target elements, in order */
+(function(elements) {
+    var dispatch = function(element, type, bubbles, clientX, clientY) {
+        var event;
+        if (type.indexOf('pointer') == 0) {
+            if (typeof PointerEvent != 'function') {
+                return;
+            }
+            event = new PointerEvent(type, {
+                bubbles : bubbles,
+                cancelable : bubbles,
+                view : window,
+                clientX : clientX,
+                clientY : clientY,
+                pointerType : 'mouse',
+                isPrimary : true
+            });
+        } else if (typeof MouseEvent == 'function') {
+            event = new MouseEvent(type, {
+                bubbles : bubbles,
+                cancelable : bubbles,
+                view : window,
+                clientX : clientX,
+                clientY : clientY
+            });
+        } else {
+            event = document.createEvent('MouseEvents');
+            event.initMouseEvent(type, bubbles, bubbles, window, 0, 0, 0, clientX, clientY, false, false, false, false, 0, null);
+        }
+        element.dispatchEvent(event);
+    };
+
+    for (var i = 0; i < elements.length; i++) {
+        var element = elements[i];
+        var rect = element.getBoundingClientRect();
+        var clientX = rect.left + rect.width / 2;
+        var clientY = rect.top + rect.height / 2;
+        dispatch(element, 'pointerover', true, clientX, clientY);
+        dispatch(element, 'pointerenter', false, clientX, clientY);
+        dispatch(element, 'mouseover', true, clientX, clientY);
+        dispatch(element, 'mouseenter', false, clientX, clientY);
+        dispatch(element, 'pointermove', true, clientX, clientY);
+        dispatch(element, 'mousemove', true, clientX, clientY);
+    }
+
+    // hovering may reveal elements without mutating the DOM, so cached lookups are no longer valid
+    if (window.__shaftReadinessAgent) {
+        window.__shaftReadinessAgent.epoch++;
+    }
+})([].concat.apply([], Array.prototype.slice.call(arguments)));
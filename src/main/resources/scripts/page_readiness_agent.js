@@ -0,0 +1,139 @@
+/** installs a page readiness agent once per document, then waits for the page to become idle */
+(function(quietPeriod, timeout, callback) {
+    var agent = window.__shaftReadinessAgent;
+    if (!agent) {
+        agent = window.__shaftReadinessAgent = {
+            documentId : Date.now().toString(36) + Math.random().toString(36).slice(2),
+            // the start time of every pending request, by request id
+            pendingRequests : {},
+            lastRequestId : 0,
+            lastMutation : Date.now(),
+            epoch : 0
+        };
+
+        // track a request until it finishes, returns the function that finishes it
+        var startRequest = function() {
+            var requestId = ++agent.lastRequestId;
+            agent.pendingRequests[requestId] = Date.now();
+            return function() {
+                delete agent.pendingRequests[requestId];
+            };
+        };
+
+        // track pending XMLHttpRequests
+        var originalSend = XMLHttpRequest.prototype.send;
+        XMLHttpRequest.prototype.send = function() {
+            var finish = startRequest();
+            this.addEventListener('loadend', finish);
+            try {
+                return originalSend.apply(this, arguments);
+            } catch (e) {
+                finish();
+                throw e;
+            }
+        };
+
+        // track pending fetch requests
+        if (typeof window.fetch == 'function') {
+            var originalFetch = window.fetch;
+            window.fetch = function() {
+                var finish = startRequest();
+                try {
+                    var request = originalFetch.apply(this, arguments);
+                    request.then(finish, finish);
+                    return request;
+                } catch (e) {
+                    finish();
+                    throw e;
+                }
+            };
+        }
+
+        // track DOM changes, every change starts a new epoch, and added or removed nodes also start a new quiet period
+        if (typeof MutationObserver != 'undefined') {
+            new MutationObserver(function(mutations) {
+                agent.epoch++;
+                for (var i = 0; i < mutations.length; i++) {
+                    if (mutations[i].type == 'childList') {
+                        agent.lastMutation = Date.now();
+                        break;
+                    }
+                }
+            }).observe(document, {
+                childList : true,
+                attributes : true,
+                characterData : true,
+                subtree : true
+            });
+        }
+
+        // user input changes element state without mutating the DOM
+        var inputChanged = function() {
+            agent.epoch++;
+        };
+        document.addEventListener('input', inputChanged, true);
+        document.addEventListener('change', inputChanged, true);
+    }
+
+    var frameworksAreIdle = function() {
+        // jQuery
+        if (typeof jQuery != 'undefined' && jQuery.active > 0) {
+            return false;
+        }
+        // AngularJS
+        if (typeof angular != 'undefined' && angular.element) {
+            try {
+                var injector = angular.element(document).injector();
+                if (injector && injector.get('$http').pendingRequests.length > 0) {
+                    return false;
+                }
+            } catch (e) {
+                // the application is not bootstrapped on the document element
+            }
+        }
+        // Angular
+        if (typeof getAllAngularTestabilities == 'function') {
+            var testabilities = getAllAngularTestabilities();
+            for (var i = 0; i < testabilities.length; i++) {
+                if (!testabilities[i].isStable()) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    };
+
+    // requests that stay pending for longer (long polls, streams, beacons) are background traffic, and not waited for
+    var requestsAreIdle = function(now) {
+        for ( var requestId in agent.pendingRequests) {
+            if (now - agent.pendingRequests[requestId] < quietPeriod * 20) {
+                return false;
+            }
+        }
+        return true;
+    };
+
+    var start = Date.now();
+    var check = function() {
+        var now = Date.now();
+        var quietFor = now - agent.lastMutation;
+        // pages that never stop changing (tickers, carousels) are only given a limited time to settle
+        var domIsQuiet = quietFor >= quietPeriod || now - start >= quietPeriod * 10;
+        if (document.readyState == 'complete' && requestsAreIdle(now) && frameworksAreIdle() && domIsQuiet) {
+            callback({
+                ready : true,
+                documentId : agent.documentId,
+                epoch : agent.epoch
+            });
+        } else if (now - start >= timeout) {
+            callback({
+                ready : false,
+                documentId : agent.documentId,
+                epoch : agent.epoch
+            });
+        } else {
+            setTimeout(check, Math.max(10, Math.min(quietPeriod - quietFor, 50)));
+        }
+    };
+    check();
+})(arguments[0], arguments[1], arguments[arguments.length - 1]);
@@ -0,0 +1,34 @@
+/** scrolls the page vertically and calls back with the new scroll position once the scroll was applied and painted */
+(function(scrollPosition, callback) {
+    var getScrollPosition = function() {
+        return (window.pageYOffset !== undefined) ? window.pageYOffset : (document.documentElement || document.body.parentNode || document.body).scrollTop;
+    };
+    var done = false;
+    var finish = function() {
+        if (!done) {
+            done = true;
+            window.removeEventListener('scroll', onScroll, true);
+            // wait for the next frame, so that the capture includes the scrolled content
+            var nextFrame = window.requestAnimationFrame || function(frameCallback) {
+                setTimeout(frameCallback, 16);
+            };
+            nextFrame(function() {
+                callback(getScrollPosition());
+            });
+        }
+    };
+    var onScroll = function() {
+        if (Math.abs(getScrollPosition() - scrollPosition) < 3) {
+            finish();
+        }
+    };
+
+    window.addEventListener('scroll', onScroll, true);
+    window.scrollTo(0, scrollPosition);
+    // the page may already be there, or be too short to get there, so no scroll event would fire
+    if (Math.abs(getScrollPosition() - scrollPosition) < 3) {
+        finish();
+    } else {
+        setTimeout(finish, 250);
+    }
+})(arguments[0], arguments[arguments.length - 1]);
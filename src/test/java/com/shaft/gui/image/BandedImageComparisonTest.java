@@ -0,0 +1,201 @@
+package com.shaft.gui.image;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import javax.imageio.ImageIO;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class BandedImageComparisonTest {
+    private static final int WIDTH = 100;
+    // not a multiple of the band height, so the last band is partial
+    private static final int HEIGHT = 100;
+    // bands of 16 rows, two images and a mask of 9 bytes per pixel in total
+    private static final long BAND_MEMORY = WIDTH * 9 * 16;
+    private static final int BAND_HEIGHT = 16;
+    private static final String[] FORMATS = { "png", "bmp" };
+
+    private File temporaryFolder;
+
+    @BeforeMethod
+    public void beforeMethod() throws IOException {
+	temporaryFolder = Files.createTempDirectory("bandedImageComparisonTest").toFile();
+    }
+
+    @AfterMethod
+    public void afterMethod() {
+	for (File file : temporaryFolder.listFiles()) {
+	    file.delete();
+	}
+	temporaryFolder.delete();
+    }
+
+    @Test(description = "Comparing band by band gives the same results as comparing the decoded images in full.")
+    public void compare_inBands_expectedToMatchFullComparison() throws IOException {
+	BufferedImage testImage = createImage();
+	// differences in the first, a middle, and the partial last band
+	SyntheticImages.invertPixel(testImage, 0, 0);
+	SyntheticImages.invertPixel(testImage, 37, 40);
+	SyntheticImages.invertPixel(testImage, 38, 47);
+	SyntheticImages.invertPixel(testImage, 61, HEIGHT - 3);
+	List<Rectangle> ignoredRegions = Collections.singletonList(new Rectangle(30, 35, 20, 15));
+
+	for (String format : FORMATS) {
+	    File testFile = writeImage(testImage, "test." + format);
+	    File refrenceFile = writeImage(createImage(), "refrence." + format);
+	    BufferedImage decodedTestImage = ImageIO.read(testFile);
+	    BufferedImage decodedRefrenceImage = ImageIO.read(refrenceFile);
+
+	    RasterDiffKernel.Result result = BandedImageComparison.compare(testFile, refrenceFile, 0,
+		    Collections.emptyList(), BAND_MEMORY);
+	    assertSameResult(result, RasterDiffKernel.compare(decodedTestImage, decodedRefrenceImage, 0), format);
+	    Assert.assertEquals(result.getDifferingPixels(), 4L, format);
+	    Assert.assertEquals(result.getDifferingRegion(), new Rectangle(0, 0, 62, HEIGHT - 2), format);
+
+	    result = BandedImageComparison.compare(testFile, refrenceFile, 0, ignoredRegions, BAND_MEMORY);
+	    assertSameResult(result, VisualDiff.compare(decodedTestImage, decodedRefrenceImage, ignoredRegions),
+		    format);
+	    Assert.assertEquals(result.getDifferingPixels(), 2L, format);
+	}
+    }
+
+    @Test(description = "A single difference in the partial last band is found.")
+    public void compare_differenceInLastBand_expectedToBeFound() throws IOException {
+	for (String format : FORMATS) {
+	    BufferedImage testImage = createImage();
+	    SyntheticImages.invertPixel(testImage, WIDTH - 1, HEIGHT - 1);
+	    File testFile = writeImage(testImage, "test." + format);
+	    File refrenceFile = writeImage(createImage(), "refrence." + format);
+
+	    RasterDiffKernel.Result result = BandedImageComparison.compare(testFile, refrenceFile, 0,
+		    Collections.emptyList(), BAND_MEMORY);
+	    Assert.assertTrue(result.isComplete(), format);
+	    Assert.assertEquals(result.getDifferingPixels(), 1L, format);
+	    Assert.assertEquals(result.getDifferingRegion(), new Rectangle(WIDTH - 1, HEIGHT - 1, 1, 1), format);
+	    Assert.assertEquals(result.getPercentage(), (WIDTH * HEIGHT - 1) * 100d / (WIDTH * HEIGHT), 1e-9, format);
+	}
+    }
+
+    @Test(description = "Identical images match, without a differing region.")
+    public void compare_identicalImages_expectedToMatch() throws IOException {
+	File testFile = writeImage(createImage(), "test.png");
+	File refrenceFile = writeImage(createImage(), "refrence.png");
+	RasterDiffKernel.Result result = BandedImageComparison.compare(testFile, refrenceFile, 100,
+		Collections.emptyList(), BAND_MEMORY);
+	Assert.assertEquals(result.getPercentage(), 100, 0);
+	Assert.assertNull(result.getDifferingRegion());
+	Assert.assertTrue(result.isComplete());
+    }
+
+    @Test(description = "The comparison stops after the first band that makes the threshold unreachable.")
+    public void compare_thresholdUnreachable_expectedToStopEarly() throws IOException {
+	BufferedImage testImage = createImage();
+	// a whole row of the second band, and more rows that aren't read
+	for (int y : new int[] { BAND_HEIGHT + 3, 50, HEIGHT - 1 }) {
+	    for (int x = 0; x < WIDTH; x++) {
+		SyntheticImages.invertPixel(testImage, x, y);
+	    }
+	}
+	File testFile = writeImage(testImage, "test.png");
+	File refrenceFile = writeImage(createImage(), "refrence.png");
+
+	RasterDiffKernel.Result result = BandedImageComparison.compare(testFile, refrenceFile, 99.5,
+		Collections.emptyList(), BAND_MEMORY);
+	Assert.assertFalse(result.isComplete());
+	Assert.assertEquals(result.getDifferingPixels(), (long) WIDTH);
+	Assert.assertEquals(result.getDifferingRegion(), new Rectangle(0, BAND_HEIGHT + 3, WIDTH, 1));
+	Assert.assertEquals(result.getPercentage(), 99, 1e-9);
+
+	result = BandedImageComparison.compare(testFile, refrenceFile, 90, Collections.emptyList(), BAND_MEMORY);
+	Assert.assertTrue(result.isComplete());
+	Assert.assertEquals(result.getDifferingPixels(), 3L * WIDTH);
+    }
+
+    @Test(description = "Images of different sizes can't be compared.")
+    public void compare_differentSizes_expectedToReturnNull() throws IOException {
+	File testFile = writeImage(createImage(), "test.png");
+	File refrenceFile = writeImage(new BufferedImage(WIDTH, HEIGHT + 1, BufferedImage.TYPE_INT_RGB),
+		"refrence.png");
+	Assert.assertNull(BandedImageComparison.compare(testFile, refrenceFile, 0, Collections.emptyList(),
+		BAND_MEMORY));
+    }
+
+    @Test(description = "A downscaled diff image marks a cell red if any of its pixels differs.")
+    public void writeDiffImage_downscaled_expectedToMarkDifferingCells() throws IOException {
+	BufferedImage testImage = createImage();
+	// neither pixel is the first pixel of its cell of 3x3 pixels, and the
+	// second one is within the partial last band
+	SyntheticImages.invertPixel(testImage, 52, 46);
+	SyntheticImages.invertPixel(testImage, 8, 98);
+	File testFile = writeImage(testImage, "test.png");
+	File refrenceFile = writeImage(createImage(), "refrence.png");
+	File diffFile = new File(temporaryFolder, "diff.png");
+
+	// the diff image may take 5000 bytes, which fits a scale of 3
+	BandedImageComparison.writeDiffImage(testFile, refrenceFile, new Rectangle(0, 0, WIDTH, HEIGHT),
+		Arrays.asList(new Rectangle(90, 0, 10, 10)), diffFile, 10000);
+	BufferedImage diffImage = ImageIO.read(diffFile);
+	Assert.assertEquals(diffImage.getWidth(), 34);
+	Assert.assertEquals(diffImage.getHeight(), 34);
+	Assert.assertEquals(Integer.toHexString(diffImage.getRGB(17, 15)), "ffff0000");
+	Assert.assertEquals(Integer.toHexString(diffImage.getRGB(2, 32)), "ffff0000");
+	Assert.assertEquals(Integer.toHexString(diffImage.getRGB(31, 1)), "800000ff");
+	// the cells around them show the test image faded
+	for (int[] cell : new int[][] { { 16, 15 }, { 18, 15 }, { 17, 14 }, { 17, 16 }, { 2, 33 } }) {
+	    Assert.assertEquals(diffImage.getRGB(cell[0], cell[1]) >>> 24, 0x4D,
+		    "cell [" + cell[0] + ", " + cell[1] + "]");
+	}
+    }
+
+    @Test(description = "A diff image that fits into the memory only covers the differing region, at full scale.")
+    public void writeDiffImage_region_expectedToCoverOnlyRegion() throws IOException {
+	BufferedImage testImage = createImage();
+	SyntheticImages.invertPixel(testImage, 41, 57);
+	SyntheticImages.invertPixel(testImage, 44, 60);
+	File testFile = writeImage(testImage, "test.png");
+	File refrenceFile = writeImage(createImage(), "refrence.png");
+	File diffFile = new File(temporaryFolder, "diff.png");
+
+	BandedImageComparison.writeDiffImage(testFile, refrenceFile, new Rectangle(41, 57, 4, 4),
+		Collections.emptyList(), diffFile, BAND_MEMORY * 4);
+	BufferedImage diffImage = ImageIO.read(diffFile);
+	Assert.assertEquals(diffImage.getWidth(), 4);
+	Assert.assertEquals(diffImage.getHeight(), 4);
+	for (int y = 0; y < 4; y++) {
+	    for (int x = 0; x < 4; x++) {
+		int expectedColor = (x == 0 && y == 0) || (x == 3 && y == 3) ? 0xFFFF0000
+			: 0x4D000000 | (testImage.getRGB(41 + x, 57 + y) & 0xFFFFFF);
+		Assert.assertEquals(Integer.toHexString(diffImage.getRGB(x, y)), Integer.toHexString(expectedColor),
+			"pixel [" + x + ", " + y + "]");
+	    }
+	}
+    }
+
+    private static BufferedImage createImage() {
+	return SyntheticImages.createNoise(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB, 42);
+    }
+
+    private File writeImage(BufferedImage image, String fileName) throws IOException {
+	File imageFile = new File(temporaryFolder, fileName);
+	Assert.assertTrue(ImageIO.write(image, fileName.substring(fileName.lastIndexOf('.') + 1), imageFile));
+	return imageFile;
+    }
+
+    private static void assertSameResult(RasterDiffKernel.Result actual, RasterDiffKernel.Result expected,
+	    String message) {
+	Assert.assertEquals(actual.getPercentage(), expected.getPercentage(), 1e-9, message);
+	Assert.assertEquals(actual.getDifferingPixels(), expected.getDifferingPixels(), message);
+	Assert.assertEquals(actual.getDifferingRegion(), expected.getDifferingRegion(), message);
+	Assert.assertEquals(actual.isComplete(), expected.isComplete(), message);
+    }
+}
@@ -0,0 +1,117 @@
+package com.shaft.gui.image;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Iterator;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.metadata.IIOMetadataNode;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class GifSequenceWriterTest {
+    private static final int WIDTH = 40;
+    private static final int HEIGHT = 30;
+
+    @Test(description = "An identical frame is skipped, and a changed frame only holds the rectangle that changed.")
+    public void writeToSequence_identicalThenChangedFrame_expectedToWriteDeltaFrame() throws IOException {
+	BufferedImage firstFrame = createFrame();
+	BufferedImage changedFrame = createFrame();
+	// two separate changes, so that the delta frame holds unchanged pixels too
+	Graphics2D graphics = changedFrame.createGraphics();
+	graphics.setColor(Color.BLUE);
+	graphics.fillRect(10, 5, 3, 3);
+	graphics.fillRect(15, 9, 3, 2);
+	graphics.dispose();
+
+	ImageReader gifReader = readGif(writeGif(firstFrame, createFrame(), changedFrame));
+	Assert.assertEquals(gifReader.getNumImages(true), 2);
+
+	IIOMetadataNode imageDescriptor = getNode(gifReader, 1, "ImageDescriptor");
+	Assert.assertEquals(imageDescriptor.getAttribute("imageLeftPosition"), "10");
+	Assert.assertEquals(imageDescriptor.getAttribute("imageTopPosition"), "5");
+	Assert.assertEquals(imageDescriptor.getAttribute("imageWidth"), "8");
+	Assert.assertEquals(imageDescriptor.getAttribute("imageHeight"), "6");
+	Assert.assertEquals(getNode(gifReader, 1, "GraphicControlExtension").getAttribute("transparentColorFlag"),
+		"TRUE");
+
+	// the unchanged pixels of the delta frame are transparent
+	BufferedImage deltaFrame = gifReader.read(1);
+	Assert.assertEquals(deltaFrame.getRGB(0, 0) >>> 24, 0xFF);
+	Assert.assertEquals(deltaFrame.getRGB(4, 0) >>> 24, 0);
+
+	// drawing the frames on top of each other shows the images that were written
+	BufferedImage canvas = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_ARGB);
+	Graphics2D canvasGraphics = canvas.createGraphics();
+	canvasGraphics.drawImage(gifReader.read(0), 0, 0, null);
+	assertSamePixels(canvas, firstFrame);
+	canvasGraphics.drawImage(deltaFrame, 10, 5, null);
+	canvasGraphics.dispose();
+	assertSamePixels(canvas, changedFrame);
+    }
+
+    @Test(description = "A sequence of identical frames is written as a single frame.")
+    public void writeToSequence_identicalFrames_expectedToWriteSingleFrame() throws IOException {
+	ImageReader gifReader = readGif(writeGif(createFrame(), createFrame(), createFrame()));
+	Assert.assertEquals(gifReader.getNumImages(true), 1);
+	assertSamePixels(gifReader.read(0), createFrame());
+    }
+
+    /**
+     * @return a frame that only uses colors of the palette, so that it can be
+     *         compared exactly after quantization
+     */
+    private static BufferedImage createFrame() {
+	BufferedImage frame = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+	Graphics2D graphics = frame.createGraphics();
+	graphics.setColor(Color.WHITE);
+	graphics.fillRect(0, 0, WIDTH, HEIGHT);
+	graphics.setColor(Color.RED);
+	graphics.fillRect(2, 2, 12, 10);
+	graphics.dispose();
+	return frame;
+    }
+
+    private static byte[] writeGif(BufferedImage... frames) throws IOException {
+	ByteArrayOutputStream gif = new ByteArrayOutputStream();
+	try (ImageOutputStream output = ImageIO.createImageOutputStream(gif)) {
+	    GifSequenceWriter writer = new GifSequenceWriter(output, 500, true, 1);
+	    for (BufferedImage frame : frames) {
+		writer.writeToSequence(frame);
+	    }
+	    writer.close();
+	}
+	return gif.toByteArray();
+    }
+
+    private static ImageReader readGif(byte[] gif) throws IOException {
+	ImageInputStream input = ImageIO.createImageInputStream(new ByteArrayInputStream(gif));
+	Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+	ImageReader gifReader = readers.next();
+	gifReader.setInput(input);
+	return gifReader;
+    }
+
+    private static IIOMetadataNode getNode(ImageReader gifReader, int frame, String nodeName) throws IOException {
+	IIOMetadataNode root = (IIOMetadataNode) gifReader.getImageMetadata(frame)
+		.getAsTree("javax_imageio_gif_image_1.0");
+	return (IIOMetadataNode) root.getElementsByTagName(nodeName).item(0);
+    }
+
+    private static void assertSamePixels(BufferedImage actual, BufferedImage expected) {
+	for (int y = 0; y < HEIGHT; y++) {
+	    for (int x = 0; x < WIDTH; x++) {
+		Assert.assertEquals(Integer.toHexString(actual.getRGB(x, y) | 0xFF000000),
+			Integer.toHexString(expected.getRGB(x, y) | 0xFF000000), "pixel [" + x + ", " + y + "]");
+	    }
+	}
+    }
+}
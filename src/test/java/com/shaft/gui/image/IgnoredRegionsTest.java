@@ -0,0 +1,107 @@
+package com.shaft.gui.image;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import javax.imageio.ImageIO;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class IgnoredRegionsTest {
+    private static final List<Rectangle> IGNORED_REGIONS = Arrays.asList(new Rectangle(0, 0, 10, 5),
+	    new Rectangle(12, 7, 20, 3), new Rectangle(39, 29, 1, 1));
+
+    private File temporaryFolder;
+
+    @BeforeMethod
+    public void beforeMethod() throws IOException {
+	temporaryFolder = Files.createTempDirectory("ignoredRegionsTest").toFile();
+    }
+
+    @AfterMethod
+    public void afterMethod() {
+	for (File file : temporaryFolder.listFiles()) {
+	    file.delete();
+	}
+	temporaryFolder.delete();
+    }
+
+    @Test(description = "The embedded regions are read back from the file, which still decodes to the same image.")
+    public void embed_thenRead_expectedToReturnSameRegions() throws IOException {
+	BufferedImage image = createImage();
+	byte[] png = IgnoredRegions.embed(encode(image, "png"), IGNORED_REGIONS);
+	File imageFile = write(png, "embedded.png");
+
+	Assert.assertEquals(IgnoredRegions.read(imageFile), IGNORED_REGIONS);
+	BufferedImage decodedImage = ImageIO.read(imageFile);
+	Assert.assertEquals(decodedImage.getRGB(0, 0, 40, 30, null, 0, 40), image.getRGB(0, 0, 40, 30, null, 0, 40));
+    }
+
+    @Test(description = "The regions are also read from the PNG files written by the screenshot encoder.")
+    public void embed_encodedScreenshot_expectedToReturnSameRegions() throws IOException {
+	byte[] png = IgnoredRegions.embed(PngEncoder.encode(createImage(), 6, 1), IGNORED_REGIONS);
+	Assert.assertEquals(IgnoredRegions.read(write(png, "encoded.png")), IGNORED_REGIONS);
+    }
+
+    @Test(description = "Nothing is embedded if there are no regions.")
+    public void embed_noRegions_expectedToKeepSameBytes() throws IOException {
+	byte[] png = encode(createImage(), "png");
+	Assert.assertTrue(Arrays.equals(IgnoredRegions.embed(png, Collections.emptyList()), png));
+    }
+
+    @Test(expectedExceptions = IOException.class, description = "Regions can only be embedded into PNG files.")
+    public void embed_jpeg_expectedToThrow() throws IOException {
+	IgnoredRegions.embed(encode(createImage(), "jpg"), IGNORED_REGIONS);
+    }
+
+    @Test(description = "A PNG file without the regions chunk has no ignored regions.")
+    public void read_pngWithoutRegions_expectedToBeEmpty() throws IOException {
+	Assert.assertTrue(IgnoredRegions.read(write(encode(createImage(), "png"), "plain.png")).isEmpty());
+    }
+
+    @Test(description = "A JPEG file has no ignored regions.")
+    public void read_jpeg_expectedToBeEmpty() throws IOException {
+	Assert.assertTrue(IgnoredRegions.read(write(encode(createImage(), "jpg"), "image.jpg")).isEmpty());
+    }
+
+    @Test(description = "A file that ends before its image data has no ignored regions.")
+    public void read_truncatedFile_expectedToBeEmpty() throws IOException {
+	byte[] png = encode(createImage(), "png");
+	Assert.assertTrue(IgnoredRegions.read(write(Arrays.copyOf(png, 20), "truncated.png")).isEmpty());
+	Assert.assertTrue(IgnoredRegions.read(write(new byte[0], "empty.png")).isEmpty());
+    }
+
+    private static BufferedImage createImage() {
+	BufferedImage image = new BufferedImage(40, 30, BufferedImage.TYPE_INT_RGB);
+	for (int y = 0; y < 30; y++) {
+	    for (int x = 0; x < 40; x++) {
+		image.setRGB(x, y, (x * 6) << 16 | (y * 8) << 8 | 0x80);
+	    }
+	}
+	return image;
+    }
+
+    private static byte[] encode(BufferedImage image, String format) throws IOException {
+	ByteArrayOutputStream output = new ByteArrayOutputStream();
+	Assert.assertTrue(ImageIO.write(image, format, output));
+	Assert.assertNotNull(ImageIO.read(new ByteArrayInputStream(output.toByteArray())));
+	return output.toByteArray();
+    }
+
+    private File write(byte[] bytes, String fileName) throws IOException {
+	File file = new File(temporaryFolder, fileName);
+	Files.write(file.toPath(), bytes);
+	return file;
+    }
+}
@@ -0,0 +1,85 @@
+package com.shaft.gui.image;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Random;
+
+import javax.imageio.ImageIO;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class PngEncoderTest {
+    private static final int[] COMPRESSION_LEVELS = { 0, 1, 6, 9 };
+    private static final int[] STRIPES = { 1, 3, 8 };
+
+    @Test(description = "RGB images decode to the same pixels, at every deflate level, in one or more stripes.")
+    public void encode_rgbImages_expectedToDecodeIdentically() throws IOException {
+	assertEncodesIdentically(createImage(640, 400, BufferedImage.TYPE_INT_RGB));
+	assertEncodesIdentically(createImage(640, 400, BufferedImage.TYPE_3BYTE_BGR));
+    }
+
+    @Test(description = "ARGB images keep their alpha channel, at every deflate level, in one or more stripes.")
+    public void encode_argbImages_expectedToDecodeIdentically() throws IOException {
+	assertEncodesIdentically(createImage(640, 400, BufferedImage.TYPE_INT_ARGB));
+	assertEncodesIdentically(createImage(640, 400, BufferedImage.TYPE_4BYTE_ABGR));
+    }
+
+    @Test(description = "Odd sized images, and images whose height doesn't split into even stripes, decode identically.")
+    public void encode_oddSizedImages_expectedToDecodeIdentically() throws IOException {
+	assertEncodesIdentically(createImage(1, 1, BufferedImage.TYPE_INT_RGB));
+	assertEncodesIdentically(createImage(7, 301, BufferedImage.TYPE_INT_ARGB));
+	assertEncodesIdentically(createImage(333, 517, BufferedImage.TYPE_3BYTE_BGR));
+    }
+
+    /**
+     * @return an image with flat areas, gradients and noise, so that every row
+     *         filter gets used
+     */
+    private static BufferedImage createImage(int width, int height, int imageType) {
+	BufferedImage image = new BufferedImage(width, height, imageType);
+	boolean hasAlpha = image.getColorModel().hasAlpha();
+	Random random = new Random(width * 31L + height);
+	for (int y = 0; y < height; y++) {
+	    for (int x = 0; x < width; x++) {
+		int pixel;
+		switch ((y / 16) % 3) {
+		case 0:
+		    pixel = 0x336699;
+		    break;
+		case 1:
+		    pixel = ((x * 255 / width) << 16) | ((y * 255 / height) << 8) | ((x + y) & 0xFF);
+		    break;
+		default:
+		    pixel = random.nextInt(0x1000000);
+		    break;
+		}
+		int alpha = hasAlpha ? (x * 7 + y * 3) & 0xFF : 0xFF;
+		image.setRGB(x, y, (alpha << 24) | pixel);
+	    }
+	}
+	return image;
+    }
+
+    private static void assertEncodesIdentically(BufferedImage image) throws IOException {
+	for (int compressionLevel : COMPRESSION_LEVELS) {
+	    for (int stripes : STRIPES) {
+		String encoding = image.getWidth() + "x" + image.getHeight() + " type " + image.getType()
+			+ " at level " + compressionLevel + " in " + stripes + " stripes";
+		BufferedImage decodedImage = ImageIO
+			.read(new ByteArrayInputStream(PngEncoder.encode(image, compressionLevel, stripes)));
+		Assert.assertNotNull(decodedImage, encoding);
+		Assert.assertEquals(decodedImage.getWidth(), image.getWidth(), encoding);
+		Assert.assertEquals(decodedImage.getHeight(), image.getHeight(), encoding);
+		Assert.assertEquals(decodedImage.getColorModel().hasAlpha(), image.getColorModel().hasAlpha(),
+			encoding);
+		Assert.assertEquals(getPixels(decodedImage), getPixels(image), encoding);
+	    }
+	}
+    }
+
+    private static int[] getPixels(BufferedImage image) {
+	return image.getRGB(0, 0, image.getWidth(), image.getHeight(), null, 0, image.getWidth());
+    }
+}
@@ -0,0 +1,100 @@
+package com.shaft.gui.image;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares the raster diff kernel against the previous per element
+ * comparison, on a full HD screenshot that either matches its reference, or
+ * differs in a small region.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RasterDiffKernelBenchmark {
+    @Param({ "TYPE_3BYTE_BGR", "TYPE_INT_RGB" })
+    private String imageType;
+
+    @Param({ "identical", "differentRegion" })
+    private String difference;
+
+    private BufferedImage testImage;
+    private BufferedImage refrenceImage;
+
+    @Setup
+    public void setUp() throws ReflectiveOperationException {
+	int type = BufferedImage.class.getField(imageType).getInt(null);
+	testImage = new BufferedImage(1920, 1080, type);
+	refrenceImage = new BufferedImage(1920, 1080, type);
+	Random random = new Random(42);
+	for (int y = 0; y < 1080; y++) {
+	    for (int x = 0; x < 1920; x++) {
+		int pixel = random.nextInt(0xFFFFFF);
+		testImage.setRGB(x, y, pixel);
+		refrenceImage.setRGB(x, y, pixel);
+	    }
+	}
+	if ("differentRegion".equals(difference)) {
+	    for (int y = 500; y < 540; y++) {
+		for (int x = 900; x < 1100; x++) {
+		    testImage.setRGB(x, y, ~testImage.getRGB(x, y));
+		}
+	    }
+	}
+    }
+
+    /**
+     * The comparison as it was done before the kernel, copying both rasters and
+     * reading every element through the data buffers.
+     */
+    @Benchmark
+    public float dataBufferGetElem() {
+	DataBuffer dbA = testImage.getData().getDataBuffer();
+	float sizeA = dbA.getSize();
+	DataBuffer dbB = refrenceImage.getData().getDataBuffer();
+	float sizeB = dbB.getSize();
+	float count = 0;
+	if (sizeA == sizeB) {
+	    for (int i = 0; i < sizeA; i++) {
+		if (dbA.getElem(i) == dbB.getElem(i)) {
+		    count = count + 1;
+		}
+	    }
+	}
+	return (count * 100) / sizeA;
+    }
+
+    @Benchmark
+    public double rasterDiffKernel() {
+	return RasterDiffKernel.compare(testImage, refrenceImage, 0).getPercentage();
+    }
+
+    @Benchmark
+    public double rasterDiffKernelWithThreshold() {
+	return RasterDiffKernel.compare(testImage, refrenceImage, 99.9).getPercentage();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+	new Runner(new OptionsBuilder().include(RasterDiffKernelBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,142 @@
+package com.shaft.gui.image;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class RasterDiffKernelTest {
+    private static final int WIDTH = 17;
+    private static final int HEIGHT = 13;
+    private static final int[] IMAGE_TYPES = { BufferedImage.TYPE_INT_RGB, BufferedImage.TYPE_INT_ARGB,
+	    BufferedImage.TYPE_3BYTE_BGR, BufferedImage.TYPE_4BYTE_ABGR };
+    // the pixels at the corners and in the middle of the edges
+    private static final int[][] EDGE_PIXELS = { { 0, 0 }, { WIDTH - 1, 0 }, { 0, HEIGHT - 1 },
+	    { WIDTH - 1, HEIGHT - 1 }, { WIDTH / 2, 0 }, { 0, HEIGHT / 2 }, { WIDTH - 1, HEIGHT / 2 },
+	    { WIDTH / 2, HEIGHT - 1 } };
+
+    @Test(description = "Identical images of every raster layout match completely.")
+    public void compare_identicalImages_expectedToMatch() {
+	for (int imageType : IMAGE_TYPES) {
+	    RasterDiffKernel.Result result = RasterDiffKernel.compare(createImage(imageType), createImage(imageType),
+		    0);
+	    Assert.assertEquals(result.getPercentage(), 100, 0, "image type " + imageType);
+	    Assert.assertEquals(result.getDifferingPixels(), 0L, "image type " + imageType);
+	    Assert.assertNull(result.getDifferingRegion(), "image type " + imageType);
+	    Assert.assertTrue(result.isComplete(), "image type " + imageType);
+	}
+    }
+
+    @Test(description = "A single differing pixel at any edge is counted once, and bounded exactly.")
+    public void compare_singleDifferingPixelAtEdges_expectedToBeLocated() {
+	for (int imageType : IMAGE_TYPES) {
+	    for (int[] pixel : EDGE_PIXELS) {
+		BufferedImage testImage = createImage(imageType);
+		SyntheticImages.invertPixel(testImage, pixel[0], pixel[1]);
+		assertSingleDifferingPixel(RasterDiffKernel.compare(testImage, createImage(imageType), 0), pixel,
+			"image type " + imageType);
+	    }
+	}
+    }
+
+    @Test(description = "Images of different types are compared by their colors.")
+    public void compare_differentImageTypes_expectedToCompareColors() {
+	BufferedImage testImage = createImage(BufferedImage.TYPE_INT_RGB);
+	BufferedImage refrenceImage = createImage(BufferedImage.TYPE_3BYTE_BGR);
+	Assert.assertEquals(RasterDiffKernel.compare(testImage, refrenceImage, 0).getDifferingPixels(), 0L);
+
+	int[] pixel = { WIDTH - 1, HEIGHT - 1 };
+	SyntheticImages.invertPixel(testImage, pixel[0], pixel[1]);
+	assertSingleDifferingPixel(RasterDiffKernel.compare(testImage, refrenceImage, 0), pixel, "mixed types");
+    }
+
+    @Test(description = "Subimages are read at their own offsets within the shared backing arrays.")
+    public void compare_subimages_expectedToUseTheirOffsets() {
+	for (int imageType : IMAGE_TYPES) {
+	    BufferedImage testImage = createImage(imageType);
+	    SyntheticImages.invertPixel(testImage, 5, 4);
+	    RasterDiffKernel.Result result = RasterDiffKernel.compare(testImage.getSubimage(3, 2, 9, 8),
+		    createImage(imageType).getSubimage(3, 2, 9, 8), 0);
+	    assertSingleDifferingPixel(result, new int[] { 2, 2 }, "image type " + imageType);
+	    Assert.assertEquals(result.getPercentage(), 71 * 100d / 72, 1e-9, "image type " + imageType);
+	}
+    }
+
+    @Test(description = "The unused alpha bits of an RGB image don't count as a difference.")
+    public void compare_unusedAlphaBits_expectedToBeIgnored() {
+	BufferedImage testImage = createImage(BufferedImage.TYPE_INT_RGB);
+	int[] pixels = ((DataBufferInt) testImage.getRaster().getDataBuffer()).getData();
+	pixels[0] |= 0xFF000000;
+	Assert.assertEquals(RasterDiffKernel
+		.compare(testImage, createImage(BufferedImage.TYPE_INT_RGB), 0).getDifferingPixels(), 0L);
+    }
+
+    @Test(description = "Several differing pixels are bounded by a single region.")
+    public void compare_severalDifferingPixels_expectedToBeBounded() {
+	for (int imageType : IMAGE_TYPES) {
+	    BufferedImage testImage = createImage(imageType);
+	    SyntheticImages.invertPixel(testImage, 4, 9);
+	    SyntheticImages.invertPixel(testImage, 11, 3);
+	    SyntheticImages.invertPixel(testImage, 6, 6);
+	    RasterDiffKernel.Result result = RasterDiffKernel.compare(testImage, createImage(imageType), 0);
+	    Assert.assertEquals(result.getDifferingPixels(), 3L, "image type " + imageType);
+	    Assert.assertEquals(result.getDifferingRegion(), new Rectangle(4, 3, 8, 7), "image type " + imageType);
+	    Assert.assertEquals(result.getPercentage(), (WIDTH * HEIGHT - 3) * 100d / (WIDTH * HEIGHT), 1e-9,
+		    "image type " + imageType);
+	}
+    }
+
+    @Test(description = "The comparison stops after the first row that makes the threshold unreachable.")
+    public void compare_thresholdUnreachable_expectedToStopEarly() {
+	for (int imageType : IMAGE_TYPES) {
+	    BufferedImage testImage = createImage(imageType);
+	    // the first row alone drops the percentage below the threshold, and the
+	    // rows below it aren't compared
+	    for (int y : new int[] { 1, 8, 12 }) {
+		for (int x = 0; x < WIDTH; x++) {
+		    SyntheticImages.invertPixel(testImage, x, y);
+		}
+	    }
+	    RasterDiffKernel.Result result = RasterDiffKernel.compare(testImage, createImage(imageType), 95);
+	    Assert.assertFalse(result.isComplete(), "image type " + imageType);
+	    Assert.assertEquals(result.getDifferingPixels(), (long) WIDTH, "image type " + imageType);
+	    Assert.assertEquals(result.getDifferingRegion(), new Rectangle(0, 1, WIDTH, 1), "image type " + imageType);
+	    Assert.assertEquals(result.getPercentage(), (HEIGHT - 1) * 100d / HEIGHT, 1e-9, "image type " + imageType);
+
+	    // a threshold that is still met compares all the rows
+	    result = RasterDiffKernel.compare(testImage, createImage(imageType), 75);
+	    Assert.assertTrue(result.isComplete(), "image type " + imageType);
+	    Assert.assertEquals(result.getDifferingPixels(), 3L * WIDTH, "image type " + imageType);
+	    Assert.assertEquals(result.getDifferingRegion(), new Rectangle(0, 1, WIDTH, 12), "image type " + imageType);
+	}
+    }
+
+    @Test(description = "Only the given regions are compared, and the rest of the pixels are assumed to match.")
+    public void compare_regions_expectedToCompareOnlyThem() {
+	BufferedImage testImage = createImage(BufferedImage.TYPE_INT_RGB);
+	SyntheticImages.invertPixel(testImage, 1, 1);
+	SyntheticImages.invertPixel(testImage, 10, 10);
+	RasterDiffKernel.Result result = RasterDiffKernel.compare(testImage, createImage(BufferedImage.TYPE_INT_RGB),
+		Arrays.asList(new Rectangle(8, 8, 4, 4), new Rectangle(0, 4, 4, 4)), 0);
+	assertSingleDifferingPixel(result, new int[] { 10, 10 }, "regions");
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class, description = "Images of different sizes can't be compared.")
+    public void compare_differentSizes_expectedToThrow() {
+	RasterDiffKernel.compare(createImage(BufferedImage.TYPE_INT_RGB),
+		new BufferedImage(WIDTH, HEIGHT + 1, BufferedImage.TYPE_INT_RGB), 0);
+    }
+
+    private static BufferedImage createImage(int imageType) {
+	return SyntheticImages.createNoise(WIDTH, HEIGHT, imageType, 42);
+    }
+
+    private static void assertSingleDifferingPixel(RasterDiffKernel.Result result, int[] pixel, String message) {
+	Assert.assertEquals(result.getDifferingPixels(), 1L, message);
+	Assert.assertEquals(result.getDifferingRegion(), new Rectangle(pixel[0], pixel[1], 1, 1), message);
+	Assert.assertTrue(result.isComplete(), message);
+    }
+}
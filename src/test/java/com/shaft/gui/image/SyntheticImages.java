@@ -0,0 +1,36 @@
+package com.shaft.gui.image;
+
+import java.awt.image.BufferedImage;
+import java.util.Random;
+
+/**
+ * Builds the small synthetic images that the image comparison tests run on.
+ */
+class SyntheticImages {
+    private SyntheticImages() {
+	throw new IllegalStateException("Utility class");
+    }
+
+    /**
+     * @return an image of random opaque colors, which is the same every time for
+     *         the same seed
+     */
+    static BufferedImage createNoise(int width, int height, int imageType, long seed) {
+	BufferedImage image = new BufferedImage(width, height, imageType);
+	Random random = new Random(seed);
+	for (int y = 0; y < height; y++) {
+	    for (int x = 0; x < width; x++) {
+		image.setRGB(x, y, 0xFF000000 | random.nextInt(0x1000000));
+	    }
+	}
+	return image;
+    }
+
+    /**
+     * Inverts the color of a pixel, so that it differs from the same pixel of any
+     * other image of the same seed.
+     */
+    static void invertPixel(BufferedImage image, int x, int y) {
+	image.setRGB(x, y, image.getRGB(x, y) ^ 0x00FFFFFF);
+    }
+}
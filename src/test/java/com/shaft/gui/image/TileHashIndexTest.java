@@ -0,0 +1,182 @@
+package com.shaft.gui.image;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+
+import javax.imageio.ImageIO;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class TileHashIndexTest {
+    // three by three tiles, the last row and column of which are partial
+    private static final int WIDTH = 150;
+    private static final int HEIGHT = 130;
+
+    private File temporaryFolder;
+    private File refrenceFolder;
+    private File refrenceFile;
+    private File indexFile;
+
+    @BeforeMethod
+    public void beforeMethod() throws IOException {
+	temporaryFolder = Files.createTempDirectory("tileHashIndexTest").toFile();
+	refrenceFolder = new File(temporaryFolder, "refrence");
+	refrenceFolder.mkdir();
+	// bitmaps of the same size have the same length, so a changed file can keep
+	// the length of the file that was indexed
+	refrenceFile = new File(refrenceFolder, "refrence.bmp");
+	indexFile = new File(temporaryFolder, "refrence.tileHashes");
+    }
+
+    @AfterMethod
+    public void afterMethod() {
+	for (File folder : new File[] { refrenceFolder, temporaryFolder }) {
+	    for (File file : folder.listFiles()) {
+		file.delete();
+	    }
+	    folder.delete();
+	}
+    }
+
+    @Test(description = "An index that was saved and loaded again gives the same results as the index that was built.")
+    public void save_thenLoad_expectedToGiveSameResults() throws IOException {
+	BufferedImage refrenceImage = createImage(1);
+	writeRefrenceImage(refrenceImage, 1000000000L);
+	BufferedImage testImage = createImage(1);
+	SyntheticImages.invertPixel(testImage, 70, 80);
+
+	TileHashIndex index = TileHashIndex.load(refrenceFolder);
+	RasterDiffKernel.Result builtResult = index.compare(refrenceFile, testImage, 0);
+	index.save(refrenceFolder.listFiles());
+	Assert.assertTrue(indexFile.isFile());
+
+	RasterDiffKernel.Result loadedResult = TileHashIndex.load(refrenceFolder).compare(refrenceFile, testImage, 0);
+	assertSameResult(loadedResult, builtResult);
+	Assert.assertEquals(loadedResult.getDifferingPixels(), 1L);
+	Assert.assertEquals(loadedResult.getDifferingRegion(), new Rectangle(70, 80, 1, 1));
+
+	// the loaded hashes are used as they are, as long as the file looks unchanged
+	writeRefrenceImage(createImage(2), 1000000000L);
+	Assert.assertEquals(
+		TileHashIndex.load(refrenceFolder).compare(refrenceFile, refrenceImage, 0).getDifferingPixels(), 0L);
+    }
+
+    @Test(description = "A reference image whose modification time changed is hashed again.")
+    public void compare_changedModificationTime_expectedToRehash() throws IOException {
+	BufferedImage oldRefrenceImage = createImage(1);
+	writeRefrenceImage(oldRefrenceImage, 1000000000L);
+	long length = refrenceFile.length();
+	saveIndex();
+
+	writeRefrenceImage(createImage(2), 2000000000L);
+	Assert.assertEquals(refrenceFile.length(), length);
+	assertDiffers(TileHashIndex.load(refrenceFolder).compare(refrenceFile, oldRefrenceImage, 0));
+    }
+
+    @Test(description = "A reference image whose length changed is hashed again.")
+    public void compare_changedLength_expectedToRehash() throws IOException {
+	BufferedImage oldRefrenceImage = createImage(1);
+	writeRefrenceImage(oldRefrenceImage, 1000000000L);
+	long length = refrenceFile.length();
+	saveIndex();
+
+	// the same modification time, but a PNG file instead of a bitmap
+	ImageIO.write(createImage(2), "png", refrenceFile);
+	refrenceFile.setLastModified(1000000000L);
+	Assert.assertNotEquals(refrenceFile.length(), length);
+	assertDiffers(TileHashIndex.load(refrenceFolder).compare(refrenceFile, oldRefrenceImage, 0));
+    }
+
+    @Test(description = "An index of another format version is ignored.")
+    public void load_otherFormatVersion_expectedToBeIgnored() throws IOException {
+	BufferedImage oldRefrenceImage = createImage(1);
+	writeRefrenceImage(oldRefrenceImage, 1000000000L);
+	saveIndex();
+	try (RandomAccessFile index = new RandomAccessFile(indexFile, "rw")) {
+	    index.writeInt(2);
+	}
+
+	// the file looks unchanged, so only ignoring the stale index catches the
+	// change
+	writeRefrenceImage(createImage(2), 1000000000L);
+	assertDiffers(TileHashIndex.load(refrenceFolder).compare(refrenceFile, oldRefrenceImage, 0));
+    }
+
+    @Test(description = "A damaged index is ignored, and rebuilt when it is saved.")
+    public void load_damagedIndex_expectedToBeIgnoredAndRebuilt() throws IOException {
+	BufferedImage oldRefrenceImage = createImage(1);
+	writeRefrenceImage(oldRefrenceImage, 1000000000L);
+	saveIndex();
+	long indexLength = indexFile.length();
+	try (RandomAccessFile index = new RandomAccessFile(indexFile, "rw")) {
+	    index.setLength(indexLength / 2);
+	}
+
+	writeRefrenceImage(createImage(2), 1000000000L);
+	TileHashIndex index = TileHashIndex.load(refrenceFolder);
+	assertDiffers(index.compare(refrenceFile, oldRefrenceImage, 0));
+	index.save(refrenceFolder.listFiles());
+	Assert.assertEquals(indexFile.length(), indexLength);
+	Assert.assertEquals(
+		TileHashIndex.load(refrenceFolder).compare(refrenceFile, createImage(2), 0).getDifferingPixels(), 0L);
+    }
+
+    @Test(description = "A difference within a single tile is found, in full and in partial tiles.")
+    public void compare_singleTileDifference_expectedToBeFound() throws IOException {
+	writeRefrenceImage(createImage(1), 1000000000L);
+	TileHashIndex index = TileHashIndex.load(refrenceFolder);
+	Assert.assertEquals(index.compare(refrenceFile, createImage(1), 0).getDifferingPixels(), 0L);
+
+	for (int[] pixel : new int[][] { { 64, 64 }, { 127, 127 }, { WIDTH - 1, HEIGHT - 1 }, { 0, HEIGHT - 1 } }) {
+	    BufferedImage testImage = createImage(1);
+	    SyntheticImages.invertPixel(testImage, pixel[0], pixel[1]);
+	    RasterDiffKernel.Result result = index.compare(refrenceFile, testImage, 0);
+	    String message = "pixel [" + pixel[0] + ", " + pixel[1] + "]";
+	    Assert.assertEquals(result.getDifferingPixels(), 1L, message);
+	    Assert.assertEquals(result.getDifferingRegion(), new Rectangle(pixel[0], pixel[1], 1, 1), message);
+	    Assert.assertEquals(result.getPercentage(), (WIDTH * HEIGHT - 1) * 100d / (WIDTH * HEIGHT), 1e-9,
+		    message);
+	}
+    }
+
+    @Test(description = "A test image of another size can't be compared.")
+    public void compare_differentSizes_expectedToReturnNull() throws IOException {
+	writeRefrenceImage(createImage(1), 1000000000L);
+	Assert.assertNull(TileHashIndex.load(refrenceFolder).compare(refrenceFile,
+		new BufferedImage(WIDTH, HEIGHT + 1, BufferedImage.TYPE_3BYTE_BGR), 0));
+    }
+
+    private static BufferedImage createImage(long seed) {
+	return SyntheticImages.createNoise(WIDTH, HEIGHT, BufferedImage.TYPE_3BYTE_BGR, seed);
+    }
+
+    private void writeRefrenceImage(BufferedImage image, long lastModified) throws IOException {
+	Assert.assertTrue(ImageIO.write(image, "bmp", refrenceFile));
+	Assert.assertTrue(refrenceFile.setLastModified(lastModified));
+    }
+
+    private void saveIndex() throws IOException {
+	TileHashIndex index = TileHashIndex.load(refrenceFolder);
+	index.compare(refrenceFile, createImage(1), 0);
+	index.save(refrenceFolder.listFiles());
+    }
+
+    private static void assertDiffers(RasterDiffKernel.Result result) {
+	Assert.assertTrue(result.getDifferingPixels() > 0, "The stale hashes were used.");
+	Assert.assertTrue(result.getPercentage() < 100, "The stale hashes were used.");
+    }
+
+    private static void assertSameResult(RasterDiffKernel.Result actual, RasterDiffKernel.Result expected) {
+	Assert.assertEquals(actual.getPercentage(), expected.getPercentage(), 0);
+	Assert.assertEquals(actual.getDifferingPixels(), expected.getDifferingPixels());
+	Assert.assertEquals(actual.getDifferingRegion(), expected.getDifferingRegion());
+	Assert.assertEquals(actual.isComplete(), expected.isComplete());
+    }
+}
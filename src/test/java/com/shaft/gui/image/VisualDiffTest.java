@@ -0,0 +1,116 @@
+package com.shaft.gui.image;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.geom.Ellipse2D;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class VisualDiffTest {
+    private static final int WIDTH = 90;
+    private static final int HEIGHT = 70;
+    private static final String[] METHODS = { "Exact", "PerceptualTolerance", "SSIM" };
+    private static final double TOLERANCE = 0.1;
+
+    @Test(description = "An anti-aliased edge that moved by a fraction of a pixel only fails the exact comparison.")
+    public void compare_antiAliasedShift_expectedToFailOnlyExactComparison() {
+	BufferedImage testImage = createImage(20.25);
+	BufferedImage refrenceImage = createImage(20);
+
+	RasterDiffKernel.Result result = VisualDiff.compare(testImage, refrenceImage, Collections.emptyList(),
+		"Exact", TOLERANCE);
+	Assert.assertTrue(result.getPercentage() < 100);
+	Assert.assertTrue(result.getDifferingPixels() > 0);
+	// the exact comparison of the visual diff agrees with the raster diff kernel
+	Assert.assertEquals(result.getDifferingPixels(),
+		RasterDiffKernel.compare(testImage, refrenceImage, 0).getDifferingPixels());
+
+	for (String method : new String[] { "PerceptualTolerance", "SSIM" }) {
+	    result = VisualDiff.compare(testImage, refrenceImage, Collections.emptyList(), method, TOLERANCE);
+	    Assert.assertEquals(result.getPercentage(), 100, 0, method);
+	    Assert.assertEquals(result.getDifferingPixels(), 0L, method);
+	    Assert.assertNull(result.getDifferingRegion(), method);
+	}
+    }
+
+    @Test(description = "A visible change fails every comparison method.")
+    public void compare_visibleChange_expectedToFailEveryMethod() {
+	BufferedImage testImage = createImage(20);
+	fillRectangle(testImage, new Rectangle(60, 40, 12, 9), Color.BLACK);
+
+	for (String method : METHODS) {
+	    RasterDiffKernel.Result result = VisualDiff.compare(testImage, createImage(20), Collections.emptyList(),
+		    method, TOLERANCE);
+	    Assert.assertTrue(result.getPercentage() < 100, method);
+	    Assert.assertTrue(result.getDifferingRegion().intersects(new Rectangle(60, 40, 12, 9)), method);
+	}
+    }
+
+    @Test(description = "A change that lies entirely within an ignored region matches in full.")
+    public void compare_changeWithinIgnoredRegion_expectedToMatch() {
+	BufferedImage testImage = createImage(20);
+	fillRectangle(testImage, new Rectangle(60, 40, 12, 9), Color.BLACK);
+	List<Rectangle> ignoredRegions = Arrays.asList(new Rectangle(0, 0, 5, 5), new Rectangle(58, 38, 16, 13));
+
+	for (String method : METHODS) {
+	    RasterDiffKernel.Result result = VisualDiff.compare(testImage, createImage(20), ignoredRegions, method,
+		    TOLERANCE);
+	    Assert.assertEquals(result.getPercentage(), 100, 0, method);
+	    Assert.assertEquals(result.getDifferingPixels(), 0L, method);
+	    Assert.assertNull(result.getDifferingRegion(), method);
+	}
+    }
+
+    @Test(description = "Ignored pixels are marked in the mask, and left out of the percentage.")
+    public void compareBand_ignoredRegion_expectedToBeMarkedAndLeftOut() {
+	BufferedImage testImage = createImage(20);
+	fillRectangle(testImage, new Rectangle(60, 40, 12, 9), Color.BLACK);
+	// the region is given in the coordinates of the whole images, and the band
+	// starts at their row 32
+	List<Rectangle> ignoredRegions = Collections.singletonList(new Rectangle(60, 40, 6, 9));
+	byte[] mask = new byte[WIDTH * HEIGHT];
+
+	VisualDiff.BandDiff diff = VisualDiff.compareBand(testImage.getSubimage(0, 32, WIDTH, HEIGHT - 32),
+		createImage(20).getSubimage(0, 32, WIDTH, HEIGHT - 32), HEIGHT - 32, 32, ignoredRegions, mask,
+		"Exact", TOLERANCE);
+	Assert.assertEquals(diff.getIgnoredPixels(), 6L * 9);
+	Assert.assertEquals(diff.getDifferingPixels(), 6L * 9);
+	Assert.assertEquals(diff.getDifferingRegion(), new Rectangle(66, 40, 6, 9));
+	Assert.assertEquals(mask[8 * WIDTH + 60], VisualDiff.IGNORED);
+	Assert.assertEquals(mask[8 * WIDTH + 66], VisualDiff.DIFFERING);
+	Assert.assertEquals(mask[7 * WIDTH + 66], VisualDiff.MATCHING);
+	Assert.assertEquals(VisualDiff.getPercentage((long) WIDTH * HEIGHT, diff.getDifferingPixels(),
+		diff.getIgnoredPixels()), (WIDTH * HEIGHT - 108) * 100d / (WIDTH * HEIGHT - 54), 1e-9);
+    }
+
+    /**
+     * @return a light gray anti-aliased circle on a white background, whose edge
+     *         moves by a fraction of a pixel with its position
+     */
+    private static BufferedImage createImage(double x) {
+	BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+	Graphics2D graphics = image.createGraphics();
+	graphics.setColor(Color.WHITE);
+	graphics.fillRect(0, 0, WIDTH, HEIGHT);
+	graphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+	graphics.setRenderingHint(RenderingHints.KEY_STROKE_CONTROL, RenderingHints.VALUE_STROKE_PURE);
+	graphics.setColor(new Color(0xC8C8C8));
+	graphics.fill(new Ellipse2D.Double(x, 10, 30, 30));
+	graphics.dispose();
+	return image;
+    }
+
+    private static void fillRectangle(BufferedImage image, Rectangle rectangle, Color color) {
+	Graphics2D graphics = image.createGraphics();
+	graphics.setColor(color);
+	graphics.fill(rectangle);
+	graphics.dispose();
+    }
+}
@@ -0,0 +1,83 @@
+package testPackage01;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.openqa.selenium.By;
+import org.openqa.selenium.WebDriver;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.shaft.gui.browser.BrowserActions;
+import com.shaft.gui.browser.BrowserFactory;
+import com.shaft.gui.element.ElementActions;
+import com.shaft.gui.element.JSWaiter;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+public class Test_pageReadiness {
+    // a page that keeps a long poll pending for as long as it is open
+    private static final String LONG_POLL_PAGE = "<html><body><p id='status'>waiting</p><script>"
+	    + "var poll = new XMLHttpRequest(); poll.open('GET', '/poll'); poll.send();"
+	    + "</script></body></html>";
+
+    WebDriver driver;
+    HttpServer server;
+    ExecutorService serverExecutor;
+
+    @Test(description = "TC001 - A pending long poll doesn't block the page readiness until it times out.")
+    public void waitForLazyLoading_pendingLongPoll_expectedToResolveEarly() {
+	BrowserActions.navigateToURL(driver, "http://localhost:" + server.getAddress().getPort() + "/");
+
+	long startTime = System.currentTimeMillis();
+	JSWaiter.waitForLazyLoading();
+	Assert.assertTrue(System.currentTimeMillis() - startTime < 10000,
+		"Waiting for the page took as long as the readiness timeout.");
+
+	startTime = System.currentTimeMillis();
+	Assert.assertEquals(ElementActions.getText(driver, By.id("status")), "waiting");
+	Assert.assertTrue(System.currentTimeMillis() - startTime < 10000,
+		"Reading the element text took as long as the readiness timeout.");
+    }
+
+    @BeforeClass // Set-up method, to be run once before the first test
+    public void beforeClass() throws IOException {
+	serverExecutor = Executors.newCachedThreadPool();
+	server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+	server.createContext("/", exchange -> respond(exchange, LONG_POLL_PAGE));
+	server.createContext("/poll", exchange -> {
+	    try {
+		Thread.sleep(60000);
+		respond(exchange, "");
+	    } catch (InterruptedException e) {
+		Thread.currentThread().interrupt();
+		exchange.close();
+	    }
+	});
+	server.setExecutor(serverExecutor);
+	server.start();
+	driver = BrowserFactory.getBrowser();
+    }
+
+    @AfterClass
+    public void afterClass() {
+	BrowserActions.closeCurrentWindow(driver);
+	server.stop(0);
+	serverExecutor.shutdownNow();
+    }
+
+    private static void respond(HttpExchange exchange, String body) throws IOException {
+	byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+	exchange.getResponseHeaders().set("Content-Type", "text/html");
+	exchange.sendResponseHeaders(200, bytes.length);
+	try (OutputStream responseBody = exchange.getResponseBody()) {
+	    responseBody.write(bytes);
+	}
+    }
+}
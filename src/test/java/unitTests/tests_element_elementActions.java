@@ -55,6 +55,46 @@ public class tests_element_elementActions {
 	}
     }
 
+    @Test
+    public void typeThenGetText_byName_expectedToPass() {
+	BrowserActions.navigateToURL(driver, "https://www.google.com/ncr", "www.google.com");
+	ElementActions.type(driver, By.name("q"), "SHAFT_Engine");
+	Assert.assertEquals(ElementActions.getText(driver, By.name("q")), "SHAFT_Engine");
+    }
+
+    @Test
+    public void typeTwiceThenGetText_unchangedPage_expectedToPass() {
+	BrowserActions.navigateToURL(driver, "https://www.google.com/ncr", "www.google.com");
+	ElementActions.type(driver, By.name("q"), "SHAFT");
+	Assert.assertEquals(ElementActions.getText(driver, By.name("q")), "SHAFT");
+	ElementActions.type(driver, By.name("q"), "SHAFT_Engine");
+	Assert.assertEquals(ElementActions.getText(driver, By.name("q")), "SHAFT_Engine");
+    }
+
+    @Test
+    public void getText_byPartialLinkText_expectedToPass() {
+	BrowserActions.navigateToURL(driver, "https://www.google.com/ncr", "www.google.com");
+	Assert.assertEquals(ElementActions.getText(driver, By.partialLinkText("Gmail")), "Gmail");
+    }
+
+    @Test
+    public void batchTypeThenGetText_expectedToPass() {
+	BrowserActions.navigateToURL(driver, "https://www.google.com/ncr", "www.google.com");
+	ElementActions.batch(driver).type(By.name("q"), "SHAFT").type(By.name("q"), "SHAFT_Engine").execute();
+	Assert.assertEquals(ElementActions.getText(driver, By.name("q")), "SHAFT_Engine");
+    }
+
+    @Test
+    public void batch_missingElement_expectedToFail() {
+	BrowserActions.navigateToURL(driver, "https://www.google.com/ncr", "www.google.com");
+	try {
+	    ElementActions.batch(driver).type(By.name("q"), "SHAFT_Engine").click(By.id("bla")).execute();
+	    Assert.fail("The batch should have failed at its second action.");
+	} catch (AssertionError e) {
+	    Assert.assertTrue(e.getMessage().contains("[2/2] click"));
+	}
+    }
+
     @BeforeClass // Set-up method, to be run once before the first test
     public void beforeClass() {
 	driver = BrowserFactory.getBrowser("GoogleChrome");